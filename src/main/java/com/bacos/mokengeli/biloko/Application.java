@@ -4,13 +4,11 @@ package com.bacos.mokengeli.biloko;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.cloud.client.discovery.EnableDiscoveryClient;
-import org.springframework.cloud.openfeign.EnableFeignClients;
 
 import java.util.TimeZone;
 
 @SpringBootApplication
 @EnableDiscoveryClient
-@EnableFeignClients
 public class Application {
 
     public static void main(String[] args) {
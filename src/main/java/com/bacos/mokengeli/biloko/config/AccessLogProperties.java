@@ -0,0 +1,43 @@
+package com.bacos.mokengeli.biloko.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Paramètres du journal d'accès asynchrone ({@code gateway.access-log.*}).
+ * <p>
+ * Chaque catégorie (api, auth, socketio, preflight, error...) peut avoir son propre taux
+ * d'échantillonnage et plafond par seconde ; les catégories absentes utilisent {@link #defaults}.
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "gateway.access-log")
+public class AccessLogProperties {
+
+    private boolean enabled = true;
+
+    // Taille du ring buffer (arrondie à la puissance de deux supérieure)
+    private int bufferSize = 8192;
+
+    // Dump des headers requête/réponse au démarrage ; modifiable à chaud via l'endpoint actuator "accesslog"
+    private boolean headerDump = false;
+
+    // Secret exigé par la bascule à chaud du dump des headers (au moins 32 caractères) ; vide = bascule désactivée
+    private String toggleSecret = "";
+
+    private Category defaults = new Category();
+
+    private Map<String, Category> categories = new HashMap<>();
+
+    @Data
+    public static class Category {
+        // Proportion de requêtes journalisées, entre 0 et 1
+        private double sampleRate = 1.0;
+        // Plafond d'enregistrements par seconde, 0 = illimité
+        private int maxPerSecond = 0;
+    }
+}
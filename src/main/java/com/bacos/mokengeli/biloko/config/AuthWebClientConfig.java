@@ -1,13 +1,19 @@
 package com.bacos.mokengeli.biloko.config;
 
+import io.netty.channel.ChannelOption;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.cloud.client.loadbalancer.LoadBalanced;
+import org.springframework.cloud.client.loadbalancer.reactive.ReactorLoadBalancerExchangeFilterFunction;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.http.client.reactive.ReactorClientHttpConnector;
 import org.springframework.web.reactive.function.client.WebClient;
 import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.time.Duration;
 
 /**
  * Configuration WebClient utilisant la découverte Eureka
@@ -51,4 +57,35 @@ public class AuthWebClientConfig {
 
         return builder;
     }
-}
\ No newline at end of file
+
+    /**
+     * WebClient dédié aux appels internes vers l'Authentication-Service.
+     * Pool de connexions et timeouts propres pour qu'une lenteur de l'auth
+     * n'épuise pas le pool partagé du Gateway.
+     */
+    @Bean
+    public WebClient authInternalWebClient(ReactorLoadBalancerExchangeFilterFunction loadBalancerFunction,
+                                           @Value("${authentication.client.max-connections:200}") int maxConnections,
+                                           @Value("${authentication.client.pending-acquire-timeout:PT2S}") Duration pendingAcquireTimeout,
+                                           @Value("${authentication.client.max-idle-time:PT30S}") Duration maxIdleTime,
+                                           @Value("${authentication.client.connect-timeout-ms:2000}") int connectTimeoutMs,
+                                           @Value("${authentication.client.response-timeout:PT3S}") Duration responseTimeout) {
+        ConnectionProvider provider = ConnectionProvider.builder("auth-internal")
+                .maxConnections(maxConnections)
+                .pendingAcquireTimeout(pendingAcquireTimeout)
+                .maxIdleTime(maxIdleTime)
+                .build();
+
+        HttpClient httpClient = HttpClient.create(provider)
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, connectTimeoutMs)
+                .option(ChannelOption.TCP_NODELAY, true)
+                .responseTimeout(responseTimeout);
+
+        log.info("🔐 Creating load-balanced auth WebClient (maxConnections={}, responseTimeout={})",
+                maxConnections, responseTimeout);
+        return WebClient.builder()
+                .clientConnector(new ReactorClientHttpConnector(httpClient))
+                .filter(loadBalancerFunction)
+                .build();
+    }
+}
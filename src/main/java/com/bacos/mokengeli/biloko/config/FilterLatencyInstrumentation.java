@@ -0,0 +1,69 @@
+package com.bacos.mokengeli.biloko.config;
+
+import com.bacos.mokengeli.biloko.filter.InstrumentedGlobalFilter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.cloud.gateway.filter.GlobalFilter;
+import org.springframework.cloud.gateway.filter.NettyRoutingFilter;
+import org.springframework.core.Ordered;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Enveloppe chaque {@link GlobalFilter} du projet dans un {@link InstrumentedGlobalFilter}
+ * (désactivable via {@code gateway.filter-metrics.enabled}).
+ * <p>
+ * Les filtres de Spring Cloud Gateway ne sont jamais enveloppés : certains sont recherchés par type
+ * (routage Netty, load balancer) et leur coût relève des métriques du Gateway lui-même.
+ * Il en va de même des filtres de routage du projet ({@link NettyRoutingFilter} étendu, ou tout filtre
+ * ordonné en {@link Ordered#LOWEST_PRECEDENCE}) : leur phase "pre" couvre l'aller-retour amont complet.
+ */
+@Slf4j
+@Component
+public class FilterLatencyInstrumentation implements BeanPostProcessor {
+
+    private static final String PROJECT_PACKAGE = "com.bacos.mokengeli.";
+
+    private final ObjectProvider<MeterRegistry> meterRegistry;
+    private final boolean enabled;
+    private final List<InstrumentedGlobalFilter> filters = new CopyOnWriteArrayList<>();
+
+    public FilterLatencyInstrumentation(ObjectProvider<MeterRegistry> meterRegistry, Environment environment) {
+        this.meterRegistry = meterRegistry;
+        // Lu dans l'Environment : un BeanPostProcessor est créé avant la résolution des @Value
+        this.enabled = environment.getProperty("gateway.filter-metrics.enabled", Boolean.class, true);
+    }
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        if (!enabled || !(bean instanceof GlobalFilter filter) || bean instanceof InstrumentedGlobalFilter
+                || !filter.getClass().getName().startsWith(PROJECT_PACKAGE) || isRouting(filter)) {
+            return bean;
+        }
+        InstrumentedGlobalFilter instrumented =
+                new InstrumentedGlobalFilter(filter, filter.getClass().getSimpleName(), meterRegistry);
+        filters.add(instrumented);
+        log.debug("Instrumenting global filter {}", beanName);
+        return instrumented;
+    }
+
+    private static boolean isRouting(GlobalFilter filter) {
+        return filter instanceof NettyRoutingFilter
+                || filter instanceof Ordered ordered && ordered.getOrder() == Ordered.LOWEST_PRECEDENCE;
+    }
+
+    /**
+     * Filtres instrumentés, dans l'ordre d'exécution de la chaîne.
+     */
+    public List<InstrumentedGlobalFilter> filters() {
+        return filters.stream()
+                .sorted(Comparator.comparingInt(InstrumentedGlobalFilter::getOrder))
+                .toList();
+    }
+}
@@ -0,0 +1,42 @@
+package com.bacos.mokengeli.biloko.config;
+
+import io.netty.channel.ChannelOption;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.time.Duration;
+
+/**
+ * Client HTTP pour la synchronisation du cache de sessions entre instances du Gateway.
+ * Pas de load balancing : chaque message est adressé directement à une instance.
+ */
+@Slf4j
+@Configuration
+public class GatewayPeerConfig {
+
+    @Bean
+    public WebClient gatewayPeerWebClient(@Value("${gateway.peer-sync.max-connections:50}") int maxConnections,
+                                          @Value("${gateway.peer-sync.timeout:PT1S}") Duration timeout) {
+        ConnectionProvider provider = ConnectionProvider.builder("gateway-peers")
+                .maxConnections(maxConnections)
+                .pendingAcquireTimeout(timeout)
+                .maxIdleTime(Duration.ofSeconds(30))
+                .build();
+
+        HttpClient httpClient = HttpClient.create(provider)
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, (int) timeout.toMillis())
+                .option(ChannelOption.TCP_NODELAY, true)
+                .responseTimeout(timeout);
+
+        log.info("🤝 Creating gateway peer WebClient (maxConnections={})", maxConnections);
+        return WebClient.builder()
+                .clientConnector(new ReactorClientHttpConnector(httpClient))
+                .build();
+    }
+}
@@ -0,0 +1,13 @@
+package com.bacos.mokengeli.biloko.config;
+
+import org.springframework.cloud.loadbalancer.annotation.LoadBalancerClients;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Applique {@link UpstreamLoadBalancerConfiguration} à tous les services résolus par le load balancer
+ * (routes {@code lb://} et WebClient internes).
+ */
+@Configuration
+@LoadBalancerClients(defaultConfiguration = UpstreamLoadBalancerConfiguration.class)
+public class LoadBalancerClientsConfig {
+}
@@ -83,9 +83,17 @@ public class NettyWebSocketConfiguration {
                 .maxLifeTime(Duration.ofMinutes(10))     // Durée de vie max
                 .pendingAcquireTimeout(Duration.ofSeconds(45))  // Timeout acquisition
                 .evictInBackground(Duration.ofSeconds(120))     // Nettoyage en arrière-plan
+                .metrics(true)                                  // Gauges reactor.netty.connection.provider.*
                 .build();
 
-        return HttpClient.create(provider)
+        return configureClient(HttpClient.create(provider));
+    }
+
+    /**
+     * Options communes aux HttpClient sortants du Gateway (pool partagé et pools par service)
+     */
+    public static HttpClient configureClient(HttpClient httpClient) {
+        return httpClient
                 .responseTimeout(Duration.ofSeconds(120))       // Timeout réponse (long pour WS)
                 .option(ChannelOption.SO_KEEPALIVE, true)       // Keep-alive activé
                 .option(ChannelOption.TCP_NODELAY, true)        // Pas de délai Nagle
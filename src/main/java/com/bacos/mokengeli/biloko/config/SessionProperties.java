@@ -0,0 +1,104 @@
+package com.bacos.mokengeli.biloko.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * Réglages du cache de sessions et de la recherche auprès de l'Authentication-Service ({@code session.*}).
+ * <p>
+ * Les valeurs par défaut sont celles de {@code application.yml} : une instance créée par {@code new}
+ * se comporte comme le Gateway sans surcharge. Le snapshot, le cache négatif et le flux de révocation
+ * gardent leurs propres clés ; seul {@code revocation-feed.cache-ttl-seconds} est lu ici.
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "session")
+public class SessionProperties {
+
+    private Cache cache = new Cache();
+
+    private Lookup lookup = new Lookup();
+
+    private RevocationFeed revocationFeed = new RevocationFeed();
+
+    @Data
+    public static class Cache {
+        private long ttlSeconds = 120;
+        private RefreshAhead refreshAhead = new RefreshAhead();
+        private VariableTtl variableTtl = new VariableTtl();
+        private Fallback fallback = new Fallback();
+    }
+
+    /**
+     * Stale-while-revalidate : l'entrée périmée est servie pendant le rechargement asynchrone.
+     */
+    @Data
+    public static class RefreshAhead {
+        private boolean enabled = false;
+        private long maxStaleSeconds = 60;
+    }
+
+    /**
+     * Durée de vie calée sur le plus proche expiresAt des sessions, jamais au-delà de {@code maxTtlSeconds}.
+     */
+    @Data
+    public static class VariableTtl {
+        private boolean enabled = false;
+        private long maxTtlSeconds = 900;
+    }
+
+    /**
+     * Mode dégradé : dernière liste connue servie si l'Authentication-Service est indisponible (0 = désactivé).
+     */
+    @Data
+    public static class Fallback {
+        private long maxStalenessSeconds = 300;
+    }
+
+    @Data
+    public static class Lookup {
+        // Délai maximal par recherche (hedging et bulkhead inclus)
+        private Duration deadline = Duration.ofSeconds(1);
+        private Hedge hedge = new Hedge();
+        private Bulkhead bulkhead = new Bulkhead();
+        private Batch batch = new Batch();
+    }
+
+    /**
+     * Seconde requête vers une autre instance au-delà du percentile de latence observé.
+     */
+    @Data
+    public static class Hedge {
+        private boolean enabled = false;
+        private double percentile = 0.95;
+        private Duration minDelay = Duration.ofMillis(50);
+    }
+
+    /**
+     * Plafond des requêtes HTTP simultanées vers l'Authentication-Service.
+     */
+    @Data
+    public static class Bulkhead {
+        private int maxConcurrent = 200;
+    }
+
+    /**
+     * Micro-batching des misses.
+     */
+    @Data
+    public static class Batch {
+        private boolean enabled = false;
+        private int maxSize = 50;
+        private Duration window = Duration.ofMillis(5);
+        private int concurrency = 8;
+    }
+
+    @Data
+    public static class RevocationFeed {
+        // TTL des entrées chargées tant que le flux est connecté
+        private long cacheTtlSeconds = 1800;
+    }
+}
@@ -0,0 +1,64 @@
+package com.bacos.mokengeli.biloko.config;
+
+import com.bacos.mokengeli.biloko.service.HedgeSpreadServiceInstanceListSupplier;
+import com.bacos.mokengeli.biloko.service.InstanceLoadTracker;
+import com.bacos.mokengeli.biloko.service.OutlierDetector;
+import com.bacos.mokengeli.biloko.service.OutlierEjectionServiceInstanceListSupplier;
+import com.bacos.mokengeli.biloko.service.PeakEwmaLoadBalancer;
+import com.bacos.mokengeli.biloko.service.RegistrySnapshotStore;
+import com.bacos.mokengeli.biloko.service.SnapshotFallbackServiceInstanceListSupplier;
+import com.bacos.mokengeli.biloko.service.UpstreamPrewarmer;
+import com.bacos.mokengeli.biloko.service.WarmingServiceInstanceListSupplier;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.loadbalancer.core.ReactorLoadBalancer;
+import org.springframework.cloud.loadbalancer.core.RoundRobinLoadBalancer;
+import org.springframework.cloud.loadbalancer.core.ServiceInstanceListSupplier;
+import org.springframework.cloud.loadbalancer.support.LoadBalancerClientFactory;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.core.env.Environment;
+
+/**
+ * Chaîne des fournisseurs d'instances de chaque client load-balancé (contexte enfant par service,
+ * appliquée via {@code @LoadBalancerClients(defaultConfiguration = ...)} dans {@link LoadBalancerClientsConfig}).
+ * <p>
+ * Pas de {@code @Configuration} : la classe ne doit pas être enregistrée dans le contexte principal.
+ * <p>
+ * Ordre : découverte réactive → cache LoadBalancer → repli sur le snapshot local si vide → exclusion des
+ * instances en pré-chauffage → exclusion des instances éjectées pour échecs répétés → pour une requête de
+ * hedging, exclusion des instances déjà choisies par le même appel. La découverte n'est
+ * donc pas interrogée à chaque requête, alors que les filtres placés après le cache voient toujours
+ * l'état courant des instances (pré-chauffage, éjections).
+ * <p>
+ * Choix de l'instance : P2C sur latence peak EWMA ({@link PeakEwmaLoadBalancer}), ou round-robin
+ * avec {@code gateway.load-balancer.strategy=round-robin}.
+ */
+public class UpstreamLoadBalancerConfiguration {
+
+    @Bean
+    public ServiceInstanceListSupplier upstreamServiceInstanceListSupplier(ConfigurableApplicationContext context) {
+        return ServiceInstanceListSupplier.builder()
+                .withDiscoveryClient()
+                .withCaching()
+                .with((ctx, delegate) -> new SnapshotFallbackServiceInstanceListSupplier(delegate,
+                        ctx.getBean(RegistrySnapshotStore.class)))
+                .with((ctx, delegate) -> new WarmingServiceInstanceListSupplier(delegate,
+                        ctx.getBean(UpstreamPrewarmer.class)))
+                .with((ctx, delegate) -> new OutlierEjectionServiceInstanceListSupplier(delegate,
+                        ctx.getBean(OutlierDetector.class)))
+                .with((ctx, delegate) -> new HedgeSpreadServiceInstanceListSupplier(delegate))
+                .build(context);
+    }
+
+    @Bean
+    public ReactorLoadBalancer<ServiceInstance> upstreamLoadBalancer(Environment environment,
+                                                                     LoadBalancerClientFactory loadBalancerClientFactory,
+                                                                     InstanceLoadTracker instanceLoadTracker) {
+        String serviceId = environment.getProperty(LoadBalancerClientFactory.PROPERTY_NAME);
+        var supplierProvider = loadBalancerClientFactory.getLazyProvider(serviceId, ServiceInstanceListSupplier.class);
+        if ("round-robin".equalsIgnoreCase(environment.getProperty("gateway.load-balancer.strategy", "p2c-ewma"))) {
+            return new RoundRobinLoadBalancer(supplierProvider, serviceId);
+        }
+        return new PeakEwmaLoadBalancer(supplierProvider, serviceId, instanceLoadTracker);
+    }
+}
@@ -0,0 +1,88 @@
+package com.bacos.mokengeli.biloko.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Pools de connexions par service aval ({@code gateway.upstream-pools.*}).
+ * <p>
+ * Un pool est créé pour chaque service cible d'une route ({@code lb://order-service} → {@code order-service}) ;
+ * les paramètres absents de {@link #services} sont pris dans {@link #defaults}.
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "gateway.upstream-pools")
+public class UpstreamPoolProperties {
+
+    // Désactivé : toutes les routes HTTP partagent le pool du HttpClient du Gateway
+    private boolean enabled = true;
+
+    private Pool defaults = Pool.standard();
+
+    private Map<String, Pool> services = new HashMap<>();
+
+    /**
+     * Paramètres effectifs d'un service : surcharge du service complétée par les valeurs par défaut.
+     */
+    public Pool forService(String serviceId) {
+        Pool override = services.get(serviceId);
+        if (override == null) {
+            return defaults;
+        }
+        Pool pool = new Pool();
+        pool.setMaxConnections(or(override.getMaxConnections(), defaults.getMaxConnections()));
+        pool.setPendingAcquireMaxCount(or(override.getPendingAcquireMaxCount(), defaults.getPendingAcquireMaxCount()));
+        pool.setPendingAcquireTimeout(or(override.getPendingAcquireTimeout(), defaults.getPendingAcquireTimeout()));
+        pool.setMaxIdleTime(or(override.getMaxIdleTime(), defaults.getMaxIdleTime()));
+        pool.setMaxLifeTime(or(override.getMaxLifeTime(), defaults.getMaxLifeTime()));
+        pool.setEvictInBackground(or(override.getEvictInBackground(), defaults.getEvictInBackground()));
+        pool.setLeasingStrategy(or(override.getLeasingStrategy(), defaults.getLeasingStrategy()));
+        return pool;
+    }
+
+    private static <T> T or(T value, T fallback) {
+        return value != null ? value : fallback;
+    }
+
+    /**
+     * Ordre de réutilisation des connexions inactives.
+     */
+    public enum LeasingStrategy {
+        // La plus ancienne d'abord : répartit l'usage sur tout le pool
+        FIFO,
+        // La plus récente d'abord : laisse expirer les connexions en trop après un pic
+        LIFO
+    }
+
+    /**
+     * Paramètres d'un pool ; null dans une surcharge de service = valeur de {@link #defaults}.
+     */
+    @Data
+    public static class Pool {
+        private Integer maxConnections;
+        // File d'attente d'acquisition, -1 = illimitée
+        private Integer pendingAcquireMaxCount;
+        private Duration pendingAcquireTimeout;
+        private Duration maxIdleTime;
+        private Duration maxLifeTime;
+        private Duration evictInBackground;
+        private LeasingStrategy leasingStrategy;
+
+        static Pool standard() {
+            Pool pool = new Pool();
+            pool.setMaxConnections(200);
+            pool.setPendingAcquireMaxCount(400);
+            pool.setPendingAcquireTimeout(Duration.ofSeconds(5));
+            pool.setMaxIdleTime(Duration.ofSeconds(60));
+            pool.setMaxLifeTime(Duration.ofMinutes(10));
+            pool.setEvictInBackground(Duration.ofSeconds(120));
+            pool.setLeasingStrategy(LeasingStrategy.FIFO);
+            return pool;
+        }
+    }
+}
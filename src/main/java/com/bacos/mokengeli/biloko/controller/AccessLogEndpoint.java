@@ -0,0 +1,38 @@
+package com.bacos.mokengeli.biloko.controller;
+
+import com.bacos.mokengeli.biloko.service.AccessLogPipeline;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.boot.actuate.endpoint.web.WebEndpointResponse;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+/**
+ * Endpoint actuator {@code /actuator/accesslog} : état du journal d'accès et bascule
+ * à chaud du dump des headers (POST {"headerDump": true, "secret": "..."}).
+ * La bascule exige {@code gateway.access-log.toggle-secret} ; sans lui, elle est refusée (403).
+ */
+@Component
+@Endpoint(id = "accesslog")
+@RequiredArgsConstructor
+public class AccessLogEndpoint {
+
+    private final AccessLogPipeline accessLogPipeline;
+
+    @ReadOperation
+    public Map<String, Object> status() {
+        return accessLogPipeline.status();
+    }
+
+    @WriteOperation
+    public WebEndpointResponse<Map<String, Object>> update(boolean headerDump, @Nullable String secret) {
+        if (!accessLogPipeline.setHeaderDump(headerDump, secret)) {
+            return new WebEndpointResponse<>(WebEndpointResponse.STATUS_FORBIDDEN);
+        }
+        return new WebEndpointResponse<>(accessLogPipeline.status());
+    }
+}
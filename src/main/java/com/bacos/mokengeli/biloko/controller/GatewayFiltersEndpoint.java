@@ -0,0 +1,55 @@
+package com.bacos.mokengeli.biloko.controller;
+
+import com.bacos.mokengeli.biloko.config.FilterLatencyInstrumentation;
+import com.bacos.mokengeli.biloko.filter.InstrumentedGlobalFilter;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.distribution.HistogramSnapshot;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Endpoint actuator {@code /actuator/gatewayfilters} : chaîne des GlobalFilter dans l'ordre,
+ * avec le coût p50/p99 (en microsecondes) avant et après la suite de la chaîne.
+ */
+@Component
+@Endpoint(id = "gatewayfilters")
+@RequiredArgsConstructor
+public class GatewayFiltersEndpoint {
+
+    private final FilterLatencyInstrumentation instrumentation;
+
+    @ReadOperation
+    public List<Map<String, Object>> filters() {
+        return instrumentation.filters().stream()
+                .map(this::describe)
+                .toList();
+    }
+
+    private Map<String, Object> describe(InstrumentedGlobalFilter filter) {
+        Map<String, Object> description = new LinkedHashMap<>();
+        description.put("order", filter.getOrder());
+        description.put("filter", filter.getName());
+        description.put("pre", percentiles(filter.preTimer()));
+        description.put("post", percentiles(filter.postTimer()));
+        return description;
+    }
+
+    private static Map<String, Object> percentiles(Timer timer) {
+        HistogramSnapshot snapshot = timer.takeSnapshot();
+        Map<String, Object> values = new LinkedHashMap<>();
+        values.put("count", snapshot.count());
+        for (ValueAtPercentile percentile : snapshot.percentileValues()) {
+            values.put("p" + Math.round(percentile.percentile() * 100) + "Us",
+                    Math.round(percentile.value(TimeUnit.MICROSECONDS)));
+        }
+        return values;
+    }
+}
@@ -0,0 +1,113 @@
+package com.bacos.mokengeli.biloko.controller;
+
+import com.bacos.mokengeli.biloko.model.PeerCacheMessage;
+import com.bacos.mokengeli.biloko.service.SessionPeerSync;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.server.HttpServer;
+import reactor.netty.http.server.HttpServerRequest;
+import reactor.netty.http.server.HttpServerResponse;
+
+import java.io.IOException;
+
+/**
+ * Point d'entrée des messages de synchronisation envoyés par les autres instances du Gateway.
+ * <p>
+ * Servi sur un port dédié ({@code gateway.peer-sync.port}, lié à {@code gateway.peer-sync.bind-address}),
+ * jamais sur le port public : il n'est joignable que depuis le réseau des instances.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "gateway.peer-sync", name = "enabled", havingValue = "true")
+public class SessionPeerController {
+
+    // Un message porte au plus quelques dizaines de JTI
+    private static final int MAX_MESSAGE_BYTES = 64 * 1024;
+
+    private final SessionPeerSync sessionPeerSync;
+    private final ObjectMapper objectMapper;
+    private final String bindAddress;
+    private final int port;
+    private DisposableServer server;
+
+    public SessionPeerController(SessionPeerSync sessionPeerSync,
+                                 ObjectMapper objectMapper,
+                                 @Value("${gateway.peer-sync.bind-address:0.0.0.0}") String bindAddress,
+                                 @Value("${gateway.peer-sync.port:8091}") int port) {
+        this.sessionPeerSync = sessionPeerSync;
+        this.objectMapper = objectMapper;
+        this.bindAddress = bindAddress;
+        this.port = port;
+    }
+
+    @PostConstruct
+    public void start() {
+        server = HttpServer.create()
+                .host(bindAddress)
+                .port(port)
+                .route(routes -> routes.post(SessionPeerSync.PEER_ENDPOINT, this::receive))
+                .bindNow();
+        log.info("🤝 Gateway peer endpoint listening on {}:{}", bindAddress, server.port());
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (server != null) {
+            server.disposeNow();
+        }
+    }
+
+    /**
+     * Port effectivement écouté (utile avec {@code port=0}).
+     */
+    public int port() {
+        return server.port();
+    }
+
+    private Mono<Void> receive(HttpServerRequest request, HttpServerResponse response) {
+        if (!sessionPeerSync.isAuthorized(request.requestHeaders().get(SessionPeerSync.SECRET_HEADER))) {
+            log.warn("⛔ Rejected peer cache message without valid secret from {}", request.remoteAddress());
+            return response.status(HttpResponseStatus.FORBIDDEN).send().then();
+        }
+        // Taille connue avant lecture : le corps n'est jamais agrégé sans borne
+        long contentLength = contentLength(request);
+        if (contentLength < 0) {
+            return response.status(HttpResponseStatus.LENGTH_REQUIRED).send().then();
+        }
+        if (contentLength > MAX_MESSAGE_BYTES) {
+            return response.status(HttpResponseStatus.REQUEST_ENTITY_TOO_LARGE).send().then();
+        }
+        return request.receive().aggregate().asByteArray()
+                .flatMap(body -> {
+                    PeerCacheMessage message;
+                    try {
+                        message = objectMapper.readValue(body, PeerCacheMessage.class);
+                    } catch (IOException e) {
+                        return response.status(HttpResponseStatus.BAD_REQUEST).send().then();
+                    }
+                    if (message.getType() == null || !sessionPeerSync.apply(message)) {
+                        return response.status(HttpResponseStatus.BAD_REQUEST).send().then();
+                    }
+                    return response.status(HttpResponseStatus.NO_CONTENT).send().then();
+                })
+                .switchIfEmpty(Mono.defer(() -> response.status(HttpResponseStatus.BAD_REQUEST).send().then()));
+    }
+
+    private static long contentLength(HttpServerRequest request) {
+        String value = request.requestHeaders().get(HttpHeaderNames.CONTENT_LENGTH);
+        try {
+            return value == null ? -1 : Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+}
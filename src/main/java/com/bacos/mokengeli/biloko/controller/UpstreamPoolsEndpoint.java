@@ -0,0 +1,27 @@
+package com.bacos.mokengeli.biloko.controller;
+
+import com.bacos.mokengeli.biloko.service.UpstreamConnectionPools;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Endpoint actuator {@code /actuator/upstreampools} : pool de connexions de chaque service aval,
+ * avec sa configuration, les connexions actives / inactives / en attente et le temps d'acquisition.
+ */
+@Component
+@Endpoint(id = "upstreampools")
+@RequiredArgsConstructor
+public class UpstreamPoolsEndpoint {
+
+    private final UpstreamConnectionPools upstreamConnectionPools;
+
+    @ReadOperation
+    public List<Map<String, Object>> pools() {
+        return upstreamConnectionPools.status();
+    }
+}
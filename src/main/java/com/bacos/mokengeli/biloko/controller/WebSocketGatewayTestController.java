@@ -1,5 +1,6 @@
 package com.bacos.mokengeli.biloko.controller;
 
+import com.bacos.mokengeli.biloko.service.OutlierDetector;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.cloud.gateway.route.Route;
@@ -23,12 +24,14 @@ import java.util.Map;
 public class WebSocketGatewayTestController {
     
     private final RouteLocator routeLocator;
+    private final OutlierDetector outlierDetector;
     
     @Value("${server.port:8081}")
     private String serverPort;
     
-    public WebSocketGatewayTestController(RouteLocator routeLocator) {
+    public WebSocketGatewayTestController(RouteLocator routeLocator, OutlierDetector outlierDetector) {
         this.routeLocator = routeLocator;
+        this.outlierDetector = outlierDetector;
     }
     
     /**
@@ -168,6 +171,11 @@ public class WebSocketGatewayTestController {
                              route.getUri().toString().startsWith("wss://");
         routeMap.put("isWebSocket", isWebSocket);
         
+        // État des instances du service (éjections pour échecs répétés)
+        if ("lb".equals(route.getUri().getScheme())) {
+            routeMap.put("instances", outlierDetector.status(route.getUri().getHost()));
+        }
+        
         return routeMap;
     }
 }
\ No newline at end of file
@@ -0,0 +1,118 @@
+package com.bacos.mokengeli.biloko.filter;
+
+import com.bacos.mokengeli.biloko.model.AuthenticationContext;
+import com.bacos.mokengeli.biloko.model.RequestClass;
+import com.bacos.mokengeli.biloko.service.AccessLogPipeline;
+import com.bacos.mokengeli.biloko.service.AuthenticationContextResolver;
+import com.bacos.mokengeli.biloko.service.RequestClassifier;
+import com.bacos.mokengeli.biloko.service.SessionPeerSync;
+import lombok.RequiredArgsConstructor;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.GlobalFilter;
+import org.springframework.core.Ordered;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Journal d'accès structuré (remplace l'ancien CorsDebugFilter).
+ * <p>
+ * Une seule ligne par requête retenue, écrite hors event-loop par {@link AccessLogPipeline} ;
+ * catégorie, échantillonnage et plafond décidés en fin d'échange. Le dump des headers n'est
+ * construit que lorsqu'il est activé (configuration ou endpoint actuator "accesslog") ;
+ * les headers portant un secret (cookies, jetons, secret inter-Gateway) y sont masqués.
+ */
+@Component
+@RequiredArgsConstructor
+public class AccessLogFilter implements GlobalFilter, Ordered {
+
+    private static final Set<String> REDACTED_HEADERS = new TreeSet<>(String.CASE_INSENSITIVE_ORDER);
+
+    static {
+        REDACTED_HEADERS.addAll(Set.of(HttpHeaders.COOKIE, HttpHeaders.SET_COOKIE, HttpHeaders.AUTHORIZATION,
+                HttpHeaders.PROXY_AUTHORIZATION, SessionPeerSync.SECRET_HEADER));
+    }
+
+    private final AccessLogPipeline accessLogPipeline;
+    private final AuthenticationContextResolver authenticationContextResolver;
+    private final RequestClassifier requestClassifier;
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+        if (!accessLogPipeline.isEnabled()) {
+            return chain.filter(exchange);
+        }
+        long start = System.nanoTime();
+        return chain.filter(exchange).doFinally(signal -> record(exchange, start));
+    }
+
+    private void record(ServerWebExchange exchange, long start) {
+        ServerHttpRequest request = exchange.getRequest();
+        HttpStatusCode statusCode = exchange.getResponse().getStatusCode();
+        int status = statusCode != null ? statusCode.value() : 0;
+        RequestClass requestClass = requestClassifier.current(exchange);
+
+        String category = category(request.getMethod(), status, requestClass);
+        if (!accessLogPipeline.accept(category)) {
+            return;
+        }
+
+        AuthenticationContext context = authenticationContextResolver.current(exchange);
+        HttpHeaders requestHeaders = request.getHeaders();
+        HttpHeaders responseHeaders = exchange.getResponse().getHeaders();
+        String headers = accessLogPipeline.isHeaderDump()
+                ? "request" + redacted(requestHeaders) + " response" + redacted(responseHeaders)
+                : null;
+        accessLogPipeline.publish(System.currentTimeMillis(),
+                request.getMethod().name(),
+                request.getPath().value(),
+                status,
+                TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start),
+                category,
+                context.clientProfile().name(),
+                requestClass.routeId(),
+                requestHeaders.getOrigin(),
+                responseHeaders.getAccessControlAllowOrigin(),
+                headers);
+    }
+
+    private static String redacted(HttpHeaders headers) {
+        StringBuilder dump = new StringBuilder("[");
+        headers.forEach((name, values) -> {
+            if (dump.length() > 1) {
+                dump.append(", ");
+            }
+            dump.append(name).append(':').append(REDACTED_HEADERS.contains(name) ? "<redacted>" : values);
+        });
+        return dump.append(']').toString();
+    }
+
+    private static String category(HttpMethod method, int status, RequestClass requestClass) {
+        if (status >= 500) {
+            return "error";
+        }
+        if (HttpMethod.OPTIONS.equals(method)) {
+            return "preflight";
+        }
+        if (requestClass.socketIo()) {
+            return "socketio";
+        }
+        if (requestClass.authEndpoint() || requestClass.logout()) {
+            return "auth";
+        }
+        return "api";
+    }
+
+    @Override
+    public int getOrder() {
+        return -100; // Très haute priorité pour capturer tout
+    }
+}
@@ -0,0 +1,42 @@
+package com.bacos.mokengeli.biloko.filter;
+
+import com.bacos.mokengeli.biloko.model.AuthenticationContext;
+import com.bacos.mokengeli.biloko.model.RequestClass;
+import com.bacos.mokengeli.biloko.service.AuthenticationContextResolver;
+import com.bacos.mokengeli.biloko.service.RequestClassifier;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.GlobalFilter;
+import org.springframework.core.Ordered;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+/**
+ * Premier filtre de la chaîne : résout une seule fois le contexte d'authentification
+ * (jeton, type de client, claims) et le dépose dans {@link AuthenticationContext#ATTRIBUTE},
+ * ainsi que la classification du chemin ({@link RequestClass#ATTRIBUTE}).
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class AuthenticationContextFilter implements GlobalFilter, Ordered {
+
+    private final AuthenticationContextResolver resolver;
+    private final RequestClassifier requestClassifier;
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+        AuthenticationContext context = resolver.current(exchange);
+        RequestClass requestClass = requestClassifier.current(exchange);
+        log.debug("Authentication context - source: {}, mobile: {}, route: {}",
+                context.source(), context.mobileClient(), requestClass.routeId());
+        return chain.filter(exchange);
+    }
+
+    @Override
+    public int getOrder() {
+        return -300; // Avant SocketIOGatewayFilter (-200)
+    }
+}
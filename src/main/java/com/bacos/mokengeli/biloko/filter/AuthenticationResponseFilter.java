@@ -1,8 +1,14 @@
 package com.bacos.mokengeli.biloko.filter;
 
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.bacos.mokengeli.biloko.service.AuthenticationContextResolver;
+import com.bacos.mokengeli.biloko.service.RequestClassifier;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.async.ByteBufferFeeder;
+import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.reactivestreams.Publisher;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.cloud.gateway.filter.GatewayFilterChain;
 import org.springframework.cloud.gateway.filter.GlobalFilter;
@@ -11,117 +17,189 @@ import org.springframework.core.io.buffer.DataBuffer;
 import org.springframework.core.io.buffer.DataBufferUtils;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
-import org.springframework.http.MediaType;
-import org.springframework.http.ResponseCookie;
 import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.http.server.reactive.ServerHttpResponseDecorator;
 import org.springframework.stereotype.Component;
 import org.springframework.web.server.ServerWebExchange;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
-import java.nio.charset.StandardCharsets;
-import java.time.Duration;
+import java.io.IOException;
 
 /**
  * Filtre pour gérer les réponses d'authentification
  * - Pour les requêtes web : maintient le comportement actuel (cookies)
  * - Pour les requêtes mobile : ajoute le token dans le header Authorization de la réponse
+ *
+ * Le corps est transmis en streaming : un parser JSON incrémental repère le token sans copier ni
+ * bufferiser la réponse entière ; seuls les buffers précédant le token sont retenus le temps de poser le header.
  */
 @Slf4j
 @Component
+@RequiredArgsConstructor
 public class AuthenticationResponseFilter implements GlobalFilter, Ordered {
 
     @Value("${security.jwt.cookie.access-token:accessToken}")
     private String accessTokenCookieName;
 
-    private final ObjectMapper objectMapper = new ObjectMapper();
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    private final RequestClassifier requestClassifier;
+    private final AuthenticationContextResolver authenticationContextResolver;
 
     @Override
     public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
-        String path = exchange.getRequest().getPath().toString();
-        
         // Appliquer uniquement sur les endpoints d'authentification
-        if (!path.contains("/api/auth/login") && !path.contains("/api/auth/refresh")) {
+        if (!requestClassifier.current(exchange).authEndpoint()) {
+            return chain.filter(exchange);
+        }
+
+        // Seules les réponses mobiles reçoivent le header : le web passe sans décoration
+        if (!authenticationContextResolver.current(exchange).mobileClient()) {
             return chain.filter(exchange);
         }
 
-        // Déterminer si c'est une requête mobile
-        boolean isMobileRequest = isMobileRequest(exchange);
-        
         return chain.filter(exchange.mutate()
-                .response(decorateResponse(exchange, isMobileRequest))
+                .response(decorateResponse(exchange))
                 .build());
     }
 
-    private ServerHttpResponse decorateResponse(ServerWebExchange exchange, boolean isMobileRequest) {
+    private ServerHttpResponse decorateResponse(ServerWebExchange exchange) {
         ServerHttpResponse originalResponse = exchange.getResponse();
-        
+
         return new ServerHttpResponseDecorator(originalResponse) {
             @Override
-            public Mono<Void> writeWith(org.reactivestreams.Publisher<? extends DataBuffer> body) {
-                if (body instanceof Flux && originalResponse.getStatusCode() == HttpStatus.OK) {
-                    Flux<? extends DataBuffer> fluxBody = (Flux<? extends DataBuffer>) body;
-                    
-                    return super.writeWith(fluxBody.buffer().map(dataBuffers -> {
-                        DataBuffer joinedBuffer = originalResponse.bufferFactory().join(dataBuffers);
-                        byte[] content = new byte[joinedBuffer.readableByteCount()];
-                        joinedBuffer.read(content);
-                        DataBufferUtils.release(joinedBuffer);
-                        
-                        try {
-                            String responseBody = new String(content, StandardCharsets.UTF_8);
-                            JsonNode jsonNode = objectMapper.readTree(responseBody);
-                            
-                            // Extraire le token de la réponse
-                            String token = null;
-                            if (jsonNode.has("token")) {
-                                token = jsonNode.get("token").asText();
-                            } else if (jsonNode.has("accessToken")) {
-                                token = jsonNode.get("accessToken").asText();
-                            }
-                            
-                            if (token != null && isMobileRequest) {
-                                // Pour mobile : ajouter le token dans le header Authorization
-                                log.debug("Adding Authorization header for mobile response");
-                                originalResponse.getHeaders().add(HttpHeaders.AUTHORIZATION, "Bearer " + token);
-                                // Exposer le header pour que le client puisse le lire
-                                originalResponse.getHeaders().add("Access-Control-Expose-Headers", "Authorization");
-                            }
-                            
-                        } catch (Exception e) {
-                            log.error("Error processing authentication response", e);
-                        }
-                        
-                        return originalResponse.bufferFactory().wrap(content);
-                    }));
+            public Mono<Void> writeWith(Publisher<? extends DataBuffer> body) {
+                if (!(body instanceof Flux) || !HttpStatus.OK.equals(originalResponse.getStatusCode())) {
+                    return super.writeWith(body);
                 }
-                return super.writeWith(body);
+                // Les buffers passent tels quels ; seuls ceux reçus avant la découverte du token sont retenus,
+                // afin que le header soit posé avant l'envoi du premier octet
+                return super.writeWith(Flux.defer(() -> {
+                    TokenScanner scanner = new TokenScanner();
+                    return Flux.from(body)
+                            .bufferUntil(buffer -> {
+                                if (scanner.feed(buffer)) {
+                                    addAuthorizationHeader(originalResponse, scanner.token());
+                                }
+                                return scanner.isDone();
+                            })
+                            .concatMapIterable(buffers -> buffers)
+                            .doOnDiscard(DataBuffer.class, DataBufferUtils::release)
+                            .doFinally(signal -> scanner.close());
+                }));
             }
         };
     }
 
-    private boolean isMobileRequest(ServerWebExchange exchange) {
-        String userAgent = exchange.getRequest().getHeaders().getFirst(HttpHeaders.USER_AGENT);
-        String origin = exchange.getRequest().getHeaders().getFirst("Origin");
-        
-        // Détection basique des requêtes mobiles
-        if (userAgent != null) {
-            String lowerUserAgent = userAgent.toLowerCase();
-            if (lowerUserAgent.contains("expo") || 
-                lowerUserAgent.contains("react native") ||
-                lowerUserAgent.contains("okhttp") ||
-                lowerUserAgent.contains("dart") ||
-                lowerUserAgent.contains("flutter")) {
-                return true;
+    private void addAuthorizationHeader(ServerHttpResponse response, String token) {
+        if (token == null) {
+            return;
+        }
+        // Pour mobile : ajouter le token dans le header Authorization
+        log.debug("Adding Authorization header for mobile response");
+        response.getHeaders().add(HttpHeaders.AUTHORIZATION, "Bearer " + token);
+        // Exposer le header pour que le client puisse le lire
+        response.getHeaders().add("Access-Control-Expose-Headers", "Authorization");
+    }
+
+    /**
+     * Analyse JSON incrémentale (parser Jackson non bloquant) à la recherche de {@code token}
+     * ou, à défaut, {@code accessToken} au premier niveau de l'objet. Aucune copie du corps.
+     */
+    private static final class TokenScanner {
+
+        private final JsonParser parser;
+        private final ByteBufferFeeder feeder;
+        private int depth;
+        private String pendingField;
+        private String accessToken;
+        private String token;
+        private boolean done;
+
+        TokenScanner() {
+            JsonParser p = null;
+            try {
+                p = JSON_FACTORY.createNonBlockingByteBufferParser();
+            } catch (IOException e) {
+                log.error("Error creating authentication response parser", e);
+                done = true;
+            }
+            this.parser = p;
+            this.feeder = p != null ? (ByteBufferFeeder) p.getNonBlockingInputFeeder() : null;
+        }
+
+        /**
+         * Consomme le buffer ; retourne true au moment où la décision est prise.
+         */
+        boolean feed(DataBuffer buffer) {
+            if (done) {
+                return false;
+            }
+            try (DataBuffer.ByteBufferIterator iterator = buffer.readableByteBuffers()) {
+                while (iterator.hasNext() && !done) {
+                    feeder.feedInput(iterator.next());
+                    drain();
+                }
+            } catch (IOException | RuntimeException e) {
+                // Corps non JSON ou invalide : on laisse passer sans header
+                log.error("Error processing authentication response", e);
+                done = true;
+            }
+            return done;
+        }
+
+        private void drain() throws IOException {
+            JsonToken t;
+            while (!done && (t = parser.nextToken()) != JsonToken.NOT_AVAILABLE && t != null) {
+                switch (t) {
+                    case START_OBJECT, START_ARRAY -> {
+                        if (depth == 0 && t == JsonToken.START_ARRAY) {
+                            done = true;
+                        }
+                        depth++;
+                        pendingField = null;
+                    }
+                    case END_OBJECT, END_ARRAY -> {
+                        depth--;
+                        if (depth == 0) {
+                            // Fin de l'objet racine sans "token" : on se rabat sur "accessToken"
+                            token = accessToken;
+                            done = true;
+                        }
+                    }
+                    case FIELD_NAME -> pendingField = depth == 1 ? parser.currentName() : null;
+                    case VALUE_STRING -> {
+                        if ("token".equals(pendingField)) {
+                            token = parser.getText();
+                            done = true;
+                        } else if ("accessToken".equals(pendingField) && accessToken == null) {
+                            accessToken = parser.getText();
+                        }
+                        pendingField = null;
+                    }
+                    default -> pendingField = null;
+                }
             }
         }
-        
-        // Vérifier aussi l'origine
-        if (origin != null && (origin.startsWith("exp://") || origin.startsWith("exps://"))) {
-            return true;
+
+        boolean isDone() {
+            return done;
+        }
+
+        String token() {
+            return token;
+        }
+
+        void close() {
+            if (parser != null) {
+                try {
+                    parser.close();
+                } catch (IOException ignored) {
+                    // rien à libérer côté entrée
+                }
+            }
         }
-        
-        return false;
     }
 
     @Override
@@ -129,11 +207,4 @@ public class AuthenticationResponseFilter implements GlobalFilter, Ordered {
         // S'exécute après l'authentification
         return 10;
     }
-    
-    // Classe helper pour décorer la réponse
-    private static class ServerHttpResponseDecorator extends org.springframework.http.server.reactive.ServerHttpResponseDecorator {
-        public ServerHttpResponseDecorator(ServerHttpResponse delegate) {
-            super(delegate);
-        }
-    }
-}
\ No newline at end of file
+}
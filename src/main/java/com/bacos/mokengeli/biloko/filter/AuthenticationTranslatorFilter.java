@@ -1,15 +1,15 @@
 package com.bacos.mokengeli.biloko.filter;
 
+import com.bacos.mokengeli.biloko.model.AuthenticationContext;
+import com.bacos.mokengeli.biloko.service.AuthenticationContextResolver;
+import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.cloud.gateway.filter.GatewayFilterChain;
 import org.springframework.cloud.gateway.filter.GlobalFilter;
 import org.springframework.core.Ordered;
-import org.springframework.http.HttpCookie;
 import org.springframework.http.server.reactive.ServerHttpRequest;
-import org.springframework.http.server.reactive.ServerHttpResponse;
 import org.springframework.stereotype.Component;
-import org.springframework.util.StringUtils;
 import org.springframework.web.server.ServerWebExchange;
 import reactor.core.publisher.Mono;
 
@@ -26,26 +26,25 @@ import reactor.core.publisher.Mono;
  */
 @Slf4j
 @Component
+@RequiredArgsConstructor
 public class AuthenticationTranslatorFilter implements GlobalFilter, Ordered {
 
     @Value("${security.jwt.cookie.access-token:accessToken}")
     private String accessTokenCookieName;
 
-    private static final String AUTHORIZATION_HEADER = "Authorization";
-    private static final String BEARER_PREFIX = "Bearer ";
-    private static final String CLIENT_TYPE_HEADER = "X-Client-Type";
     private static final String COOKIE_HEADER = "Cookie";
 
+    private final AuthenticationContextResolver authenticationContextResolver;
+
     @Override
     public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
-        ServerHttpRequest request = exchange.getRequest();
-        String clientType = request.getHeaders().getFirst(CLIENT_TYPE_HEADER);
-        boolean isMobileClient = "mobile".equals(clientType);
+        AuthenticationContext context = authenticationContextResolver.current(exchange);
+        boolean isMobileClient = "mobile".equals(context.clientType());
 
         log.debug("AuthenticationTranslatorFilter - Mobile client: {}", isMobileClient);
 
         if (isMobileClient) {
-            return handleMobileToMicroserviceTranslation(exchange, chain);
+            return handleMobileToMicroserviceTranslation(exchange, chain, context);
         } else {
             return handleWebRequest(exchange, chain);
         }
@@ -54,11 +53,13 @@ public class AuthenticationTranslatorFilter implements GlobalFilter, Ordered {
     /**
      * Gestion des requêtes mobiles : Bearer → Cookie (aller uniquement)
      */
-    private Mono<Void> handleMobileToMicroserviceTranslation(ServerWebExchange exchange, GatewayFilterChain chain) {
+    private Mono<Void> handleMobileToMicroserviceTranslation(ServerWebExchange exchange,
+                                                             GatewayFilterChain chain,
+                                                             AuthenticationContext context) {
         ServerHttpRequest request = exchange.getRequest();
 
         // ÉTAPE 1 : Traduction Bearer Token → Cookie pour les microservices
-        ServerHttpRequest modifiedRequest = translateBearerToCookie(request);
+        ServerHttpRequest modifiedRequest = translateBearerToCookie(request, context);
 
         // ÉTAPE 2 : Continuer avec la requête modifiée
         ServerWebExchange modifiedExchange = exchange.mutate().request(modifiedRequest).build();
@@ -70,11 +71,10 @@ public class AuthenticationTranslatorFilter implements GlobalFilter, Ordered {
     /**
      * Conversion Bearer Token → Cookie pour les microservices
      */
-    private ServerHttpRequest translateBearerToCookie(ServerHttpRequest request) {
-        String authHeader = request.getHeaders().getFirst(AUTHORIZATION_HEADER);
+    private ServerHttpRequest translateBearerToCookie(ServerHttpRequest request, AuthenticationContext context) {
+        String token = context.bearerToken();
 
-        if (StringUtils.hasText(authHeader) && authHeader.startsWith(BEARER_PREFIX)) {
-            String token = authHeader.substring(BEARER_PREFIX.length());
+        if (token != null) {
 
             // Créer le cookie pour les microservices
             String cookieValue = accessTokenCookieName + "=" + token;
@@ -89,8 +89,7 @@ public class AuthenticationTranslatorFilter implements GlobalFilter, Ordered {
         }
 
         // Vérifier si le token est déjà dans un cookie (rétrocompatibilité)
-        HttpCookie existingCookie = request.getCookies().getFirst(accessTokenCookieName);
-        if (existingCookie != null) {
+        if (context.cookieToken() != null) {
             log.debug("Mobile request: Token already in cookie format");
             return request;
         }
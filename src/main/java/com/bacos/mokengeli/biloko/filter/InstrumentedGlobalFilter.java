@@ -0,0 +1,110 @@
+package com.bacos.mokengeli.biloko.filter;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.GlobalFilter;
+import org.springframework.core.Ordered;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Enveloppe d'un {@link GlobalFilter} qui mesure son coût propre :
+ * <ul>
+ *   <li>pre  : de l'entrée dans le filtre jusqu'à l'appel de la suite de la chaîne
+ *       (tout le filtre s'il court-circuite la chaîne)</li>
+ *   <li>post : de la fin de la suite de la chaîne jusqu'à la fin du filtre</li>
+ * </ul>
+ * Les timers sont créés au premier passage, le registre n'étant pas encore disponible
+ * lorsque les filtres sont enveloppés.
+ */
+public class InstrumentedGlobalFilter implements GlobalFilter, Ordered {
+
+    private final GlobalFilter delegate;
+    private final String name;
+    private final ObjectProvider<MeterRegistry> meterRegistry;
+    private volatile Timer pre;
+    private volatile Timer post;
+
+    public InstrumentedGlobalFilter(GlobalFilter delegate, String name, ObjectProvider<MeterRegistry> meterRegistry) {
+        this.delegate = delegate;
+        this.name = name;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+        long start = System.nanoTime();
+        // [0] appel de la suite de la chaîne, [1] fin de la suite de la chaîne
+        long[] marks = new long[2];
+        // Marques et mesures posées avant la propagation du signal (doOnTerminate / doOnCancel) : avec
+        // doFinally, la marque de fin de chaîne arrivait après la mesure et la phase post n'était jamais relevée
+        GatewayFilterChain timedChain = ex -> {
+            marks[0] = System.nanoTime();
+            return chain.filter(ex)
+                    .doOnTerminate(() -> marks[1] = System.nanoTime())
+                    .doOnCancel(() -> marks[1] = System.nanoTime());
+        };
+        return delegate.filter(exchange, timedChain)
+                .doOnTerminate(() -> record(start, marks))
+                .doOnCancel(() -> record(start, marks));
+    }
+
+    private void record(long start, long[] marks) {
+        long end = System.nanoTime();
+        if (marks[0] == 0) {
+            preTimer().record(end - start, TimeUnit.NANOSECONDS);
+            return;
+        }
+        preTimer().record(marks[0] - start, TimeUnit.NANOSECONDS);
+        if (marks[1] != 0) {
+            postTimer().record(end - marks[1], TimeUnit.NANOSECONDS);
+        }
+    }
+
+    @Override
+    public int getOrder() {
+        return delegate instanceof Ordered ordered ? ordered.getOrder() : Ordered.LOWEST_PRECEDENCE;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public GlobalFilter getDelegate() {
+        return delegate;
+    }
+
+    public Timer preTimer() {
+        Timer timer = pre;
+        if (timer == null) {
+            pre = timer = timer("pre");
+        }
+        return timer;
+    }
+
+    public Timer postTimer() {
+        Timer timer = post;
+        if (timer == null) {
+            post = timer = timer("post");
+        }
+        return timer;
+    }
+
+    private Timer timer(String phase) {
+        return Timer.builder("gateway.filter.latency")
+                .description("Coût propre de chaque GlobalFilter, avant et après la suite de la chaîne")
+                .tag("filter", name)
+                .tag("phase", phase)
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry.getObject());
+    }
+
+    @Override
+    public String toString() {
+        return "Instrumented[" + delegate + "]";
+    }
+}
@@ -1,27 +1,27 @@
 package com.bacos.mokengeli.biloko.filter;
 
-import com.bacos.mokengeli.biloko.model.SessionListResponse;
-import com.bacos.mokengeli.biloko.service.AuthInternalClient;
+import com.bacos.mokengeli.biloko.model.AuthenticationContext;
+import com.bacos.mokengeli.biloko.model.RequestClass;
+import com.bacos.mokengeli.biloko.model.SessionKey;
+import com.bacos.mokengeli.biloko.model.VerifiedToken;
+import com.bacos.mokengeli.biloko.service.AuthenticationContextResolver;
+import com.bacos.mokengeli.biloko.service.RejectedJtiCache;
+import com.bacos.mokengeli.biloko.service.RequestClassifier;
 import com.bacos.mokengeli.biloko.service.SessionCache;
-import io.jsonwebtoken.Claims;
-import io.jsonwebtoken.Jwts;
-import io.jsonwebtoken.security.Keys;
+import com.bacos.mokengeli.biloko.service.SessionLookupService;
+import com.bacos.mokengeli.biloko.service.SessionLookupUnavailableException;
+import com.bacos.mokengeli.biloko.service.SessionPeerSync;
 import lombok.RequiredArgsConstructor;
-import org.springframework.beans.factory.ObjectProvider;
-import org.springframework.beans.factory.annotation.Value;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.cloud.gateway.filter.GatewayFilterChain;
 import org.springframework.cloud.gateway.filter.GlobalFilter;
 import org.springframework.core.Ordered;
-import org.springframework.http.HttpCookie;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
 import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
 import org.springframework.web.server.ServerWebExchange;
 import reactor.core.publisher.Mono;
-import reactor.core.scheduler.Schedulers;
-
-import java.nio.charset.StandardCharsets;
-import java.security.Key;
-import java.util.List;
 
 /**
  * GlobalFilter exécuté sur chaque requête (hors routes publiques) pour vérifier que le JTI porté par le JWT
@@ -30,32 +30,32 @@ import java.util.List;
  * Points clés:
  * 1. Utilise la découverte de service Eureka (WebClient @LoadBalanced) → pas d'URL fixe.
  * 2. Cache Caffeine de 2minutes pour réduire la charge réseau tout en restant réactif aux révocations.
- * 3. Stratégie «no‑token⇒ pass» pour les routes publiques.
+ * 3. Stratégie «no‑token⇒ pass» pour les routes publiques (motifs compilés par {@link RequestClassifier}).
+ * 4. Jeton et claims lus dans l'{@link AuthenticationContext} résolu en amont (aucun re-parsing).
+ * 5. Latence bornée : Authentication-Service indisponible (délai, 429, 5xx) ⇒ la dernière liste connue
+ *    peut autoriser le JTI qu'elle contient ; sinon 503 immédiat, jamais 401 ni cache négatif.
  */
+@Slf4j
 @Component
 @RequiredArgsConstructor
 public class MultiSessionValidationGatewayFilter implements GlobalFilter, Ordered {
-    private final ObjectProvider<AuthInternalClient> authClientProvider;   // Lazy fetch to break circular dependency
+    private final SessionLookupService sessionLookupService;
     private final SessionCache sessionCache;
+    private final AuthenticationContextResolver authenticationContextResolver;
+    private final SessionPeerSync sessionPeerSync;
+    private final RejectedJtiCache rejectedJtiCache;
 
-    @Value("${security.jwt.secret}")
-    private String secretKey;
-
-    @Value("${security.jwt.cookie.access-token}")
-    private String jwtCookieName;
-
-    @Value("${gateway.public-paths:/public/**}")
-    private List<String> publicPaths;
-    // = nom enregistré dans Eureka
+    private final RequestClassifier requestClassifier;
 
     @Override
     public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
-        String requestPath = exchange.getRequest().getURI().getPath();
-        boolean isPublic = publicPaths.stream().anyMatch(p -> p.equals(requestPath));
-        HttpCookie jwtCookie = exchange.getRequest().getCookies().getFirst(jwtCookieName);
+        RequestClass requestClass = requestClassifier.current(exchange);
+        boolean isPublic = requestClass.publicPath();
+        AuthenticationContext context = authenticationContextResolver.current(exchange);
+        String jwtCookie = context.cookieToken();
 
         // Stratégie «no‑token ⇒ pass» sur les routes publiques
-        if (isPublic || jwtCookie == null || jwtCookie.getValue().isEmpty()) {
+        if (isPublic || jwtCookie == null) {
             return chain.filter(exchange);
         }
 
@@ -65,23 +65,16 @@ public class MultiSessionValidationGatewayFilter implements GlobalFilter, Ordere
          return exchange.getResponse().setComplete();
          }*/
 
-        // 1. Parse le JWT en local
-        Claims claims;
-        try {
-            claims = Jwts
-                    .parser()
-                    .setSigningKey(getSignKey())
-                    .build()
-                    .parseClaimsJws(jwtCookie.getValue())
-                    .getBody();
-        } catch (Exception ex) {
+        // 1. Claims déjà vérifiés lors de la résolution du contexte
+        VerifiedToken token = context.claims();
+        if (token == null) {
             exchange.getResponse().setStatusCode(HttpStatus.UNAUTHORIZED);
             return exchange.getResponse().setComplete();
         }
 
-        String employeeNumber = claims.get("employeeNumber", String.class);
-        String appType = claims.get("appType", String.class);
-        String jti = claims.get("jti", String.class); // ID explicite dans payload
+        String employeeNumber = token.employeeNumber();
+        String appType = token.appType();
+        String jti = token.jti(); // ID explicite dans payload
 
         if (employeeNumber == null || appType == null || jti == null) {
             exchange.getResponse().setStatusCode(HttpStatus.UNAUTHORIZED);
@@ -89,36 +82,80 @@ public class MultiSessionValidationGatewayFilter implements GlobalFilter, Ordere
         }
 
         // 2. Vérifie le cache
-        String cacheKey = employeeNumber + ":" + appType;
-        List<String> cachedJtis = sessionCache.get(cacheKey);
-        if (cachedJtis != null && cachedJtis.contains(jti)) {
-            return chain.filter(exchange); // hit positif → accès direct
+        SessionKey cacheKey = SessionCache.key(employeeNumber, appType);
+        GatewayFilterChain next = requestClass.logout()
+                ? evictOnLogout(chain, cacheKey)
+                : chain;
+        SessionCache.Entry cached = sessionCache.getEntry(cacheKey);
+        if (cached != null && cached.jtis().contains(jti)) {
+            if (cached.isStale()) {
+                // refresh-ahead : on sert la valeur courante, rechargement asynchrone
+                sessionLookupService.refreshInBackground(jwtCookie, employeeNumber, appType);
+            }
+            return next.filter(exchange); // hit positif → accès direct
+        }
+        // 2bis. Cache négatif : jeton déjà refusé récemment → refus local
+        HttpStatus rejection = rejectedJtiCache.rejection(jti);
+        if (rejection != null) {
+            exchange.getResponse().setStatusCode(rejection);
+            return exchange.getResponse().setComplete();
         }
-        // 3. Interroge l’Authentication‑Service (appel Feign bloquant emballé)
-        String cookieHeader = jwtCookieName + "=" + jwtCookie.getValue();
-        return Mono.fromCallable(() -> authClientProvider.getObject().list(cookieHeader, employeeNumber, appType))
-                .subscribeOn(Schedulers.boundedElastic())
-                .flatMap(resp -> {
-                    // Met à jour le cache (liste des jtis valides)
-                    sessionCache.put(cacheKey, resp.extractJtis());
-                    return validateWithMax(exchange, chain, jti, resp);
+        // 3. Interroge l’Authentication‑Service (appel réactif, misses simultanés regroupés)
+        long requestStartNanos = System.nanoTime();
+        return sessionLookupService.fetch(jwtCookie, employeeNumber, appType)
+                .flatMap(entry -> validateWithMax(exchange, next, jti, entry, requestStartNanos))
+                .onErrorResume(SessionLookupUnavailableException.class, ex -> {
+                    // Mode dégradé : la dernière liste connue autorise, mais ne refuse jamais
+                    SessionCache.Entry lastKnown = ex.lastKnown();
+                    if (lastKnown != null && lastKnown.jtis().contains(jti)) {
+                        return next.filter(exchange);
+                    }
+                    // Service indisponible et JTI inconnu de la dernière liste : on refuse sans bloquer le Gateway
+                    log.warn("⚠️ Session validation unavailable: {}", ex.getMessage());
+                    exchange.getResponse().setStatusCode(HttpStatus.SERVICE_UNAVAILABLE);
+                    return exchange.getResponse().setComplete();
+                })
+                .onErrorResume(WebClientResponseException.class, ex -> {
+                    // Jeton refusé explicitement par l'Authentication-Service ; toute autre réponse est une panne
+                    exchange.getResponse().setStatusCode(SessionLookupService.isExplicitRefusal(ex)
+                            ? HttpStatus.UNAUTHORIZED
+                            : HttpStatus.SERVICE_UNAVAILABLE);
+                    return exchange.getResponse().setComplete();
                 });
     }
 
+    /**
+     * Logout : la liste des sessions change, on évince l'entrée sur toutes les instances une fois le logout effectué.
+     */
+    private GatewayFilterChain evictOnLogout(GatewayFilterChain chain, SessionKey cacheKey) {
+        return ex -> chain.filter(ex).doOnSuccess(v -> {
+            HttpStatusCode status = ex.getResponse().getStatusCode();
+            if (status != null && status.is2xxSuccessful()) {
+                sessionPeerSync.invalidateEverywhere(cacheKey);
+            }
+        });
+    }
+
+    /**
+     * @param requestStartNanos {@link System#nanoTime()} avant la recherche ; seule une liste demandée après
+     *                          (pas un appel partagé ou un refresh-ahead déjà en cours) alimente le cache négatif
+     */
     private Mono<Void> validateWithMax(ServerWebExchange ex,
                                        GatewayFilterChain chain,
                                        String jti,
-                                       SessionListResponse resp) {
-        if (resp.getSessions().stream().anyMatch(s -> jti.equals(s.getJti()))) {
+                                       SessionCache.Entry sessions,
+                                       long requestStartNanos) {
+        if (sessions.jtis().contains(jti)) {
             return chain.filter(ex);                   // jti toujours autorisé
         }
-        // jti non trouvé → trop de sessions ?
-        if (resp.getSessions().size() >= resp.getMaxSessions()) {
-            ex.getResponse().setStatusCode(HttpStatus.TOO_MANY_REQUESTS);
-            return ex.getResponse().setComplete();    // 429 Too Many Connections
+        // jti non trouvé → trop de sessions (429 Too Many Connections), sinon jti inconnu mais quota libre → 401
+        HttpStatus status = sessions.isQuotaReached() ? HttpStatus.TOO_MANY_REQUESTS : HttpStatus.UNAUTHORIZED;
+        // Mémorisé seulement si la liste a été demandée après la requête : une liste antérieure peut ignorer
+        // une connexion toute récente
+        if (sessions.isLookedUpSince(requestStartNanos)) {
+            rejectedJtiCache.reject(jti, status);
         }
-        // Autre cas : jti inconnu mais quota libre → 401
-        ex.getResponse().setStatusCode(HttpStatus.UNAUTHORIZED);
+        ex.getResponse().setStatusCode(status);
         return ex.getResponse().setComplete();
     }
 
@@ -126,12 +163,5 @@ public class MultiSessionValidationGatewayFilter implements GlobalFilter, Ordere
     public int getOrder() {
         return -5; // avant les filtres d'authz locaux
     }
-
-    /* =============================================================
-       JWT helpers
-       ============================================================= */
-    private Key getSignKey() {
-        return Keys.hmacShaKeyFor(secretKey.getBytes(StandardCharsets.UTF_8));
-    }
 }
 
@@ -1,7 +1,10 @@
 package com.bacos.mokengeli.biloko.filter;
 
+import com.bacos.mokengeli.biloko.model.AuthenticationContext;
+import com.bacos.mokengeli.biloko.service.AuthenticationContextResolver;
+import com.bacos.mokengeli.biloko.service.RequestClassifier;
+import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.beans.factory.annotation.Value;
 import org.springframework.cloud.gateway.filter.GatewayFilterChain;
 import org.springframework.cloud.gateway.filter.GlobalFilter;
 import org.springframework.core.Ordered;
@@ -13,40 +16,35 @@ import org.springframework.util.StringUtils;
 import org.springframework.web.server.ServerWebExchange;
 import reactor.core.publisher.Mono;
 
-import java.net.URI;
-import java.net.URISyntaxException;
-import java.util.List;
-
 /**
  * Filtre spécialisé pour gérer le routage Socket.io à travers l'API Gateway
  * Socket.io nécessite un traitement spécial car il utilise à la fois HTTP polling et WebSocket
  */
 @Slf4j
 @Component
+@RequiredArgsConstructor
 public class SocketIOGatewayFilter implements GlobalFilter, Ordered {
 
-    @Value("${security.jwt.cookie.access-token:accessToken}")
-    private String accessTokenCookieName;
-
-    private static final String SOCKET_IO_PATH = "/socket.io/";
     private static final String TRANSPORT_PARAM = "transport";
     private static final String EIO_PARAM = "EIO";  // Engine.IO version
     private static final String SID_PARAM = "sid";  // Session ID Socket.io
-    private static final String TOKEN_PARAM = "token";
     private static final String UPGRADE_HEADER = "Upgrade";
     private static final String CONNECTION_HEADER = "Connection";
 
+    private final AuthenticationContextResolver authenticationContextResolver;
+    private final RequestClassifier requestClassifier;
+
     @Override
     public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
         ServerHttpRequest request = exchange.getRequest();
         String path = request.getPath().toString();
 
         // Détecter les requêtes Socket.io
-        if (!isSocketIORequest(path)) {
+        if (!requestClassifier.current(exchange).socketIo()) {
             return chain.filter(exchange);
         }
 
-        log.info("🔌 Socket.io request detected: {} {}", request.getMethod(), path);
+        log.debug("🔌 Socket.io request detected: {} {}", request.getMethod(), path);
         
         // Analyser le type de transport Socket.io
         MultiValueMap<String, String> queryParams = request.getQueryParams();
@@ -61,26 +59,17 @@ public class SocketIOGatewayFilter implements GlobalFilter, Ordered {
         boolean isPolling = "polling".equals(transport);
         
         if (isWebSocketUpgrade) {
-            log.info("🚀 Socket.io WebSocket upgrade request");
+            log.debug("🚀 Socket.io WebSocket upgrade request");
             return handleSocketIOWebSocket(exchange, chain);
         } else if (isPolling) {
-            log.info("📡 Socket.io polling request");
+            log.debug("📡 Socket.io polling request");
             return handleSocketIOPolling(exchange, chain);
         } else {
-            log.info("📦 Socket.io initial handshake request");
+            log.debug("📦 Socket.io initial handshake request");
             return handleSocketIOHandshake(exchange, chain);
         }
     }
 
-    /**
-     * Détecte si c'est une requête Socket.io
-     */
-    private boolean isSocketIORequest(String path) {
-        return path.contains(SOCKET_IO_PATH) || 
-               path.contains("/api/order/socket.io/") ||
-               path.contains("/api/order/socketio/");
-    }
-
     /**
      * Vérifie si c'est un upgrade WebSocket
      */
@@ -99,7 +88,7 @@ public class SocketIOGatewayFilter implements GlobalFilter, Ordered {
         ServerHttpRequest request = exchange.getRequest();
         
         // S'assurer que le token est présent pour l'authentification
-        String token = extractToken(request);
+        String token = authenticationContextResolver.current(exchange).token();
         
         if (!StringUtils.hasText(token)) {
             log.warn("⚠️ No token found for Socket.io WebSocket upgrade");
@@ -119,19 +108,14 @@ public class SocketIOGatewayFilter implements GlobalFilter, Ordered {
      * Gère les requêtes de polling Socket.io
      */
     private Mono<Void> handleSocketIOPolling(ServerWebExchange exchange, GatewayFilterChain chain) {
-        ServerHttpRequest request = exchange.getRequest();
-        
         // Pour le polling, s'assurer que les cookies/headers d'auth sont présents
-        String token = extractToken(request);
+        AuthenticationContext context = authenticationContextResolver.current(exchange);
+        String token = context.token();
         
         if (StringUtils.hasText(token)) {
             // Si on a un token dans les query params, l'ajouter aux headers
-            if (request.getQueryParams().containsKey(TOKEN_PARAM)) {
-                ServerHttpRequest modifiedRequest = request.mutate()
-                    .header("Authorization", "Bearer " + token)
-                    .build();
-                
-                return chain.filter(exchange.mutate().request(modifiedRequest).build());
+            if (context.source() == AuthenticationContext.TokenSource.QUERY) {
+                return withBearer(exchange, chain, context, token);
             }
         }
         
@@ -148,16 +132,13 @@ public class SocketIOGatewayFilter implements GlobalFilter, Ordered {
                  request.getMethod(), request.getPath());
         
         // Pour le handshake, s'assurer que l'authentification est disponible
-        String token = extractToken(request);
+        AuthenticationContext context = authenticationContextResolver.current(exchange);
+        String token = context.token();
         
         if (StringUtils.hasText(token)) {
             // Ajouter le token aux headers si pas déjà présent
             if (!request.getHeaders().containsKey("Authorization")) {
-                ServerHttpRequest modifiedRequest = request.mutate()
-                    .header("Authorization", "Bearer " + token)
-                    .build();
-                
-                return chain.filter(exchange.mutate().request(modifiedRequest).build());
+                return withBearer(exchange, chain, context, token);
             }
         }
         
@@ -165,36 +146,19 @@ public class SocketIOGatewayFilter implements GlobalFilter, Ordered {
     }
 
     /**
-     * Extrait le token JWT de différentes sources
+     * Ajoute le header Authorization et met à jour le contexte partagé
+     * pour que les filtres suivants voient le Bearer ajouté
      */
-    private String extractToken(ServerHttpRequest request) {
-        // 1. Query parameter (priorité pour Socket.io)
-        String tokenFromQuery = request.getQueryParams().getFirst(TOKEN_PARAM);
-        if (StringUtils.hasText(tokenFromQuery)) {
-            return tokenFromQuery;
-        }
-        
-        // 2. Authorization header
-        String authHeader = request.getHeaders().getFirst("Authorization");
-        if (StringUtils.hasText(authHeader) && authHeader.startsWith("Bearer ")) {
-            return authHeader.substring(7);
-        }
-        
-        // 3. Cookie
-        List<String> cookieHeaders = request.getHeaders().get("Cookie");
-        if (cookieHeaders != null) {
-            for (String cookieHeader : cookieHeaders) {
-                String[] cookies = cookieHeader.split(";");
-                for (String cookie : cookies) {
-                    cookie = cookie.trim();
-                    if (cookie.startsWith(accessTokenCookieName + "=")) {
-                        return cookie.substring(accessTokenCookieName.length() + 1);
-                    }
-                }
-            }
-        }
-        
-        return null;
+    private Mono<Void> withBearer(ServerWebExchange exchange,
+                                  GatewayFilterChain chain,
+                                  AuthenticationContext context,
+                                  String token) {
+        ServerHttpRequest modifiedRequest = exchange.getRequest().mutate()
+            .header("Authorization", "Bearer " + token)
+            .build();
+        exchange.getAttributes().put(AuthenticationContext.ATTRIBUTE, context.withBearerToken(token));
+
+        return chain.filter(exchange.mutate().request(modifiedRequest).build());
     }
 
     /**
@@ -0,0 +1,83 @@
+package com.bacos.mokengeli.biloko.filter;
+
+import com.bacos.mokengeli.biloko.service.InstanceLoadTracker;
+import com.bacos.mokengeli.biloko.service.UpstreamConnectionPools;
+import com.bacos.mokengeli.biloko.service.UpstreamPrewarmer;
+import io.micrometer.core.instrument.Timer;
+import io.netty.channel.ChannelOption;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.cloud.gateway.config.HttpClientProperties;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.NettyRoutingFilter;
+import org.springframework.cloud.gateway.filter.headers.HttpHeadersFilter;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+import reactor.netty.http.client.HttpClient;
+
+import java.net.URI;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.springframework.cloud.gateway.support.RouteMetadataUtils.CONNECT_TIMEOUT_ATTR;
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.GATEWAY_REQUEST_URL_ATTR;
+
+/**
+ * Remplace le NettyRoutingFilter du Gateway ({@code spring.cloud.gateway.global-filter.netty-routing.enabled=false})
+ * pour envoyer chaque route HTTP sur le pool de connexions de son service ({@link UpstreamConnectionPools}).
+ * Les routes sans pool dédié gardent le HttpClient partagé.
+ * Les premières requêtes vers une nouvelle instance sont chronométrées pour {@link UpstreamPrewarmer}.
+ * Une requête annulée par le client est retirée des requêtes en cours de {@link InstanceLoadTracker}
+ * (le load balancer du Gateway ne signale pas les annulations).
+ */
+@Component
+public class UpstreamRoutingFilter extends NettyRoutingFilter {
+
+    private final UpstreamConnectionPools upstreamConnectionPools;
+    private final UpstreamPrewarmer upstreamPrewarmer;
+    private final InstanceLoadTracker instanceLoadTracker;
+
+    public UpstreamRoutingFilter(HttpClient httpClient,
+                                 ObjectProvider<List<HttpHeadersFilter>> headersFiltersProvider,
+                                 HttpClientProperties properties,
+                                 UpstreamConnectionPools upstreamConnectionPools,
+                                 UpstreamPrewarmer upstreamPrewarmer,
+                                 InstanceLoadTracker instanceLoadTracker) {
+        super(httpClient, headersFiltersProvider, properties);
+        this.upstreamConnectionPools = upstreamConnectionPools;
+        this.upstreamPrewarmer = upstreamPrewarmer;
+        this.instanceLoadTracker = instanceLoadTracker;
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+        URI requestUrl = exchange.getAttribute(GATEWAY_REQUEST_URL_ATTR);
+        Timer coldTimer = requestUrl == null ? null : upstreamPrewarmer.coldRequestTimer(requestUrl);
+        Mono<Void> routed = super.filter(exchange, chain)
+                .doOnCancel(() -> instanceLoadTracker.cancel(exchange.getAttribute(InstanceLoadTracker.IN_FLIGHT_ATTR)));
+        if (coldTimer == null) {
+            return routed;
+        }
+        // Premières requêtes vers une nouvelle instance : temps jusqu'aux en-têtes de réponse
+        long start = System.nanoTime();
+        return routed.doFinally(signal -> coldTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS));
+    }
+
+    @Override
+    protected HttpClient getHttpClient(Route route, ServerWebExchange exchange) {
+        HttpClient client = upstreamConnectionPools.clientFor(route);
+        if (client == null) {
+            return super.getHttpClient(route, exchange);
+        }
+        // Même prise en compte du connect-timeout des métadonnées de route que le filtre d'origine
+        Object connectTimeout = route.getMetadata().get(CONNECT_TIMEOUT_ATTR);
+        if (connectTimeout != null) {
+            int millis = connectTimeout instanceof Number number
+                    ? number.intValue()
+                    : Integer.parseInt(connectTimeout.toString());
+            return client.option(ChannelOption.CONNECT_TIMEOUT_MILLIS, millis);
+        }
+        return client;
+    }
+}
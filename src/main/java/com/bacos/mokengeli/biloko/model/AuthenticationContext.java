@@ -0,0 +1,47 @@
+package com.bacos.mokengeli.biloko.model;
+
+/**
+ * Contexte d'authentification résolu une seule fois par échange et stocké
+ * dans l'attribut {@link #ATTRIBUTE}. Les filtres en aval le lisent au lieu de
+ * re-parcourir headers, cookies et query params.
+ *
+ * @param source       origine du jeton principal (priorité query → Bearer → cookie)
+ * @param token        jeton principal, null si aucun
+ * @param bearerToken  jeton du header Authorization (présent dès que le header commence par "Bearer ")
+ * @param cookieToken  jeton du cookie d'accès, celui contrôlé contre les sessions actives
+ * @param clientType   valeur brute du header X-Client-Type
+ * @param clientProfile type de client (X-Client-Type, User-Agent, Origin)
+ * @param claims       claims vérifiés du jeton cookie, null si absent ou invalide
+ */
+public record AuthenticationContext(TokenSource source,
+                                    String token,
+                                    String bearerToken,
+                                    String cookieToken,
+                                    String clientType,
+                                    ClientProfile clientProfile,
+                                    VerifiedToken claims) {
+
+    public static final String ATTRIBUTE = AuthenticationContext.class.getName();
+
+    public enum TokenSource {
+        QUERY, BEARER, COOKIE, NONE
+    }
+
+    public boolean mobileClient() {
+        return clientProfile.isMobile();
+    }
+
+    /**
+     * Le jeton cookie est présent mais sa signature ou sa date d'expiration est invalide.
+     */
+    public boolean hasInvalidCookieToken() {
+        return cookieToken != null && claims == null;
+    }
+
+    /**
+     * Copie du contexte après ajout d'un header Authorization par un filtre.
+     */
+    public AuthenticationContext withBearerToken(String bearer) {
+        return new AuthenticationContext(source, token, bearer, cookieToken, clientType, clientProfile, claims);
+    }
+}
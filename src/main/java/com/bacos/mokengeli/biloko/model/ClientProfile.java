@@ -0,0 +1,22 @@
+package com.bacos.mokengeli.biloko.model;
+
+/**
+ * Type de client déduit du User-Agent, de l'Origin et du header X-Client-Type.
+ */
+public enum ClientProfile {
+    WEB(false),
+    EXPO(true),
+    REACT_NATIVE(true),
+    FLUTTER(true),
+    NATIVE_APP(true);
+
+    private final boolean mobile;
+
+    ClientProfile(boolean mobile) {
+        this.mobile = mobile;
+    }
+
+    public boolean isMobile() {
+        return mobile;
+    }
+}
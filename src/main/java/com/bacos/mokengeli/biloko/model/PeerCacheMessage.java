@@ -0,0 +1,32 @@
+package com.bacos.mokengeli.biloko.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Message échangé entre instances du Gateway pour synchroniser leur SessionCache.
+ * <ul>
+ *   <li>FILL       : liste de JTI fraîchement obtenue de l'Authentication-Service</li>
+ *   <li>INVALIDATE : entrée à retirer (logout, révocation)</li>
+ * </ul>
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PeerCacheMessage {
+
+    public enum Type {
+        FILL, INVALIDATE
+    }
+
+    private Type type;
+    private String key;
+    private List<String> jtis;
+    private Integer maxSessions;
+    private String origin;
+    // Plus proche expiration des sessions (epoch ms), null si inconnue
+    private Long sessionsExpireAt;
+}
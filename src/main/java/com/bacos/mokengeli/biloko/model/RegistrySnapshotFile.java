@@ -0,0 +1,30 @@
+package com.bacos.mokengeli.biloko.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Contenu JSON du snapshot local du registre de découverte : instances connues par service.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class RegistrySnapshotFile {
+    private long createdAt;
+    private Map<String, List<Instance>> services;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Instance {
+        private String instanceId;
+        private String host;
+        private int port;
+        private boolean secure;
+        private Map<String, String> metadata;
+    }
+}
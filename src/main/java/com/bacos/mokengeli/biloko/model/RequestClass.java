@@ -0,0 +1,20 @@
+package com.bacos.mokengeli.biloko.model;
+
+/**
+ * Classification d'une requête, calculée une seule fois par échange et stockée
+ * dans l'attribut {@link #ATTRIBUTE}.
+ *
+ * @param publicPath   route publique (gateway.public-paths) : pas de contrôle de session
+ * @param authEndpoint login / refresh (gateway.auth-endpoints) : réponse porteuse d'un jeton
+ * @param logout       logout (gateway.peer-sync.logout-paths) : éviction du cache de sessions
+ * @param socketIo     requête Socket.io (gateway.socket-io-paths)
+ * @param routeId      route du Gateway dont le prédicat Path correspond, null si aucune
+ */
+public record RequestClass(boolean publicPath,
+                           boolean authEndpoint,
+                           boolean logout,
+                           boolean socketIo,
+                           String routeId) {
+
+    public static final String ATTRIBUTE = RequestClass.class.getName();
+}
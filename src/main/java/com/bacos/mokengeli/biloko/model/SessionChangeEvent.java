@@ -0,0 +1,31 @@
+package com.bacos.mokengeli.biloko.model;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Événement du flux de sessions publié par l'Authentication-Service (SSE).
+ * <ul>
+ *   <li>REVOKED  : jti révoqué (ou toutes les sessions de la clé si jti absent)</li>
+ *   <li>SESSIONS : nouvelle liste complète des sessions de la clé</li>
+ *   <li>RESYNC   : clés modifiées pendant une déconnexion, à invalider</li>
+ *   <li>FLUSH    : historique insuffisant côté serveur, tout invalider</li>
+ * </ul>
+ */
+@Data
+@NoArgsConstructor
+public class SessionChangeEvent {
+
+    public enum Type {
+        REVOKED, SESSIONS, RESYNC, FLUSH
+    }
+
+    private Type type;
+    private String employeeNumber;
+    private String appType;
+    private String jti;
+    private List<SessionDto> sessions;
+    private List<String> keys;
+}
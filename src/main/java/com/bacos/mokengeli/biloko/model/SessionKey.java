@@ -0,0 +1,25 @@
+package com.bacos.mokengeli.biloko.model;
+
+/**
+ * Clé du cache de sessions : couple employeeNumber / appType.
+ * Évite la concaténation de chaînes à chaque requête ; la forme texte
+ * {@code employeeNumber:appType} n'est utilisée que sur le réseau.
+ */
+public record SessionKey(String employeeNumber, String appType) {
+
+    /**
+     * Forme texte reçue du réseau (pairs, flux de révocation) ; null si elle est mal formée.
+     */
+    public static SessionKey parse(String value) {
+        int separator = value == null ? -1 : value.lastIndexOf(':');
+        if (separator <= 0 || separator == value.length() - 1) {
+            return null;
+        }
+        return new SessionKey(value.substring(0, separator), value.substring(separator + 1));
+    }
+
+    @Override
+    public String toString() {
+        return employeeNumber + ":" + appType;
+    }
+}
@@ -3,7 +3,10 @@ package com.bacos.mokengeli.biloko.model;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
+import java.time.Instant;
+import java.time.OffsetDateTime;
 import java.util.List;
+import java.util.Objects;
 import java.util.stream.Collectors;
 
 /**
@@ -17,9 +20,31 @@ public class SessionListResponse {
     private Integer maxSessions;
     private List<SessionDto> sessions;
 
+    /**
+     * JTIs des sessions encore valides. Une session déjà expirée (pas encore purgée côté
+     * Authentication-Service) est ignorée : le Gateway ne doit pas l'accepter jusqu'à l'expiration de l'entrée.
+     */
     public List<String> extractJtis() {
+        OffsetDateTime now = OffsetDateTime.now();
         return sessions == null ? List.of() : sessions.stream()
+                .filter(session -> session.getExpiresAt() == null || session.getExpiresAt().isAfter(now))
                 .map(SessionDto::getJti)
                 .collect(Collectors.toList());
     }
+
+    /**
+     * Plus proche expiration parmi les sessions encore valides, null si aucune n'en porte.
+     * Une session déjà expirée (pas encore purgée côté Authentication-Service) est ignorée :
+     * elle ramènerait la durée de vie de l'entrée à zéro et chaque requête repartirait en amont.
+     */
+    public Instant earliestExpiry() {
+        OffsetDateTime now = OffsetDateTime.now();
+        return sessions == null ? null : sessions.stream()
+                .map(SessionDto::getExpiresAt)
+                .filter(Objects::nonNull)
+                .filter(expiresAt -> expiresAt.isAfter(now))
+                .min(OffsetDateTime::compareTo)
+                .map(OffsetDateTime::toInstant)
+                .orElse(null);
+    }
 }
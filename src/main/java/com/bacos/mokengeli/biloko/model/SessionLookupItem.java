@@ -0,0 +1,18 @@
+package com.bacos.mokengeli.biloko.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Élément d'une recherche groupée de sessions : l'Authentication-Service contrôle
+ * chaque jeton individuellement avant de renvoyer la liste correspondante.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SessionLookupItem {
+    private String employeeNumber;
+    private String appType;
+    private String accessToken;
+}
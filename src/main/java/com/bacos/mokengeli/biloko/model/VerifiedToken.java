@@ -0,0 +1,13 @@
+package com.bacos.mokengeli.biloko.model;
+
+import java.time.Instant;
+
+/**
+ * Claims utiles d'un JWT dont la signature a déjà été vérifiée.
+ * Les champs peuvent être null si le jeton ne les porte pas.
+ */
+public record VerifiedToken(String employeeNumber,
+                            String appType,
+                            String jti,
+                            Instant expiresAt) {
+}
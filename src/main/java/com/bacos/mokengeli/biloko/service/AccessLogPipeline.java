@@ -0,0 +1,300 @@
+package com.bacos.mokengeli.biloko.service;
+
+import com.bacos.mokengeli.biloko.config.AccessLogProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Journal d'accès asynchrone : les threads event-loop écrivent des enregistrements à format fixe dans un
+ * ring buffer sans verrou (multi-producteurs, un consommateur), vidé par un thread d'écriture dédié.
+ * <p>
+ * L'échantillonnage et le plafond par seconde sont appliqués par catégorie avant toute copie ;
+ * si le buffer est plein, l'enregistrement est abandonné plutôt que de bloquer la requête.
+ */
+@Slf4j
+@Component
+public class AccessLogPipeline {
+
+    private static final Logger ACCESS_LOG = LoggerFactory.getLogger("ACCESS_LOG");
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+    private static final int MIN_TOGGLE_SECRET_LENGTH = 32;
+
+    /**
+     * Case du ring buffer, réutilisée d'un tour à l'autre.
+     */
+    private static final class Slot {
+        long timestamp;
+        String method;
+        String path;
+        int status;
+        long durationMicros;
+        String category;
+        String client;
+        String route;
+        String origin;
+        String allowOrigin;
+        String headers;
+
+        void clear() {
+            method = path = category = client = route = origin = allowOrigin = headers = null;
+        }
+    }
+
+    /**
+     * Échantillonnage et plafond par seconde d'une catégorie.
+     */
+    private final class Gate {
+        private final double sampleRate;
+        private final int maxPerSecond;
+        private final AtomicLong window = new AtomicLong();
+        private final AtomicInteger count = new AtomicInteger();
+
+        Gate(AccessLogProperties.Category category) {
+            this.sampleRate = category.getSampleRate();
+            this.maxPerSecond = category.getMaxPerSecond();
+        }
+
+        boolean tryAcquire() {
+            if (sampleRate < 1.0 && ThreadLocalRandom.current().nextDouble() >= sampleRate) {
+                sampledOut.increment();
+                return false;
+            }
+            if (maxPerSecond > 0) {
+                long second = System.currentTimeMillis() / 1000;
+                long current = window.get();
+                // Un seul thread remet le compteur à zéro au changement de seconde
+                if (current != second && window.compareAndSet(current, second)) {
+                    count.set(0);
+                }
+                if (count.incrementAndGet() > maxPerSecond) {
+                    rateLimited.increment();
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    private final AccessLogProperties properties;
+    private final Slot[] slots;
+    private final AtomicLongArray published;
+    private final int mask;
+    private final AtomicLong tail = new AtomicLong();
+    private volatile long head;
+
+    private final Map<String, Gate> gates = new ConcurrentHashMap<>();
+    private final byte[] toggleSecret;
+    private volatile boolean headerDump;
+    private volatile boolean running;
+    private Thread writer;
+
+    private final Counter written;
+    private final Counter sampledOut;
+    private final Counter rateLimited;
+    private final Counter dropped;
+
+    public AccessLogPipeline(AccessLogProperties properties, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        int capacity = Integer.highestOneBit(Math.max(2, properties.getBufferSize() - 1)) << 1;
+        this.slots = new Slot[capacity];
+        for (int i = 0; i < capacity; i++) {
+            slots[i] = new Slot();
+        }
+        this.published = new AtomicLongArray(capacity);
+        this.mask = capacity - 1;
+        this.headerDump = properties.isHeaderDump();
+        String secret = properties.getToggleSecret();
+        if (secret != null && !secret.isEmpty() && secret.length() < MIN_TOGGLE_SECRET_LENGTH) {
+            throw new IllegalStateException("gateway.access-log.toggle-secret must be at least "
+                    + MIN_TOGGLE_SECRET_LENGTH + " characters");
+        }
+        this.toggleSecret = secret == null ? new byte[0] : secret.getBytes(StandardCharsets.UTF_8);
+
+        this.written = counter(meterRegistry, "written");
+        this.sampledOut = counter(meterRegistry, "sampled-out");
+        this.rateLimited = counter(meterRegistry, "rate-limited");
+        this.dropped = counter(meterRegistry, "dropped");
+        Gauge.builder("gateway.access-log.pending", this, AccessLogPipeline::pending)
+                .description("Enregistrements en attente d'écriture")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        running = true;
+        writer = new Thread(this::drain, "access-log-writer");
+        writer.setDaemon(true);
+        writer.start();
+        log.info("📝 Access log pipeline started (buffer {} records)", slots.length);
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        if (writer != null) {
+            LockSupport.unpark(writer);
+            writer.join(TimeUnit.SECONDS.toMillis(2));
+        }
+    }
+
+    public boolean isEnabled() {
+        return running;
+    }
+
+    public boolean isHeaderDump() {
+        return headerDump;
+    }
+
+    /**
+     * Bascule à chaud du dump des headers ; refusée si {@code toggle-secret} n'est pas configuré
+     * ou si le secret présenté ne correspond pas.
+     *
+     * @return false si la bascule a été refusée
+     */
+    public boolean setHeaderDump(boolean headerDump, String presentedSecret) {
+        if (toggleSecret.length == 0 || presentedSecret == null
+                || !MessageDigest.isEqual(toggleSecret, presentedSecret.getBytes(StandardCharsets.UTF_8))) {
+            log.warn("⛔ Access log header dump toggle rejected");
+            return false;
+        }
+        log.info("📝 Access log header dump {}", headerDump ? "enabled" : "disabled");
+        this.headerDump = headerDump;
+        return true;
+    }
+
+    /**
+     * Échantillonnage et plafond de la catégorie ; à appeler avant de construire l'enregistrement.
+     */
+    public boolean accept(String category) {
+        return gates.computeIfAbsent(category, c ->
+                new Gate(properties.getCategories().getOrDefault(c, properties.getDefaults()))).tryAcquire();
+    }
+
+    /**
+     * Dépose un enregistrement dans le ring buffer ; abandonné (compté) si le buffer est plein.
+     */
+    public void publish(long timestamp, String method, String path, int status, long durationMicros,
+                        String category, String client, String route,
+                        String origin, String allowOrigin, String headers) {
+        long sequence;
+        do {
+            sequence = tail.get();
+            if (sequence - head >= slots.length) {
+                dropped.increment();
+                return;
+            }
+        } while (!tail.compareAndSet(sequence, sequence + 1));
+
+        int index = (int) (sequence & mask);
+        Slot slot = slots[index];
+        slot.timestamp = timestamp;
+        slot.method = method;
+        slot.path = path;
+        slot.status = status;
+        slot.durationMicros = durationMicros;
+        slot.category = category;
+        slot.client = client;
+        slot.route = route;
+        slot.origin = origin;
+        slot.allowOrigin = allowOrigin;
+        slot.headers = headers;
+        // Publication : le consommateur attend exactement sequence + 1 pour cette case
+        published.set(index, sequence + 1);
+    }
+
+    public long pending() {
+        return tail.get() - head;
+    }
+
+    public Map<String, Object> status() {
+        return Map.of(
+                "enabled", running,
+                "headerDump", headerDump,
+                "bufferSize", slots.length,
+                "pending", pending(),
+                "written", (long) written.count(),
+                "sampledOut", (long) sampledOut.count(),
+                "rateLimited", (long) rateLimited.count(),
+                "dropped", (long) dropped.count());
+    }
+
+    private void drain() {
+        while (true) {
+            long sequence = head;
+            int index = (int) (sequence & mask);
+            if (published.get(index) != sequence + 1) {
+                if (!running) {
+                    return;
+                }
+                LockSupport.parkNanos(IDLE_PARK_NANOS);
+                continue;
+            }
+            Slot slot = slots[index];
+            try {
+                write(slot);
+            } catch (RuntimeException e) {
+                log.warn("⚠️ Access log write failed: {}", e.getMessage());
+            }
+            slot.clear();
+            head = sequence + 1;
+        }
+    }
+
+    private void write(Slot slot) {
+        written.increment();
+        String cors = corsCheck(slot.origin, slot.allowOrigin);
+        if (slot.headers == null) {
+            ACCESS_LOG.info("ts={} method={} path={} status={} durationUs={} category={} client={} route={} origin={}{}",
+                    slot.timestamp, slot.method, slot.path, slot.status, slot.durationMicros,
+                    slot.category, slot.client, slot.route, slot.origin, cors);
+        } else {
+            ACCESS_LOG.info("ts={} method={} path={} status={} durationUs={} category={} client={} route={} origin={}{} headers={}",
+                    slot.timestamp, slot.method, slot.path, slot.status, slot.durationMicros,
+                    slot.category, slot.client, slot.route, slot.origin, cors, slot.headers);
+        }
+    }
+
+    /**
+     * Contrôle CORS repris de l'ancien filtre de debug, fait hors du chemin de la requête.
+     */
+    private static String corsCheck(String origin, String allowOrigin) {
+        if (origin == null) {
+            return "";
+        }
+        if (allowOrigin == null) {
+            return " cors=missing-allow-origin";
+        }
+        if (!allowOrigin.equals(origin) && !"*".equals(allowOrigin)) {
+            return " cors=origin-mismatch allowOrigin=" + allowOrigin;
+        }
+        return "";
+    }
+
+    private static Counter counter(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("gateway.access-log.records")
+                .description("Enregistrements du journal d'accès, par issue")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+}
@@ -1,16 +1,72 @@
 package com.bacos.mokengeli.biloko.service;
 
 import com.bacos.mokengeli.biloko.model.SessionListResponse;
-import org.springframework.cloud.openfeign.FeignClient;
-import org.springframework.web.bind.annotation.GetMapping;
-import org.springframework.web.bind.annotation.RequestHeader;
-import org.springframework.web.bind.annotation.RequestParam;
-
-@FeignClient(name = "${authentication.service-id}")
-public interface AuthInternalClient {
-
-    @GetMapping("/api/auth/internal/jti")
-    SessionListResponse list(@RequestHeader("Cookie") String cookieHeader,
-                             @RequestParam("employeeNumber") String employeeNumber,
-                             @RequestParam("appType") String appType);
+import com.bacos.mokengeli.biloko.model.SessionLookupItem;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+/**
+ * Client réactif des endpoints internes de l'Authentication-Service.
+ * Résolu via Eureka (load balancer) et exécuté sur l'event loop Netty, sans thread bloqué.
+ */
+@Component
+public class AuthInternalClient {
+
+    private static final String SESSIONS_URI =
+            "http://{serviceId}/api/auth/internal/jti?employeeNumber={employeeNumber}&appType={appType}";
+    private static final String BATCH_URI = "http://{serviceId}/api/auth/internal/jti/batch";
+
+    private final WebClient webClient;
+    private final String serviceId;
+    private final String accessTokenCookieName;
+
+    public AuthInternalClient(@Qualifier("authInternalWebClient") WebClient webClient,
+                              @Value("${authentication.service-id}") String serviceId,
+                              @Value("${security.jwt.cookie.access-token:accessToken}") String accessTokenCookieName) {
+        this.webClient = webClient;
+        this.serviceId = serviceId;
+        this.accessTokenCookieName = accessTokenCookieName;
+    }
+
+    public Mono<SessionListResponse> list(String accessToken,
+                                          String employeeNumber,
+                                          String appType) {
+        return list(accessToken, employeeNumber, appType, null);
+    }
+
+    /**
+     * Requête d'un appel doublé (hedging) : le load balancer évite les instances déjà choisies par le groupe.
+     */
+    public Mono<SessionListResponse> list(String accessToken,
+                                          String employeeNumber,
+                                          String appType,
+                                          HedgedRequestTracker.Group hedgeGroup) {
+        WebClient.RequestHeadersSpec<?> request = webClient.get()
+                .uri(SESSIONS_URI, serviceId, employeeNumber, appType)
+                .header(HttpHeaders.COOKIE, accessTokenCookieName + "=" + accessToken);
+        if (hedgeGroup != null) {
+            request = request.attribute(HedgedRequestTracker.GROUP_ATTR, hedgeGroup);
+        }
+        return request.retrieve()
+                .bodyToMono(SessionListResponse.class);
+    }
+
+    /**
+     * Recherche groupée : une réponse par couple employeeNumber/appType reconnu,
+     * dans un ordre quelconque.
+     */
+    public Flux<SessionListResponse> listBatch(List<SessionLookupItem> items) {
+        return webClient.post()
+                .uri(BATCH_URI, serviceId)
+                .bodyValue(items)
+                .retrieve()
+                .bodyToFlux(SessionListResponse.class);
+    }
 }
@@ -0,0 +1,97 @@
+package com.bacos.mokengeli.biloko.service;
+
+import com.bacos.mokengeli.biloko.model.AuthenticationContext;
+import com.bacos.mokengeli.biloko.model.AuthenticationContext.TokenSource;
+import com.bacos.mokengeli.biloko.model.ClientProfile;
+import com.bacos.mokengeli.biloko.model.VerifiedToken;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpCookie;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+import org.springframework.web.server.ServerWebExchange;
+
+/**
+ * Résout le {@link AuthenticationContext} d'une requête : source du jeton,
+ * type de client et claims décodés, en un seul passage sur la requête.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class AuthenticationContextResolver {
+
+    private static final String TOKEN_PARAM = "token";
+    private static final String BEARER_PREFIX = "Bearer ";
+    private static final String CLIENT_TYPE_HEADER = "X-Client-Type";
+
+    private final JwtTokenVerifier jwtTokenVerifier;
+    private final ClientProfileResolver clientProfileResolver;
+
+    @Value("${security.jwt.cookie.access-token:accessToken}")
+    private String accessTokenCookieName;
+
+    /**
+     * Contexte de l'échange, résolu et mémorisé au premier appel.
+     */
+    public AuthenticationContext current(ServerWebExchange exchange) {
+        AuthenticationContext context = exchange.getAttribute(AuthenticationContext.ATTRIBUTE);
+        if (context == null) {
+            context = resolve(exchange.getRequest());
+            exchange.getAttributes().put(AuthenticationContext.ATTRIBUTE, context);
+        }
+        return context;
+    }
+
+    public AuthenticationContext resolve(ServerHttpRequest request) {
+        HttpHeaders headers = request.getHeaders();
+
+        String queryToken = request.getQueryParams().getFirst(TOKEN_PARAM);
+
+        String authHeader = headers.getFirst(HttpHeaders.AUTHORIZATION);
+        String bearerToken = StringUtils.hasText(authHeader) && authHeader.startsWith(BEARER_PREFIX)
+                ? authHeader.substring(BEARER_PREFIX.length())
+                : null;
+
+        HttpCookie cookie = request.getCookies().getFirst(accessTokenCookieName);
+        String cookieToken = cookie != null && StringUtils.hasText(cookie.getValue()) ? cookie.getValue() : null;
+
+        // Priorité : query (Socket.io) → Bearer (mobile) → cookie (web)
+        TokenSource source;
+        String token;
+        if (StringUtils.hasText(queryToken)) {
+            source = TokenSource.QUERY;
+            token = queryToken;
+        } else if (StringUtils.hasText(bearerToken)) {
+            source = TokenSource.BEARER;
+            token = bearerToken;
+        } else if (cookieToken != null) {
+            source = TokenSource.COOKIE;
+            token = cookieToken;
+        } else {
+            source = TokenSource.NONE;
+            token = null;
+        }
+
+        String clientType = headers.getFirst(CLIENT_TYPE_HEADER);
+        ClientProfile clientProfile = clientProfileResolver.resolve(clientType,
+                headers.getFirst(HttpHeaders.USER_AGENT), headers.getOrigin());
+
+        return new AuthenticationContext(source, token, bearerToken, cookieToken,
+                clientType, clientProfile, verifyQuietly(cookieToken));
+    }
+
+    private VerifiedToken verifyQuietly(String token) {
+        if (token == null) {
+            return null;
+        }
+        try {
+            return jwtTokenVerifier.verify(token);
+        } catch (Exception ex) {
+            log.debug("Invalid access token cookie: {}", ex.getMessage());
+            return null;
+        }
+    }
+}
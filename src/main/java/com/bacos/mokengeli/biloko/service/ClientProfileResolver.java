@@ -0,0 +1,75 @@
+package com.bacos.mokengeli.biloko.service;
+
+import com.bacos.mokengeli.biloko.model.ClientProfile;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Locale;
+import java.util.function.Function;
+
+/**
+ * Règles uniques de détection du type de client (web / Expo / React Native / Flutter / application native).
+ * <p>
+ * La classification d'un User-Agent est mémorisée dans un petit cache borné indexé par la valeur brute
+ * du header : la flotte n'expose que quelques centaines d'User-Agents distincts, un appel se résume
+ * donc à un lookup (plus les compteurs de statistiques exposés comme pour le cache des JWT),
+ * sans {@code toLowerCase()} ni copie du header.
+ */
+@Component
+public class ClientProfileResolver {
+
+    private static final String MOBILE_CLIENT_TYPE = "mobile";
+
+    private final Cache<String, ClientProfile> byUserAgent;
+
+    // Créée une fois : this::classify au point d'appel capture this et alloue à chaque appel
+    private final Function<String, ClientProfile> classifier = this::classify;
+
+    public ClientProfileResolver(@Value("${gateway.client-profile.cache-size:1024}") long cacheSize,
+                                 MeterRegistry meterRegistry) {
+        this.byUserAgent = Caffeine.newBuilder()
+                .maximumSize(cacheSize)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, byUserAgent, "gateway.client-profiles");
+    }
+
+    /**
+     * @param clientType valeur du header X-Client-Type ("mobile" force un profil mobile)
+     * @param userAgent  header User-Agent brut
+     * @param origin     header Origin (exp:// et exps:// désignent Expo)
+     */
+    public ClientProfile resolve(String clientType, String userAgent, String origin) {
+        ClientProfile profile = userAgent == null ? ClientProfile.WEB : byUserAgent.get(userAgent, classifier);
+        if (profile == ClientProfile.WEB && origin != null
+                && (origin.startsWith("exp://") || origin.startsWith("exps://"))) {
+            profile = ClientProfile.EXPO;
+        }
+        // Override explicite : l'application déclare être un client mobile
+        if (!profile.isMobile() && MOBILE_CLIENT_TYPE.equals(clientType)) {
+            profile = ClientProfile.NATIVE_APP;
+        }
+        return profile;
+    }
+
+    private ClientProfile classify(String userAgent) {
+        String ua = userAgent.toLowerCase(Locale.ROOT);
+        if (ua.contains("expo")) {
+            return ClientProfile.EXPO;
+        }
+        if (ua.contains("react native") || ua.contains("okhttp")) {
+            return ClientProfile.REACT_NATIVE;
+        }
+        if (ua.contains("flutter") || ua.contains("dart")) {
+            return ClientProfile.FLUTTER;
+        }
+        if (ua.contains("mokengelibiloko")) {
+            return ClientProfile.NATIVE_APP;
+        }
+        return ClientProfile.WEB;
+    }
+}
@@ -0,0 +1,77 @@
+package com.bacos.mokengeli.biloko.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.discovery.DiscoveryClient;
+import org.springframework.cloud.client.serviceregistry.Registration;
+import org.springframework.stereotype.Component;
+
+import java.net.URI;
+import java.util.List;
+import java.util.Objects;
+import java.util.UUID;
+
+/**
+ * Localise les autres instances du Gateway.
+ * <p>
+ * Par défaut via le registre Eureka (instances de {@code spring.application.name} avec
+ * {@code gateway-enabled=true}, hors instance courante), adressées sur leur port de synchronisation
+ * (métadonnée {@code peer-sync-port}, à défaut {@code gateway.peer-sync.port}). Une liste statique
+ * {@code gateway.peer-sync.static-peers} (port de synchronisation compris) la remplace pour les tests en local.
+ */
+@Slf4j
+@Component
+public class GatewayPeerLocator {
+
+    private static final String GATEWAY_METADATA = "gateway-enabled";
+    private static final String PEER_PORT_METADATA = "peer-sync-port";
+
+    private final DiscoveryClient discoveryClient;
+    private final ObjectProvider<Registration> registration;
+    private final String applicationName;
+    private final List<URI> staticPeers;
+    private final int peerPort;
+    private final String fallbackId = UUID.randomUUID().toString();
+
+    public GatewayPeerLocator(DiscoveryClient discoveryClient,
+                              ObjectProvider<Registration> registration,
+                              @Value("${spring.application.name}") String applicationName,
+                              @Value("${gateway.peer-sync.static-peers:}") List<URI> staticPeers,
+                              @Value("${gateway.peer-sync.port:8091}") int peerPort) {
+        this.discoveryClient = discoveryClient;
+        this.registration = registration;
+        this.applicationName = applicationName;
+        this.staticPeers = staticPeers;
+        this.peerPort = peerPort;
+        if (!staticPeers.isEmpty()) {
+            log.info("🤝 Using static gateway peers: {}", staticPeers);
+        }
+    }
+
+    /**
+     * Identifiant de l'instance courante dans le registre.
+     */
+    public String selfId() {
+        Registration self = registration.getIfAvailable();
+        return self != null && self.getInstanceId() != null ? self.getInstanceId() : fallbackId;
+    }
+
+    public List<URI> peers() {
+        if (!staticPeers.isEmpty()) {
+            return staticPeers;
+        }
+        String selfId = selfId();
+        return discoveryClient.getInstances(applicationName).stream()
+                .filter(instance -> "true".equalsIgnoreCase(instance.getMetadata().get(GATEWAY_METADATA)))
+                .filter(instance -> !Objects.equals(selfId, instance.getInstanceId()))
+                .map(this::peerUri)
+                .toList();
+    }
+
+    private URI peerUri(ServiceInstance instance) {
+        String port = instance.getMetadata().get(PEER_PORT_METADATA);
+        return URI.create("http://" + instance.getHost() + ":" + (port != null ? port : Integer.toString(peerPort)));
+    }
+}
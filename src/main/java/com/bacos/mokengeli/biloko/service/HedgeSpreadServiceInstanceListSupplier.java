@@ -0,0 +1,33 @@
+package com.bacos.mokengeli.biloko.service;
+
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.loadbalancer.Request;
+import org.springframework.cloud.loadbalancer.core.DelegatingServiceInstanceListSupplier;
+import org.springframework.cloud.loadbalancer.core.ServiceInstanceListSupplier;
+import reactor.core.publisher.Flux;
+
+import java.util.List;
+
+/**
+ * Requête de hedging : écarte les instances déjà choisies pour le même appel ({@link HedgedRequestTracker}),
+ * pour que la seconde requête parte vers une autre instance quel que soit le load balancer.
+ * Si aucune autre ne reste, la liste est rendue telle quelle.
+ */
+public class HedgeSpreadServiceInstanceListSupplier extends DelegatingServiceInstanceListSupplier {
+
+    public HedgeSpreadServiceInstanceListSupplier(ServiceInstanceListSupplier delegate) {
+        super(delegate);
+    }
+
+    @Override
+    public Flux<List<ServiceInstance>> get() {
+        return getDelegate().get();
+    }
+
+    @Override
+    public Flux<List<ServiceInstance>> get(Request request) {
+        HedgedRequestTracker.Group group = HedgedRequestTracker.group(request);
+        Flux<List<ServiceInstance>> instances = getDelegate().get(request);
+        return group == null ? instances : instances.map(group::others);
+    }
+}
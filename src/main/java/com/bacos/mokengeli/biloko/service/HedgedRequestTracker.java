@@ -0,0 +1,95 @@
+package com.bacos.mokengeli.biloko.service;
+
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.loadbalancer.CompletionContext;
+import org.springframework.cloud.client.loadbalancer.LoadBalancerLifecycle;
+import org.springframework.cloud.client.loadbalancer.Request;
+import org.springframework.cloud.client.loadbalancer.RequestData;
+import org.springframework.cloud.client.loadbalancer.RequestDataContext;
+import org.springframework.cloud.client.loadbalancer.Response;
+import org.springframework.cloud.client.loadbalancer.ResponseData;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Requêtes doublées (hedging) d'un même appel : l'instance choisie pour chacune est notée dans son
+ * {@link Group}, que les requêtes suivantes du groupe évitent ({@link HedgeSpreadServiceInstanceListSupplier}).
+ * <p>
+ * Le groupe voyage dans l'attribut {@link #GROUP_ATTR} de la requête WebClient : les attributs y sont figés,
+ * mais le groupe lui-même reste modifiable.
+ */
+@Component
+public class HedgedRequestTracker implements LoadBalancerLifecycle<RequestDataContext, ResponseData, ServiceInstance> {
+
+    public static final String GROUP_ATTR = HedgedRequestTracker.class.getName() + ".group";
+
+    /**
+     * Instances déjà choisies pour un appel (host:port).
+     */
+    public static final class Group {
+        private final Set<String> chosen = ConcurrentHashMap.newKeySet();
+
+        void chosen(ServiceInstance instance) {
+            chosen.add(address(instance));
+        }
+
+        /**
+         * Instances pas encore choisies pour cet appel ; la liste entière si toutes l'ont été.
+         */
+        List<ServiceInstance> others(List<ServiceInstance> instances) {
+            if (chosen.isEmpty()) {
+                return instances;
+            }
+            List<ServiceInstance> others = instances.stream()
+                    .filter(instance -> !chosen.contains(address(instance)))
+                    .toList();
+            return others.isEmpty() ? instances : others;
+        }
+
+        private static String address(ServiceInstance instance) {
+            return instance.getHost() + ":" + instance.getPort();
+        }
+    }
+
+    /**
+     * Groupe porté par la requête load-balancée, null si elle n'appartient à aucun appel doublé.
+     */
+    static Group group(Request<?> request) {
+        if (request == null || !(request.getContext() instanceof RequestDataContext context)) {
+            return null;
+        }
+        RequestData clientRequest = context.getClientRequest();
+        if (clientRequest == null) {
+            return null;
+        }
+        Map<String, Object> attributes = clientRequest.getAttributes();
+        return attributes != null && attributes.get(GROUP_ATTR) instanceof Group group ? group : null;
+    }
+
+    @Override
+    public boolean supports(Class requestContextClass, Class responseClass, Class serverTypeClass) {
+        return RequestDataContext.class.isAssignableFrom(requestContextClass)
+                && ResponseData.class.isAssignableFrom(responseClass)
+                && ServiceInstance.class.isAssignableFrom(serverTypeClass);
+    }
+
+    @Override
+    public void onStart(Request<RequestDataContext> request) {
+    }
+
+    @Override
+    public void onStartRequest(Request<RequestDataContext> request, Response<ServiceInstance> lbResponse) {
+        Group group = group(request);
+        if (group != null && lbResponse.hasServer()) {
+            group.chosen(lbResponse.getServer());
+        }
+    }
+
+    @Override
+    public void onComplete(CompletionContext<ResponseData, ServiceInstance, RequestDataContext> completionContext) {
+    }
+}
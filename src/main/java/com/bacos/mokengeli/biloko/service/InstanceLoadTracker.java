@@ -0,0 +1,334 @@
+package com.bacos.mokengeli.biloko.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.loadbalancer.CompletionContext;
+import org.springframework.cloud.client.loadbalancer.LoadBalancerLifecycle;
+import org.springframework.cloud.client.loadbalancer.Request;
+import org.springframework.cloud.client.loadbalancer.RequestData;
+import org.springframework.cloud.client.loadbalancer.RequestDataContext;
+import org.springframework.cloud.client.loadbalancer.Response;
+import org.springframework.cloud.client.loadbalancer.ResponseData;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Charge observée de chaque instance aval, alimentée par le cycle de vie du load balancer
+ * (routes {@code lb://} du Gateway et WebClient {@code @LoadBalanced}) :
+ * requêtes en cours et moyenne mobile exponentielle (EWMA) de la latence, sensible aux pics.
+ * <p>
+ * Le score {@code latence EWMA × (requêtes en cours + 1)} sert à {@link PeakEwmaLoadBalancer} ;
+ * il est publié par instance ({@code gateway.lb.instance.*{service,instance}}).
+ * <p>
+ * Chaque requête en cours n'est décomptée qu'une fois : à la fin de l'échange ({@link #onComplete}),
+ * à son annulation par le client ({@link #cancel}, appelé par le filtre de routage via l'attribut
+ * {@link #IN_FLIGHT_ATTR}), ou au plus tard après {@code in-flight-timeout} si aucun signal n'est arrivé.
+ */
+@Slf4j
+@Component
+public class InstanceLoadTracker implements LoadBalancerLifecycle<RequestDataContext, ResponseData, ServiceInstance> {
+
+    /**
+     * Attribut de l'échange portant la requête en cours, pour la libérer en cas d'annulation.
+     */
+    public static final String IN_FLIGHT_ATTR = InstanceLoadTracker.class.getName() + ".inFlight";
+
+    // Instance sans mesure mais déjà sollicitée : placée derrière celles dont la latence est connue
+    private static final double PENALTY = 1e12;
+
+    // Clé sans concaténation : construite à chaque choix du load balancer
+    private record InstanceKey(String serviceId, String host, int port) {
+    }
+
+    /**
+     * Requête load-balancée en cours ; {@link #finish()} ne décompte qu'une seule fois.
+     */
+    private static final class InFlight {
+        private final RequestKey key;
+        private final InstanceLoad load;
+        private final long startNanos = System.nanoTime();
+        private final AtomicBoolean done = new AtomicBoolean();
+
+        InFlight(RequestKey key, InstanceLoad load) {
+            this.key = key;
+            this.load = load;
+        }
+
+        boolean finish() {
+            if (!done.compareAndSet(false, true)) {
+                return false;
+            }
+            load.outstanding.decrementAndGet();
+            return true;
+        }
+    }
+
+    /**
+     * Identité de la requête du load balancer (même objet au démarrage et à la fin ; son equals compare le contenu).
+     */
+    private static final class RequestKey {
+        private final Object request;
+
+        RequestKey(Object request) {
+            this.request = request;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof RequestKey key && key.request == request;
+        }
+
+        @Override
+        public int hashCode() {
+            return System.identityHashCode(request);
+        }
+    }
+
+    /**
+     * Statistiques d'une instance. L'EWMA décroît avec le temps écoulé entre deux mesures (constante {@code decay}) ;
+     * une mesure plus lente que la moyenne la remplace immédiatement (peak EWMA).
+     */
+    public final class InstanceLoad {
+        private final String serviceId;
+        private final String instance;
+        private final AtomicInteger outstanding = new AtomicInteger();
+        private double ewmaNanos;
+        private long stampNanos = System.nanoTime();
+        private volatile long lastUsedNanos = System.nanoTime();
+        private final Counter selections;
+        private final List<Meter> meters;
+
+        InstanceLoad(String serviceId, String instance) {
+            this.serviceId = serviceId;
+            this.instance = instance;
+            Tags tags = Tags.of("service", serviceId, "instance", instance);
+            this.selections = Counter.builder("gateway.lb.instance.selections")
+                    .description("Requêtes envoyées à l'instance par le load balancer")
+                    .tags(tags)
+                    .register(meterRegistry);
+            this.meters = List.of(selections,
+                    Gauge.builder("gateway.lb.instance.outstanding", this, InstanceLoad::outstanding)
+                            .description("Requêtes en cours vers l'instance")
+                            .tags(tags)
+                            .register(meterRegistry),
+                    Gauge.builder("gateway.lb.instance.latency.ewma", this, load -> load.latencyEwmaNanos() / 1e6)
+                            .description("Latence moyenne mobile (peak EWMA) de l'instance")
+                            .baseUnit("milliseconds")
+                            .tags(tags)
+                            .register(meterRegistry),
+                    Gauge.builder("gateway.lb.instance.score", this, InstanceLoad::score)
+                            .description("Score du load balancer P2C (plus bas = préféré)")
+                            .tags(tags)
+                            .register(meterRegistry));
+        }
+
+        public String serviceId() {
+            return serviceId;
+        }
+
+        public String instance() {
+            return instance;
+        }
+
+        public int outstanding() {
+            return outstanding.get();
+        }
+
+        public synchronized double latencyEwmaNanos() {
+            return ewmaNanos;
+        }
+
+        /**
+         * Coût estimé d'un envoi supplémentaire vers l'instance.
+         */
+        public double score() {
+            double ewma = latencyEwmaNanos();
+            int pending = outstanding.get();
+            if (ewma == 0) {
+                return pending == 0 ? 0 : PENALTY + pending;
+            }
+            return ewma * (pending + 1);
+        }
+
+        synchronized void observe(long rttNanos) {
+            long now = System.nanoTime();
+            double elapsed = Math.max(now - stampNanos, 0);
+            stampNanos = now;
+            if (rttNanos > ewmaNanos) {
+                ewmaNanos = rttNanos;
+            } else {
+                double weight = Math.exp(-elapsed / decayNanos);
+                ewmaNanos = ewmaNanos * weight + rttNanos * (1 - weight);
+            }
+        }
+    }
+
+    private final MeterRegistry meterRegistry;
+    private final double decayNanos;
+    private final Duration idleEviction;
+    private final long inFlightTimeoutNanos;
+    private final Map<InstanceKey, InstanceLoad> loads = new ConcurrentHashMap<>();
+    private final Map<RequestKey, InFlight> inFlight = new ConcurrentHashMap<>();
+    private final Counter expired;
+    private Disposable sweeper;
+
+    public InstanceLoadTracker(MeterRegistry meterRegistry,
+                               @Value("${gateway.load-balancer.ewma-decay:PT10S}") Duration decay,
+                               @Value("${gateway.load-balancer.idle-eviction:PT10M}") Duration idleEviction,
+                               @Value("${gateway.load-balancer.in-flight-timeout:PT2M}") Duration inFlightTimeout) {
+        this.meterRegistry = meterRegistry;
+        this.decayNanos = decay.toNanos();
+        this.idleEviction = idleEviction;
+        this.inFlightTimeoutNanos = inFlightTimeout.toNanos();
+        this.expired = Counter.builder("gateway.lb.in-flight.expired")
+                .description("Requêtes en cours libérées faute de signal de fin après in-flight-timeout")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    void start() {
+        sweeper = Flux.interval(Duration.ofMinutes(1)).subscribe(tick -> {
+            expireInFlight();
+            evictIdle();
+        });
+    }
+
+    @PreDestroy
+    void stop() {
+        if (sweeper != null) {
+            sweeper.dispose();
+        }
+    }
+
+    public InstanceLoad load(ServiceInstance instance) {
+        return loads.computeIfAbsent(new InstanceKey(instance.getServiceId(), instance.getHost(), instance.getPort()),
+                k -> new InstanceLoad(k.serviceId(), k.host() + ":" + k.port()));
+    }
+
+    /**
+     * Statistiques de toutes les instances suivies.
+     */
+    public List<InstanceLoad> loads() {
+        return List.copyOf(loads.values());
+    }
+
+    @Override
+    public boolean supports(Class requestContextClass, Class responseClass, Class serverTypeClass) {
+        return RequestDataContext.class.isAssignableFrom(requestContextClass)
+                && ResponseData.class.isAssignableFrom(responseClass)
+                && ServiceInstance.class.isAssignableFrom(serverTypeClass);
+    }
+
+    @Override
+    public void onStart(Request<RequestDataContext> request) {
+    }
+
+    @Override
+    public void onStartRequest(Request<RequestDataContext> request, Response<ServiceInstance> lbResponse) {
+        if (!lbResponse.hasServer()) {
+            return;
+        }
+        RequestDataContext context = request.getContext();
+        if (context != null) {
+            context.setRequestStartTime(System.nanoTime());
+        }
+        InstanceLoad load = load(lbResponse.getServer());
+        load.lastUsedNanos = System.nanoTime();
+        load.selections.increment();
+        load.outstanding.incrementAndGet();
+        RequestKey key = new RequestKey(request);
+        InFlight started = new InFlight(key, load);
+        inFlight.put(key, started);
+        Map<String, Object> attributes = writableAttributes(context);
+        if (attributes != null) {
+            attributes.put(IN_FLIGHT_ATTR, started);
+        } else {
+            log.trace("Load balancer request attributes are read-only, cancellation tracked by timeout only");
+        }
+    }
+
+    /**
+     * Attributs de l'échange pour les routes {@code lb://} (map modifiable de l'échange), null sinon :
+     * le WebClient {@code @LoadBalanced} les expose via {@code Collections.unmodifiableMap},
+     * ses requêtes ne sont alors libérées que par {@link #onComplete} ou le délai.
+     */
+    private static Map<String, Object> writableAttributes(RequestDataContext context) {
+        if (context == null) {
+            return null;
+        }
+        RequestData clientRequest = context.getClientRequest();
+        if (clientRequest == null) {
+            return null;
+        }
+        Map<String, Object> attributes = clientRequest.getAttributes();
+        return attributes instanceof ConcurrentMap || attributes instanceof HashMap ? attributes : null;
+    }
+
+    /**
+     * Requête annulée (client parti) : aucun onComplete ne suivra, la requête n'est plus comptée en cours.
+     *
+     * @param handle valeur de l'attribut {@link #IN_FLIGHT_ATTR}, ignorée si null
+     */
+    public void cancel(Object handle) {
+        if (handle instanceof InFlight started && started.finish()) {
+            inFlight.remove(started.key);
+        }
+    }
+
+    @Override
+    public void onComplete(CompletionContext<ResponseData, ServiceInstance, RequestDataContext> completionContext) {
+        if (completionContext.getLoadBalancerRequest() == null) {
+            return;
+        }
+        InFlight started = inFlight.remove(new RequestKey(completionContext.getLoadBalancerRequest()));
+        // Déjà libérée (annulation, délai) ou jamais démarrée
+        if (started == null || !started.finish()
+                || completionContext.status() == CompletionContext.Status.DISCARD) {
+            return;
+        }
+        // Échecs compris : une instance qui échoue lentement doit aussi perdre du trafic
+        started.load.observe(System.nanoTime() - started.startNanos);
+    }
+
+    private void expireInFlight() {
+        long threshold = System.nanoTime() - inFlightTimeoutNanos;
+        inFlight.values().removeIf(started -> {
+            if (started.startNanos - threshold > 0 || !started.finish()) {
+                return false;
+            }
+            expired.increment();
+            return true;
+        });
+    }
+
+    private void evictIdle() {
+        long threshold = System.nanoTime() - idleEviction.toNanos();
+        loads.entrySet().removeIf(entry -> {
+            InstanceLoad load = entry.getValue();
+            if (load.outstanding() > 0 || load.lastUsedNanos > threshold) {
+                return false;
+            }
+            load.meters.forEach(meterRegistry::remove);
+            log.debug("Load stats of {} ({}) evicted after {} idle", load.instance(), load.serviceId(), idleEviction);
+            return true;
+        });
+    }
+}
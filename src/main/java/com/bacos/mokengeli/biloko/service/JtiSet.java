@@ -0,0 +1,221 @@
+package com.bacos.mokengeli.biloko.service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+import java.util.UUID;
+
+/**
+ * Ensemble immuable et compact de JTI.
+ * <p>
+ * Les JTI au format UUID canonique (minuscules) sont stockés sur deux longs dans une table
+ * à adressage ouvert ; les autres restent des chaînes dans un petit tableau.
+ * {@link #contains(String)} ne fait aucune allocation.
+ */
+public final class JtiSet {
+
+    private static final JtiSet EMPTY = new JtiSet(new long[0], 0, false, new String[0]);
+
+    // Paires (msb, lsb) ; (0, 0) marque une case vide, l'UUID nul est suivi à part
+    private final long[] table;
+    private final int uuidCount;
+    private final boolean hasNil;
+    private final String[] others;
+
+    private JtiSet(long[] table, int uuidCount, boolean hasNil, String[] others) {
+        this.table = table;
+        this.uuidCount = uuidCount;
+        this.hasNil = hasNil;
+        this.others = others;
+    }
+
+    public static JtiSet of(Collection<String> jtis) {
+        if (jtis == null || jtis.isEmpty()) {
+            return EMPTY;
+        }
+        long[] uuidBits = new long[jtis.size() * 2];
+        int pairs = 0;
+        List<String> others = new ArrayList<>(0);
+        for (String jti : jtis) {
+            if (!isCanonicalUuid(jti)) {
+                if (jti != null) {
+                    others.add(jti);
+                }
+                continue;
+            }
+            long msb = hexBits(jti, 0, 8, 0L);
+            msb = hexBits(jti, 9, 13, msb);
+            msb = hexBits(jti, 14, 18, msb);
+            long lsb = hexBits(jti, 19, 23, 0L);
+            lsb = hexBits(jti, 24, 36, lsb);
+            uuidBits[pairs * 2] = msb;
+            uuidBits[pairs * 2 + 1] = lsb;
+            pairs++;
+        }
+        return of(uuidBits, pairs, others);
+    }
+
+    /**
+     * JTI déjà décodés (snapshot) : les {@code pairs} premières paires (msb, lsb) de {@code uuidBits},
+     * plus les JTI hors format UUID. Aucune chaîne n'est créée pour les UUID.
+     */
+    public static JtiSet of(long[] uuidBits, int pairs, Collection<String> others) {
+        if (pairs == 0 && others.isEmpty()) {
+            return EMPTY;
+        }
+        // Taux de remplissage <= 50 %
+        int capacity = pairs == 0 ? 0 : Integer.highestOneBit(Math.max(2, pairs * 2 - 1)) << 1;
+        long[] table = new long[capacity * 2];
+        int mask = capacity - 1;
+        int uuidCount = 0;
+        boolean hasNil = false;
+
+        for (int i = 0; i < pairs; i++) {
+            long msb = uuidBits[i * 2];
+            long lsb = uuidBits[i * 2 + 1];
+            if (msb == 0L && lsb == 0L) {
+                if (!hasNil) {
+                    hasNil = true;
+                    uuidCount++;
+                }
+                continue;
+            }
+            int slot = slot(msb, lsb, mask);
+            while (true) {
+                long m = table[slot * 2];
+                long l = table[slot * 2 + 1];
+                if (m == 0L && l == 0L) {
+                    table[slot * 2] = msb;
+                    table[slot * 2 + 1] = lsb;
+                    uuidCount++;
+                    break;
+                }
+                if (m == msb && l == lsb) {
+                    break; // doublon
+                }
+                slot = (slot + 1) & mask;
+            }
+        }
+        List<String> distinct = new ArrayList<>(others.size());
+        for (String other : others) {
+            if (other != null && !distinct.contains(other)) {
+                distinct.add(other);
+            }
+        }
+        return new JtiSet(table, uuidCount, hasNil, distinct.toArray(new String[0]));
+    }
+
+    public boolean contains(String jti) {
+        if (jti == null) {
+            return false;
+        }
+        if (!isCanonicalUuid(jti)) {
+            for (String other : others) {
+                if (other.equals(jti)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+        long msb = hexBits(jti, 0, 8, 0L);
+        msb = hexBits(jti, 9, 13, msb);
+        msb = hexBits(jti, 14, 18, msb);
+        long lsb = hexBits(jti, 19, 23, 0L);
+        lsb = hexBits(jti, 24, 36, lsb);
+        if (msb == 0L && lsb == 0L) {
+            return hasNil;
+        }
+        if (table.length == 0) {
+            return false;
+        }
+        int mask = table.length / 2 - 1;
+        int slot = slot(msb, lsb, mask);
+        while (true) {
+            long m = table[slot * 2];
+            long l = table[slot * 2 + 1];
+            if (m == 0L && l == 0L) {
+                return false;
+            }
+            if (m == msb && l == lsb) {
+                return true;
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    public int size() {
+        return uuidCount + others.length;
+    }
+
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    /**
+     * Forme texte des JTI (UUID en minuscules), pour le réseau et les logs.
+     */
+    public List<String> toList() {
+        List<String> jtis = new ArrayList<>(size());
+        if (hasNil) {
+            jtis.add(new UUID(0L, 0L).toString());
+        }
+        for (int i = 0; i < table.length; i += 2) {
+            if (table[i] != 0L || table[i + 1] != 0L) {
+                jtis.add(new UUID(table[i], table[i + 1]).toString());
+            }
+        }
+        for (String other : others) {
+            jtis.add(other);
+        }
+        return jtis;
+    }
+
+    /**
+     * Copie sans le JTI donné ; retourne la même instance s'il est absent.
+     */
+    public JtiSet without(String jti) {
+        if (!contains(jti)) {
+            return this;
+        }
+        List<String> remaining = toList();
+        remaining.removeIf(candidate -> Objects.equals(candidate, jti));
+        return of(remaining);
+    }
+
+    private static int slot(long msb, long lsb, int mask) {
+        long h = (msb * 0x9E3779B97F4A7C15L) ^ lsb;
+        h ^= h >>> 32;
+        return (int) h & mask;
+    }
+
+    private static boolean isCanonicalUuid(String value) {
+        if (value == null || value.length() != 36) {
+            return false;
+        }
+        for (int i = 0; i < 36; i++) {
+            char c = value.charAt(i);
+            if (i == 8 || i == 13 || i == 18 || i == 23) {
+                if (c != '-') {
+                    return false;
+                }
+            } else if (!((c >= '0' && c <= '9') || (c >= 'a' && c <= 'f'))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static long hexBits(String value, int from, int to, long acc) {
+        for (int i = from; i < to; i++) {
+            char c = value.charAt(i);
+            acc = (acc << 4) | (c <= '9' ? c - '0' : c - 'a' + 10);
+        }
+        return acc;
+    }
+
+    @Override
+    public String toString() {
+        return toList().toString();
+    }
+}
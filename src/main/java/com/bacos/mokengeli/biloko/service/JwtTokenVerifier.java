@@ -0,0 +1,104 @@
+package com.bacos.mokengeli.biloko.service;
+
+import com.bacos.mokengeli.biloko.model.VerifiedToken;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtParser;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.Date;
+
+/**
+ * Vérification des JWT avec cache des jetons déjà validés.
+ * <p>
+ * La clé HMAC et le parser sont construits une seule fois au démarrage.
+ * Un jeton vérifié est mémorisé sous l'empreinte SHA-256 de sa valeur (le jeton brut n'est pas conservé)
+ * et expire du cache à son {@code exp} : les appels suivants se résument à un hash + lookup.
+ */
+@Slf4j
+@Component
+public class JwtTokenVerifier {
+
+    private static final ThreadLocal<MessageDigest> SHA_256 = ThreadLocal.withInitial(() -> {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    });
+
+    private final JwtParser parser;
+    private final Cache<String, VerifiedToken> verifiedTokens;
+
+    public JwtTokenVerifier(@Value("${security.jwt.secret}") String secretKey,
+                            @Value("${security.jwt.verified-cache.max-size:100000}") long maxSize,
+                            @Value("${security.jwt.verified-cache.max-ttl-seconds:3600}") long maxTtlSeconds,
+                            MeterRegistry meterRegistry) {
+        this.parser = Jwts.parser()
+                .verifyWith(Keys.hmacShaKeyFor(secretKey.getBytes(StandardCharsets.UTF_8)))
+                .build();
+
+        long maxTtlNanos = Duration.ofSeconds(maxTtlSeconds).toNanos();
+        this.verifiedTokens = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfter(Expiry.<String, VerifiedToken>creating((key, token) -> {
+                    // Jamais au-delà de l'exp du jeton, ni du plafond configuré
+                    if (token.expiresAt() == null) {
+                        return Duration.ofNanos(maxTtlNanos);
+                    }
+                    Duration untilExp = Duration.between(Instant.now(), token.expiresAt());
+                    if (untilExp.isNegative()) {
+                        return Duration.ZERO;
+                    }
+                    return untilExp.toNanos() < maxTtlNanos ? untilExp : Duration.ofNanos(maxTtlNanos);
+                }))
+                .recordStats()
+                .build();
+
+        CaffeineCacheMetrics.monitor(meterRegistry, verifiedTokens, "jwt.verified-tokens");
+        log.info("🔐 JWT verifier initialized (verified-token cache max {} entries)", maxSize);
+    }
+
+    /**
+     * Retourne les claims du jeton, depuis le cache si déjà vérifié.
+     *
+     * @throws io.jsonwebtoken.JwtException si la signature est invalide ou le jeton expiré
+     */
+    public VerifiedToken verify(String token) {
+        String digest = digest(token);
+        VerifiedToken cached = verifiedTokens.getIfPresent(digest);
+        if (cached != null) {
+            return cached;
+        }
+
+        Claims claims = parser.parseSignedClaims(token).getPayload();
+        Date expiration = claims.getExpiration();
+        VerifiedToken verified = new VerifiedToken(
+                claims.get("employeeNumber", String.class),
+                claims.get("appType", String.class),
+                claims.get("jti", String.class),
+                expiration != null ? expiration.toInstant() : null
+        );
+        verifiedTokens.put(digest, verified);
+        return verified;
+    }
+
+    private static String digest(String token) {
+        byte[] hash = SHA_256.get().digest(token.getBytes(StandardCharsets.UTF_8));
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(hash);
+    }
+}
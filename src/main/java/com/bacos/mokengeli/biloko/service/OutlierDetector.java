@@ -0,0 +1,364 @@
+package com.bacos.mokengeli.biloko.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.loadbalancer.CompletionContext;
+import org.springframework.cloud.client.loadbalancer.LoadBalancerLifecycle;
+import org.springframework.cloud.client.loadbalancer.Request;
+import org.springframework.cloud.client.loadbalancer.RequestDataContext;
+import org.springframework.cloud.client.loadbalancer.Response;
+import org.springframework.cloud.client.loadbalancer.ResponseData;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Détection passive des instances défaillantes, à partir des réponses vues par le load balancer
+ * (routes {@code lb://} et WebClient {@code @LoadBalanced}) : réponses 5xx, erreurs de connexion et timeouts.
+ * <p>
+ * Une instance est éjectée après {@code consecutive-failures} échecs consécutifs, ou si son taux d'erreur
+ * sur un intervalle dépasse {@code error-rate} (au moins {@code min-requests} requêtes). La durée d'éjection
+ * double à chaque récidive jusqu'à {@code max-ejection} ; au plus {@code max-ejected-percent} des instances
+ * découvertes d'un service sont éjectées. À sa réadmission, l'instance reçoit une part croissante du trafic
+ * pendant {@code ramp-up}. Le filtrage est fait par {@link OutlierEjectionServiceInstanceListSupplier}.
+ * <p>
+ * Sans cela, une instance en panne reçoit du trafic jusqu'à l'expiration de son bail Eureka (30 s et plus).
+ */
+@Slf4j
+@Component
+public class OutlierDetector implements LoadBalancerLifecycle<RequestDataContext, ResponseData, ServiceInstance> {
+
+    // Part minimale du trafic rendue à une instance dès sa réadmission
+    private static final double MIN_RAMP_SHARE = 0.1;
+
+    /**
+     * État d'une instance : échecs de l'intervalle courant et historique des éjections.
+     */
+    private static final class InstanceHealth {
+        final String serviceId;
+        final String instance;
+        int consecutiveFailures;
+        int requests;
+        int failures;
+        // Écrits sous le verrou de l'instance, lus sans verrou par isAvailable()
+        volatile int ejections;
+        volatile long ejectedUntilNanos;
+        volatile boolean ejected;
+        String reason;
+        volatile long lastUsedNanos = System.nanoTime();
+
+        InstanceHealth(String serviceId, String instance) {
+            this.serviceId = serviceId;
+            this.instance = instance;
+        }
+    }
+
+    /**
+     * Décompte d'un service : le plafond d'éjection est vérifié et consommé sous son verrou,
+     * pris après celui de l'instance.
+     */
+    private static final class ServiceHealth {
+        // Instances suivies (ayant reçu du trafic)
+        int tracked;
+        // Éjectées et pas encore réadmises par le bilan d'intervalle ; lu sans verrou par la gauge
+        volatile int ejected;
+        // Nombre d'instances rapporté par la découverte : base du plafond d'éjection
+        volatile int discovered;
+    }
+
+    private final MeterRegistry meterRegistry;
+    private final boolean enabled;
+    private final int consecutiveFailures;
+    private final double errorRate;
+    private final int minRequests;
+    private final Duration interval;
+    private final Duration baseEjection;
+    private final Duration maxEjection;
+    private final int maxEjectedPercent;
+    private final Duration rampUp;
+    private final Duration idleEviction;
+
+    // Clé service/host:port
+    private final Map<String, InstanceHealth> instances = new ConcurrentHashMap<>();
+    private final Map<String, ServiceHealth> services = new ConcurrentHashMap<>();
+    private final Map<String, Counter> counters = new ConcurrentHashMap<>();
+    private Disposable sweeper;
+
+    public OutlierDetector(MeterRegistry meterRegistry,
+                           @Value("${gateway.outlier-detection.enabled:true}") boolean enabled,
+                           @Value("${gateway.outlier-detection.consecutive-failures:5}") int consecutiveFailures,
+                           @Value("${gateway.outlier-detection.error-rate:0.5}") double errorRate,
+                           @Value("${gateway.outlier-detection.min-requests:20}") int minRequests,
+                           @Value("${gateway.outlier-detection.interval:PT10S}") Duration interval,
+                           @Value("${gateway.outlier-detection.base-ejection:PT30S}") Duration baseEjection,
+                           @Value("${gateway.outlier-detection.max-ejection:PT5M}") Duration maxEjection,
+                           @Value("${gateway.outlier-detection.max-ejected-percent:50}") int maxEjectedPercent,
+                           @Value("${gateway.outlier-detection.ramp-up:PT30S}") Duration rampUp,
+                           @Value("${gateway.load-balancer.idle-eviction:PT10M}") Duration idleEviction) {
+        this.meterRegistry = meterRegistry;
+        this.enabled = enabled;
+        this.consecutiveFailures = consecutiveFailures;
+        this.errorRate = errorRate;
+        this.minRequests = minRequests;
+        this.interval = interval;
+        this.baseEjection = baseEjection;
+        this.maxEjection = maxEjection;
+        this.maxEjectedPercent = maxEjectedPercent;
+        this.rampUp = rampUp;
+        this.idleEviction = idleEviction;
+    }
+
+    @PostConstruct
+    void start() {
+        if (enabled) {
+            sweeper = Flux.interval(interval).subscribe(tick -> sweep());
+        }
+    }
+
+    @PreDestroy
+    void stop() {
+        if (sweeper != null) {
+            sweeper.dispose();
+        }
+    }
+
+    /**
+     * Instance utilisable par le load balancer : non éjectée, et tirée au sort pendant sa réadmission.
+     */
+    public boolean isAvailable(ServiceInstance instance) {
+        InstanceHealth health = instances.get(key(instance));
+        if (health == null) {
+            return true;
+        }
+        long now = System.nanoTime();
+        long ejectedUntil = health.ejectedUntilNanos;
+        if (health.ejected && now < ejectedUntil) {
+            return false;
+        }
+        long readmittedFor = now - ejectedUntil;
+        if (health.ejections == 0 || readmittedFor >= rampUp.toNanos()) {
+            return true;
+        }
+        double share = Math.max(MIN_RAMP_SHARE, (double) readmittedFor / rampUp.toNanos());
+        return ThreadLocalRandom.current().nextDouble() < share;
+    }
+
+    /**
+     * Nombre d'instances du service rapporté par la découverte, à chaque liste servie au load balancer.
+     * Sans lui, le plafond d'éjection ne compterait que les instances ayant déjà reçu du trafic.
+     */
+    public void discovered(String serviceId, int count) {
+        service(normalize(serviceId)).discovered = count;
+    }
+
+    /**
+     * État des instances suivies d'un service, pour l'affichage des routes.
+     */
+    public List<Map<String, Object>> status(String serviceId) {
+        String service = normalize(serviceId);
+        long now = System.nanoTime();
+        return instances.values().stream()
+                .filter(health -> health.serviceId.equals(service))
+                .map(health -> describe(health, now))
+                .toList();
+    }
+
+    @Override
+    public boolean supports(Class requestContextClass, Class responseClass, Class serverTypeClass) {
+        return RequestDataContext.class.isAssignableFrom(requestContextClass)
+                && ResponseData.class.isAssignableFrom(responseClass)
+                && ServiceInstance.class.isAssignableFrom(serverTypeClass);
+    }
+
+    @Override
+    public void onStart(Request<RequestDataContext> request) {
+    }
+
+    @Override
+    public void onStartRequest(Request<RequestDataContext> request, Response<ServiceInstance> lbResponse) {
+    }
+
+    @Override
+    public void onComplete(CompletionContext<ResponseData, ServiceInstance, RequestDataContext> completionContext) {
+        if (!enabled
+                || completionContext.status() == CompletionContext.Status.DISCARD
+                || completionContext.getLoadBalancerResponse() == null
+                || !completionContext.getLoadBalancerResponse().hasServer()) {
+            return;
+        }
+        ServiceInstance instance = completionContext.getLoadBalancerResponse().getServer();
+        String failure = failureKind(completionContext);
+        InstanceHealth health = instances.computeIfAbsent(key(instance), k -> track(instance));
+        health.lastUsedNanos = System.nanoTime();
+        synchronized (health) {
+            health.requests++;
+            if (failure == null) {
+                health.consecutiveFailures = 0;
+                return;
+            }
+            counter("gateway.lb.outlier.failures", health.serviceId, "kind", failure).increment();
+            health.failures++;
+            health.consecutiveFailures++;
+            if (!health.ejected && health.consecutiveFailures >= consecutiveFailures) {
+                eject(health, "consecutive-failures");
+            }
+        }
+    }
+
+    /**
+     * Bilan de l'intervalle : taux d'erreur, réadmissions, décroissance du multiplicateur d'éjection.
+     */
+    private void sweep() {
+        long now = System.nanoTime();
+        long idleThreshold = now - idleEviction.toNanos();
+        instances.entrySet().removeIf(entry -> {
+            InstanceHealth health = entry.getValue();
+            synchronized (health) {
+                if (health.ejected && now >= health.ejectedUntilNanos) {
+                    health.ejected = false;
+                    ServiceHealth service = service(health.serviceId);
+                    synchronized (service) {
+                        service.ejected--;
+                    }
+                    log.info("🩺 Instance {} of {} re-admitted after {} ejection(s), ramping up over {}",
+                            health.instance, health.serviceId, health.ejections, rampUp);
+                } else if (!health.ejected && health.requests >= minRequests
+                        && (double) health.failures / health.requests >= errorRate) {
+                    eject(health, "error-rate");
+                } else if (!health.ejected && health.failures == 0 && health.ejections > 0
+                        && now - health.ejectedUntilNanos >= rampUp.toNanos()) {
+                    // Intervalle sans échec après la réadmission : la prochaine éjection sera plus courte
+                    health.ejections--;
+                }
+                health.requests = 0;
+                health.failures = 0;
+                if (health.ejected || health.ejections > 0 || health.lastUsedNanos >= idleThreshold) {
+                    return false;
+                }
+                ServiceHealth service = service(health.serviceId);
+                synchronized (service) {
+                    service.tracked--;
+                }
+                return true;
+            }
+        });
+    }
+
+    // Appelée sous le verrou de l'instance
+    private void eject(InstanceHealth health, String reason) {
+        ServiceHealth service = service(health.serviceId);
+        // Vérification et réservation atomiques : deux instances du service ne peuvent pas dépasser le plafond ensemble
+        synchronized (service) {
+            int total = Math.max(service.tracked, service.discovered);
+            int ejected = service.ejected;
+            if ((ejected + 1) * 100L > (long) total * maxEjectedPercent) {
+                counter("gateway.lb.outlier.ejections", health.serviceId, "reason", "capped").increment();
+                log.warn("⚠️ Instance {} of {} failing ({}) but {}/{} instances already ejected, kept in rotation",
+                        health.instance, health.serviceId, reason, ejected, total);
+                return;
+            }
+            service.ejected = ejected + 1;
+        }
+        long multiplier = 1L << Math.min(health.ejections, 20);
+        long durationNanos = Math.min(baseEjection.toNanos() * multiplier, maxEjection.toNanos());
+        health.ejections++;
+        health.ejected = true;
+        health.ejectedUntilNanos = System.nanoTime() + durationNanos;
+        health.reason = reason;
+        health.consecutiveFailures = 0;
+        counter("gateway.lb.outlier.ejections", health.serviceId, "reason", reason).increment();
+        log.warn("🚫 Instance {} of {} ejected for {} s ({}, ejection #{})", health.instance, health.serviceId,
+                TimeUnit.NANOSECONDS.toSeconds(durationNanos), reason, health.ejections);
+    }
+
+    private InstanceHealth track(ServiceInstance instance) {
+        String serviceId = normalize(instance.getServiceId());
+        ServiceHealth service = service(serviceId);
+        synchronized (service) {
+            service.tracked++;
+        }
+        return new InstanceHealth(serviceId, instance.getHost() + ":" + instance.getPort());
+    }
+
+    private ServiceHealth service(String serviceId) {
+        return services.computeIfAbsent(serviceId, id -> {
+            ServiceHealth service = new ServiceHealth();
+            Gauge.builder("gateway.lb.outlier.ejected", service, health -> health.ejected)
+                    .description("Instances du service actuellement éjectées du load balancing")
+                    .tag("service", id)
+                    .register(meterRegistry);
+            return service;
+        });
+    }
+
+    private Counter counter(String name, String serviceId, String tag, String value) {
+        return counters.computeIfAbsent(name + "/" + serviceId + "/" + value, k -> Counter.builder(name)
+                .tag("service", serviceId)
+                .tag(tag, value)
+                .register(meterRegistry));
+    }
+
+    private Map<String, Object> describe(InstanceHealth health, long now) {
+        Map<String, Object> description = new LinkedHashMap<>();
+        synchronized (health) {
+            boolean ejected = health.ejected && now < health.ejectedUntilNanos;
+            boolean rampingUp = !ejected && health.ejections > 0 && now - health.ejectedUntilNanos < rampUp.toNanos();
+            description.put("instance", health.instance);
+            description.put("state", ejected ? "ejected" : rampingUp ? "ramping-up" : "active");
+            description.put("consecutiveFailures", health.consecutiveFailures);
+            description.put("ejections", health.ejections);
+            if (ejected) {
+                description.put("reason", health.reason);
+                description.put("ejectedForMs", TimeUnit.NANOSECONDS.toMillis(health.ejectedUntilNanos - now));
+            }
+        }
+        return description;
+    }
+
+    /**
+     * Nature de l'échec, null si la réponse est un succès (4xx compris : erreur du client, pas de l'instance).
+     */
+    private static String failureKind(CompletionContext<ResponseData, ServiceInstance, RequestDataContext> context) {
+        if (context.status() == CompletionContext.Status.FAILED) {
+            for (Throwable cause = context.getThrowable(); cause != null; cause = cause.getCause()) {
+                if (cause instanceof TimeoutException || cause instanceof io.netty.handler.timeout.TimeoutException) {
+                    return "timeout";
+                }
+            }
+            return "connection";
+        }
+        ResponseData response = context.getClientResponse();
+        HttpStatusCode status = response == null ? null : response.getHttpStatus();
+        if (status == null || !status.is5xxServerError()) {
+            return null;
+        }
+        return status.value() == HttpStatus.GATEWAY_TIMEOUT.value() ? "timeout" : "5xx";
+    }
+
+    private static String key(ServiceInstance instance) {
+        return normalize(instance.getServiceId()) + "/" + instance.getHost() + ":" + instance.getPort();
+    }
+
+    // Eureka rapporte les noms d'application en majuscules, les routes lb:// les écrivent en minuscules
+    private static String normalize(String serviceId) {
+        return serviceId == null ? "" : serviceId.toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,35 @@
+package com.bacos.mokengeli.biloko.service;
+
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.loadbalancer.core.DelegatingServiceInstanceListSupplier;
+import org.springframework.cloud.loadbalancer.core.ServiceInstanceListSupplier;
+import reactor.core.publisher.Flux;
+
+import java.util.List;
+
+/**
+ * Écarte du load balancing les instances éjectées par {@link OutlierDetector}, et une partie des requêtes
+ * vers celles en cours de réadmission. Si aucune ne reste, la liste est rendue telle quelle.
+ */
+public class OutlierEjectionServiceInstanceListSupplier extends DelegatingServiceInstanceListSupplier {
+
+    private final OutlierDetector outlierDetector;
+
+    public OutlierEjectionServiceInstanceListSupplier(ServiceInstanceListSupplier delegate, OutlierDetector outlierDetector) {
+        super(delegate);
+        this.outlierDetector = outlierDetector;
+    }
+
+    @Override
+    public Flux<List<ServiceInstance>> get() {
+        return getDelegate().get().map(this::filter);
+    }
+
+    private List<ServiceInstance> filter(List<ServiceInstance> instances) {
+        outlierDetector.discovered(getServiceId(), instances.size());
+        List<ServiceInstance> healthy = instances.stream()
+                .filter(outlierDetector::isAvailable)
+                .toList();
+        return healthy.isEmpty() ? instances : healthy;
+    }
+}
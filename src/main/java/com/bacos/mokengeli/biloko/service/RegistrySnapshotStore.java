@@ -0,0 +1,226 @@
+package com.bacos.mokengeli.biloko.service;
+
+import com.bacos.mokengeli.biloko.model.RegistrySnapshotFile;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cloud.client.DefaultServiceInstance;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.discovery.DiscoveryClient;
+import org.springframework.cloud.client.discovery.event.HeartbeatEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import reactor.core.scheduler.Schedulers;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileAttribute;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Dernière liste d'instances connue par service, persistée en JSON sur disque local.
+ * <p>
+ * Chargée au démarrage, elle sert de repli au load balancer ({@link SnapshotFallbackServiceInstanceListSupplier})
+ * tant que le client Eureka n'a pas terminé son premier fetch, ou si la découverte échoue.
+ * Après ce premier fetch, une liste vide est une vraie absence d'instances : le client Eureka garde son registre
+ * en cache pendant une coupure. Mise à jour à chaque rafraîchissement du registre (HeartbeatEvent) ; un service
+ * que le registre ne liste plus (ou sans instance) est oublié. Le fichier n'est réécrit que s'il a changé.
+ * <p>
+ * Une liste n'est jamais servie plus de {@code max-age} après sa capture : au-delà, les adresses ont
+ * trop de chances d'avoir été réattribuées pour router du trafic dessus.
+ * <p>
+ * Le fichier décide de la destination du trafic {@code lb://} (jetons compris) : il est écrit dans un répertoire
+ * privé (0700, fichier 0600) et ignoré au chargement s'il est accessible à d'autres utilisateurs.
+ */
+@Slf4j
+@Component
+public class RegistrySnapshotStore {
+
+    private static final Set<PosixFilePermission> PRIVATE_DIRECTORY = PosixFilePermissions.fromString("rwx------");
+    private static final Set<PosixFilePermission> PRIVATE_FILE = PosixFilePermissions.fromString("rw-------");
+
+    private final DiscoveryClient discoveryClient;
+    private final ObjectMapper objectMapper;
+    private final MeterRegistry meterRegistry;
+    private final boolean enabled;
+    private final Path path;
+    private final Duration maxAge;
+
+    private record Known(List<ServiceInstance> instances, long capturedAtMillis) {
+    }
+
+    // Instances chargées depuis le disque puis tenues à jour depuis le registre
+    private final Map<String, Known> lastKnown = new ConcurrentHashMap<>();
+    private volatile RegistrySnapshotFile written;
+    // Premier fetch du registre réussi : une liste vide n'est plus un registre pas encore chargé
+    private volatile boolean registryFetched;
+    private final Map<String, Counter> fallbacks = new ConcurrentHashMap<>();
+
+    public RegistrySnapshotStore(DiscoveryClient discoveryClient,
+                                 ObjectMapper objectMapper,
+                                 MeterRegistry meterRegistry,
+                                 @Value("${gateway.registry-snapshot.enabled:true}") boolean enabled,
+                                 @Value("${gateway.registry-snapshot.path:${user.home}/.api-gateway/registry.json}") Path path,
+                                 @Value("${gateway.registry-snapshot.max-age:PT30M}") Duration maxAge) {
+        this.discoveryClient = discoveryClient;
+        this.objectMapper = objectMapper;
+        this.meterRegistry = meterRegistry;
+        this.enabled = enabled;
+        this.path = path;
+        this.maxAge = maxAge;
+        if (enabled) {
+            // Lecture synchrone : le fichier est petit et doit être disponible avant la première requête
+            load();
+        }
+    }
+
+    /**
+     * Dernières instances connues du service, vide si aucune ou si elles datent de plus de {@code max-age}.
+     */
+    public List<ServiceInstance> lastKnown(String serviceId) {
+        if (!enabled) {
+            return List.of();
+        }
+        Known known = lastKnown.get(serviceId);
+        if (known == null || System.currentTimeMillis() - known.capturedAtMillis() > maxAge.toMillis()) {
+            return List.of();
+        }
+        List<ServiceInstance> instances = known.instances();
+        if (!instances.isEmpty()) {
+            fallbacks.computeIfAbsent(serviceId, id -> Counter.builder("gateway.registry.snapshot.fallback")
+                    .description("Sélections faites sur le snapshot local faute d'instances dans le registre")
+                    .tag("service", id)
+                    .register(meterRegistry)).increment();
+        }
+        return instances;
+    }
+
+    /**
+     * Vrai dès que le registre a été lu une première fois : la découverte fait alors foi, même vide.
+     */
+    public boolean isRegistryFetched() {
+        return registryFetched;
+    }
+
+    @EventListener(HeartbeatEvent.class)
+    public void onRegistryRefresh() {
+        if (enabled) {
+            Schedulers.boundedElastic().schedule(this::capture);
+        }
+    }
+
+    @PreDestroy
+    void stop() {
+        if (enabled) {
+            capture();
+        }
+    }
+
+    synchronized void capture() {
+        Map<String, List<RegistrySnapshotFile.Instance>> services = new TreeMap<>();
+        long now = System.currentTimeMillis();
+        try {
+            List<String> serviceIds = discoveryClient.getServices();
+            // Registre vide : premier fetch Eureka pas encore fait, on garde le snapshot précédent
+            if (serviceIds.isEmpty()) {
+                return;
+            }
+            for (String serviceId : serviceIds) {
+                List<ServiceInstance> instances = discoveryClient.getInstances(serviceId);
+                if (!instances.isEmpty()) {
+                    lastKnown.put(serviceId, new Known(List.copyOf(instances), now));
+                    services.put(serviceId, instances.stream().map(RegistrySnapshotStore::toSnapshot).toList());
+                }
+            }
+        } catch (RuntimeException e) {
+            log.warn("⚠️ Failed to read the discovery registry: {}", e.getMessage());
+            return;
+        }
+        // Service retiré du registre ou ramené à zéro instance : ses anciennes adresses ne sont plus servies
+        lastKnown.keySet().retainAll(services.keySet());
+        registryFetched = true;
+        if (written != null && services.equals(written.getServices())) {
+            return;
+        }
+        RegistrySnapshotFile snapshot = new RegistrySnapshotFile(now, services);
+        try {
+            write(snapshot);
+            written = snapshot;
+            log.debug("Registry snapshot written: {} services", services.size());
+        } catch (IOException | RuntimeException e) {
+            log.warn("⚠️ Failed to write registry snapshot {}: {}", path, e.getMessage());
+        }
+    }
+
+    private void write(RegistrySnapshotFile snapshot) throws IOException {
+        boolean posix = isPosix();
+        Path parent = path.toAbsolutePath().getParent();
+        if (parent != null && !Files.isDirectory(parent)) {
+            Files.createDirectories(parent, posix
+                    ? new FileAttribute<?>[]{PosixFilePermissions.asFileAttribute(PRIVATE_DIRECTORY)}
+                    : new FileAttribute<?>[0]);
+        }
+        // Fichier temporaire recréé privé avant d'y écrire la moindre adresse
+        Path tmp = path.resolveSibling(path.getFileName() + ".tmp");
+        Files.deleteIfExists(tmp);
+        if (posix) {
+            Files.createFile(tmp, PosixFilePermissions.asFileAttribute(PRIVATE_FILE));
+        } else {
+            Files.createFile(tmp);
+        }
+        objectMapper.writeValue(tmp.toFile(), snapshot);
+        Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private void load() {
+        if (!Files.isRegularFile(path)) {
+            log.info("🗂️ No registry snapshot at {}, waiting for the first Eureka fetch", path);
+            return;
+        }
+        try {
+            if (isPosix() && !PRIVATE_FILE.containsAll(Files.getPosixFilePermissions(path))) {
+                log.warn("⚠️ Registry snapshot {} is accessible to other users, ignored", path);
+                return;
+            }
+            RegistrySnapshotFile snapshot = objectMapper.readValue(path.toFile(), RegistrySnapshotFile.class);
+            if (System.currentTimeMillis() - snapshot.getCreatedAt() > maxAge.toMillis()) {
+                log.info("🗂️ Registry snapshot {} is older than {}, ignored", path, maxAge);
+                return;
+            }
+            snapshot.getServices().forEach((serviceId, instances) -> lastKnown.put(serviceId, new Known(
+                    instances.stream().map(instance -> fromSnapshot(serviceId, instance)).toList(),
+                    snapshot.getCreatedAt())));
+            written = snapshot;
+            log.info("🗂️ Registry snapshot loaded: {} services, {} instances", lastKnown.size(),
+                    lastKnown.values().stream().mapToInt(known -> known.instances().size()).sum());
+        } catch (IOException | RuntimeException e) {
+            log.warn("⚠️ Failed to load registry snapshot {}: {}", path, e.getMessage());
+        }
+    }
+
+    private boolean isPosix() {
+        return path.getFileSystem().supportedFileAttributeViews().contains("posix");
+    }
+
+    private static RegistrySnapshotFile.Instance toSnapshot(ServiceInstance instance) {
+        return new RegistrySnapshotFile.Instance(instance.getInstanceId(), instance.getHost(), instance.getPort(),
+                instance.isSecure(), instance.getMetadata() == null ? Map.of() : new TreeMap<>(instance.getMetadata()));
+    }
+
+    private static ServiceInstance fromSnapshot(String serviceId, RegistrySnapshotFile.Instance instance) {
+        return new DefaultServiceInstance(instance.getInstanceId(), serviceId, instance.getHost(), instance.getPort(),
+                instance.isSecure(), instance.getMetadata() == null ? Map.of() : instance.getMetadata());
+    }
+}
@@ -0,0 +1,72 @@
+package com.bacos.mokengeli.biloko.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * Cache négatif court des JTI refusés par l'Authentication-Service (jti → statut de refus).
+ * <p>
+ * Un client qui rejoue un jeton révoqué est refusé localement sans nouvel appel amont.
+ * Consulté uniquement après un miss du {@link SessionCache} : un JTI présent dans le cache positif
+ * (nouvelle connexion, remplissage par un pair ou par le flux) reste toujours autorisé.
+ * Un JTI que le {@link SessionCache} enregistre (remplissage, patch d'un pair ou du flux, snapshot)
+ * est aussitôt retiré d'ici.
+ */
+@Slf4j
+@Component
+public class RejectedJtiCache {
+
+    private final Cache<String, HttpStatus> rejected;
+    private final Counter absorbed;
+
+    public RejectedJtiCache(@Value("${session.negative-cache.ttl-seconds:30}") long ttlSeconds,
+                            @Value("${session.negative-cache.max-size:100000}") long maxSize,
+                            SessionCache sessionCache,
+                            MeterRegistry meterRegistry) {
+        this.rejected = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .build();
+        this.absorbed = Counter.builder("gateway.session.negative-cache.absorbed")
+                .description("Appels vers l'Authentication-Service évités grâce au cache négatif")
+                .register(meterRegistry);
+        sessionCache.onJtisStored(this::forget);
+    }
+
+    /**
+     * Statut de refus mémorisé pour ce JTI, ou null.
+     */
+    public HttpStatus rejection(String jti) {
+        HttpStatus status = rejected.getIfPresent(jti);
+        if (status != null) {
+            absorbed.increment();
+        }
+        return status;
+    }
+
+    public void reject(String jti, HttpStatus status) {
+        rejected.put(jti, status);
+        log.debug("JTI {} rejected with {}", jti, status);
+    }
+
+    /**
+     * Les JTI d'une liste de sessions actives ne sont plus refusés.
+     */
+    void forget(JtiSet jtis) {
+        // Cas courant : rien de refusé, aucune conversion des JTI
+        if (rejected.estimatedSize() == 0) {
+            return;
+        }
+        for (String jti : jtis.toList()) {
+            rejected.invalidate(jti);
+        }
+    }
+}
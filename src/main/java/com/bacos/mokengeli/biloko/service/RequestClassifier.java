@@ -0,0 +1,130 @@
+package com.bacos.mokengeli.biloko.service;
+
+import com.bacos.mokengeli.biloko.model.RequestClass;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cloud.gateway.config.GatewayProperties;
+import org.springframework.cloud.gateway.handler.predicate.PredicateDefinition;
+import org.springframework.cloud.gateway.route.RouteDefinition;
+import org.springframework.http.server.PathContainer;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.util.pattern.PathPattern;
+import org.springframework.web.util.pattern.PathPatternParser;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Classe les requêtes (route publique, login/refresh, logout, Socket.io, route cible) en une seule passe.
+ * <p>
+ * Tous les chemins configurés sont compilés au démarrage en {@link PathPattern} et indexés par premier
+ * segment : une requête n'est confrontée qu'aux motifs de son segment (plus ceux commençant par un joker),
+ * quel que soit le nombre total de chemins. Le résultat est mémorisé dans {@link RequestClass#ATTRIBUTE}.
+ */
+@Slf4j
+@Component
+public class RequestClassifier {
+
+    private static final int PUBLIC = 1;
+    private static final int AUTH_ENDPOINT = 1 << 1;
+    private static final int LOGOUT = 1 << 2;
+    private static final int SOCKET_IO = 1 << 3;
+
+    private static final Rule[] NO_RULES = new Rule[0];
+
+    private record Rule(PathPattern pattern, int flags, String routeId) {
+    }
+
+    private final Map<String, Rule[]> bySegment;
+    private final Rule[] wildcard;
+
+    public RequestClassifier(@Value("${gateway.public-paths:/public/**}") List<String> publicPaths,
+                             @Value("${gateway.auth-endpoints:/api/auth/login/**,/api/auth/refresh/**}") List<String> authEndpoints,
+                             @Value("${gateway.peer-sync.logout-paths:/api/auth/logout}") List<String> logoutPaths,
+                             @Value("${gateway.socket-io-paths:/socket.io/**,/api/order/socket.io/**,/api/order/socketio/**}") List<String> socketIoPaths,
+                             GatewayProperties gatewayProperties) {
+        PathPatternParser parser = PathPatternParser.defaultInstance;
+        List<Rule> rules = new ArrayList<>();
+        publicPaths.forEach(p -> rules.add(new Rule(parser.parse(p), PUBLIC, null)));
+        authEndpoints.forEach(p -> rules.add(new Rule(parser.parse(p), AUTH_ENDPOINT, null)));
+        logoutPaths.forEach(p -> rules.add(new Rule(parser.parse(p), LOGOUT, null)));
+        socketIoPaths.forEach(p -> rules.add(new Rule(parser.parse(p), SOCKET_IO, null)));
+        for (RouteDefinition route : gatewayProperties.getRoutes()) {
+            for (PredicateDefinition predicate : route.getPredicates()) {
+                if ("Path".equals(predicate.getName())) {
+                    predicate.getArgs().values()
+                            .forEach(p -> rules.add(new Rule(parser.parse(p), 0, route.getId())));
+                }
+            }
+        }
+
+        Map<String, List<Rule>> grouped = new HashMap<>();
+        List<Rule> wildcardRules = new ArrayList<>();
+        for (Rule rule : rules) {
+            String segment = literalFirstSegment(rule.pattern().getPatternString());
+            if (segment == null) {
+                wildcardRules.add(rule);
+            } else {
+                grouped.computeIfAbsent(segment, s -> new ArrayList<>()).add(rule);
+            }
+        }
+        this.bySegment = new HashMap<>();
+        grouped.forEach((segment, list) -> bySegment.put(segment, list.toArray(NO_RULES)));
+        this.wildcard = wildcardRules.toArray(NO_RULES);
+        log.info("🧭 Request classifier compiled: {} patterns in {} segments ({} wildcard)",
+                rules.size(), bySegment.size(), wildcard.length);
+    }
+
+    /**
+     * Classification de l'échange, calculée et mémorisée au premier appel.
+     */
+    public RequestClass current(ServerWebExchange exchange) {
+        RequestClass requestClass = exchange.getAttribute(RequestClass.ATTRIBUTE);
+        if (requestClass == null) {
+            requestClass = classify(exchange.getRequest().getPath().pathWithinApplication());
+            exchange.getAttributes().put(RequestClass.ATTRIBUTE, requestClass);
+        }
+        return requestClass;
+    }
+
+    public RequestClass classify(PathContainer path) {
+        int flags = 0;
+        String routeId = null;
+        Rule[] candidates = bySegment.getOrDefault(firstSegment(path.value()), NO_RULES);
+        int total = candidates.length + wildcard.length;
+        for (int i = 0; i < total; i++) {
+            Rule rule = i < candidates.length ? candidates[i] : wildcard[i - candidates.length];
+            if (rule.pattern().matches(path)) {
+                flags |= rule.flags();
+                if (routeId == null) {
+                    routeId = rule.routeId();
+                }
+            }
+        }
+        return new RequestClass((flags & PUBLIC) != 0, (flags & AUTH_ENDPOINT) != 0,
+                (flags & LOGOUT) != 0, (flags & SOCKET_IO) != 0, routeId);
+    }
+
+    private static String firstSegment(String path) {
+        int start = path.startsWith("/") ? 1 : 0;
+        int end = path.indexOf('/', start);
+        return end < 0 ? path.substring(start) : path.substring(start, end);
+    }
+
+    /**
+     * Premier segment du motif s'il est littéral, null s'il contient un joker ou une variable.
+     */
+    private static String literalFirstSegment(String pattern) {
+        String segment = firstSegment(pattern);
+        for (int i = 0; i < segment.length(); i++) {
+            char c = segment.charAt(i);
+            if (c == '*' || c == '?' || c == '{') {
+                return null;
+            }
+        }
+        return segment;
+    }
+}
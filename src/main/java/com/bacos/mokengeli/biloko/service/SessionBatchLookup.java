@@ -0,0 +1,208 @@
+package com.bacos.mokengeli.biloko.service;
+
+import com.bacos.mokengeli.biloko.config.SessionProperties;
+import com.bacos.mokengeli.biloko.model.SessionKey;
+import com.bacos.mokengeli.biloko.model.SessionListResponse;
+import com.bacos.mokengeli.biloko.model.SessionLookupItem;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.FluxSink;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Regroupe les misses du cache de sessions en recherches groupées vers l'Authentication-Service.
+ * <p>
+ * Les demandes sont accumulées pendant {@code window} ou jusqu'à {@code max-size} éléments,
+ * puis envoyées en un seul POST ; chaque réponse est redistribuée à l'appelant qui l'attend.
+ * Un lot d'un seul élément utilise l'endpoint unitaire.
+ * <p>
+ * Un lot refusé avec un statut HTTP (endpoint absent ou en erreur) est repris clé par clé sur l'endpoint unitaire ;
+ * une clé absente de la réponse est une indisponibilité ({@link SessionLookupUnavailableException}), jamais un refus.
+ * <p>
+ * Robustesse : le découpage en lots suit la demande aval ({@code bufferTimeout} équitable), un lot en échec
+ * n'échoue que ses propres appelants, et l'émission ne boucle jamais sur l'event loop. Si le pipeline n'est
+ * pas disponible, la recherche part directement sur l'endpoint unitaire.
+ */
+@Slf4j
+@Component
+public class SessionBatchLookup {
+
+    private record Pending(SessionLookupItem item, Sinks.One<SessionListResponse> result) {
+    }
+
+    private final AuthInternalClient authInternalClient;
+    private final boolean enabled;
+    private final int maxSize;
+    private final Duration window;
+    private final int concurrency;
+
+    // FluxSink de Flux.create : émission concurrente sérialisée sans attente active ; null si arrêté
+    private volatile FluxSink<Pending> queue;
+    private Disposable pipeline;
+
+    private final Counter batchRequests;
+    private final DistributionSummary batchSize;
+    private final Counter bypassed;
+    private final Counter unsupported;
+
+    public SessionBatchLookup(AuthInternalClient authInternalClient, SessionProperties properties,
+                              MeterRegistry meterRegistry) {
+        SessionProperties.Batch settings = properties.getLookup().getBatch();
+        this.authInternalClient = authInternalClient;
+        this.enabled = settings.isEnabled();
+        this.maxSize = settings.getMaxSize();
+        this.window = settings.getWindow();
+        this.concurrency = settings.getConcurrency();
+        this.batchRequests = Counter.builder("gateway.session.lookup.batch.requests")
+                .description("Requêtes groupées envoyées à l'Authentication-Service")
+                .register(meterRegistry);
+        this.batchSize = DistributionSummary.builder("gateway.session.lookup.batch.size")
+                .description("Nombre de clés par lot")
+                .register(meterRegistry);
+        this.bypassed = Counter.builder("gateway.session.lookup.batch.bypassed")
+                .description("Recherches envoyées à l'endpoint unitaire faute de pipeline de lots")
+                .register(meterRegistry);
+        this.unsupported = Counter.builder("gateway.session.lookup.batch.unsupported")
+                .description("Lots refusés par l'Authentication-Service (statut HTTP), repris clé par clé")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        pipeline = Flux.<Pending>create(sink -> queue = sink, FluxSink.OverflowStrategy.BUFFER)
+                // Backpressure équitable : jamais plus de lots que flatMap n'en demande (sinon overflow)
+                .bufferTimeout(maxSize, window, true)
+                .flatMap(this::dispatch, concurrency)
+                .subscribe(v -> { }, err -> {
+                    // Ne devrait pas arriver (chaque lot absorbe ses erreurs) : on repasse en unitaire
+                    queue = null;
+                    log.error("❌ Session lookup batching pipeline stopped, falling back to single lookups", err);
+                });
+        log.info("📦 Session lookup batching enabled (window {}, max {} keys)", window, maxSize);
+    }
+
+    @PreDestroy
+    public void stop() {
+        FluxSink<Pending> sink = queue;
+        queue = null;
+        if (sink != null) {
+            sink.complete();
+        }
+        if (pipeline != null) {
+            pipeline.dispose();
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Ajoute la clé au lot en cours et attend sa réponse.
+     */
+    public Mono<SessionListResponse> lookup(String accessToken, String employeeNumber, String appType) {
+        return Mono.defer(() -> {
+            FluxSink<Pending> sink = queue;
+            if (sink == null || sink.isCancelled()) {
+                bypassed.increment();
+                return authInternalClient.list(accessToken, employeeNumber, appType);
+            }
+            Sinks.One<SessionListResponse> result = Sinks.one();
+            sink.next(new Pending(new SessionLookupItem(employeeNumber, appType, accessToken), result));
+            return result.asMono();
+        });
+    }
+
+    /**
+     * Envoie un lot ; toute erreur, même levée avant l'appel, est transmise aux seuls appelants du lot.
+     */
+    private Mono<Void> dispatch(List<Pending> batch) {
+        return Mono.defer(() -> send(batch))
+                .onErrorResume(err -> {
+                    batch.forEach(p -> p.result().tryEmitError(err));
+                    return Mono.empty();
+                });
+    }
+
+    private Mono<Void> send(List<Pending> batch) {
+        batchSize.record(batch.size());
+        if (batch.size() == 1) {
+            return single(batch.get(0));
+        }
+
+        Map<SessionKey, List<Pending>> waiting = new HashMap<>();
+        List<SessionLookupItem> items = new ArrayList<>(batch.size());
+        for (Pending pending : batch) {
+            SessionLookupItem item = pending.item();
+            waiting.computeIfAbsent(SessionCache.key(item.getEmployeeNumber(), item.getAppType()), k -> new ArrayList<>())
+                    .add(pending);
+            items.add(item);
+        }
+
+        batchRequests.increment();
+        log.debug("Session lookup batch of {} keys", waiting.size());
+        return authInternalClient.listBatch(items)
+                .doOnNext(resp -> {
+                    List<Pending> receivers = waiting.remove(SessionCache.key(resp.getEmployeeNumber(), resp.getAppType()));
+                    if (receivers != null) {
+                        receivers.forEach(p -> p.result().tryEmitValue(resp));
+                    }
+                })
+                .then(Mono.<Void>fromRunnable(() -> waiting.forEach((key, list) -> {
+                    // Clé absente de la réponse : rien ne dit que le jeton est refusé, l'appelant passe en mode dégradé
+                    SessionLookupUnavailableException missing = new SessionLookupUnavailableException(
+                            "No session list returned for " + key + " by the batch lookup", null);
+                    list.forEach(p -> p.result().tryEmitError(missing));
+                })))
+                .onErrorResume(WebClientResponseException.class, err -> {
+                    // Statut HTTP du lot (route absente, version antérieure...) : lot non pris en charge, pas un refus
+                    unsupported.increment();
+                    log.warn("⚠️ Session lookup batch rejected with {}, {} keys retried one by one",
+                            err.getStatusCode().value(), waiting.size());
+                    return Flux.fromIterable(List.copyOf(waiting.values()))
+                            .flatMapIterable(list -> list)
+                            .flatMap(this::single)
+                            .then();
+                })
+                .doOnError(err -> {
+                    log.warn("⚠️ Session lookup batch failed ({} keys): {}", waiting.size(), err.getMessage());
+                    waiting.values().forEach(list -> list.forEach(p -> p.result().tryEmitError(err)));
+                })
+                .onErrorResume(err -> Mono.empty());
+    }
+
+    /**
+     * Recherche unitaire pour un seul appelant ; le résultat, erreur comprise, ne va qu'à lui.
+     */
+    private Mono<Void> single(Pending pending) {
+        SessionLookupItem item = pending.item();
+        return authInternalClient.list(item.getAccessToken(), item.getEmployeeNumber(), item.getAppType())
+                .doOnNext(resp -> pending.result().tryEmitValue(resp))
+                .doOnError(err -> pending.result().tryEmitError(err))
+                .doOnSuccess(resp -> {
+                    if (resp == null) {
+                        pending.result().tryEmitEmpty();
+                    }
+                })
+                .then()
+                .onErrorResume(err -> Mono.empty());
+    }
+}
@@ -1,29 +1,400 @@
 package com.bacos.mokengeli.biloko.service;
 
+import com.bacos.mokengeli.biloko.config.SessionProperties;
+import com.bacos.mokengeli.biloko.model.SessionKey;
+import com.bacos.mokengeli.biloko.model.SessionListResponse;
 import com.github.benmanes.caffeine.cache.Cache;
 import com.github.benmanes.caffeine.cache.Caffeine;
-import org.springframework.beans.factory.annotation.Value;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
 
 import java.time.Duration;
+import java.time.Instant;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
 
+/**
+ * Cache des JTI actifs par employeeNumber:appType.
+ * <p>
+ * Stockage compact : clé {@link SessionKey}, JTI dans un {@link JtiSet} (UUID sur deux longs, lookup sans allocation).
+ * <p>
+ * Mode refresh-ahead (optionnel) : une entrée est fraîche pendant {@code ttl-seconds}, puis reste servie
+ * pendant au plus {@code max-stale-seconds} le temps qu'un rechargement asynchrone la remplace.
+ * <p>
+ * Flux de révocation connecté : les entrées chargées pendant la connexion vivent {@code feed-ttl-seconds},
+ * les révocations arrivant par le flux. Si le flux tombe, on revient au TTL court.
+ * <p>
+ * Mode dégradé : la dernière entrée connue de chaque clé reste disponible via {@link #getFallback}
+ * pendant {@code fallback.max-staleness-seconds} après son chargement, pour servir les requêtes
+ * lorsque l'Authentication-Service est indisponible. Les révocations s'y appliquent aussi.
+ * <p>
+ * Durée de vie par entrée : une liste n'est jamais conservée au-delà du plus proche {@code expiresAt}
+ * de ses sessions. Avec {@code variable-ttl.enabled}, une entrée dont les sessions vivent longtemps
+ * reste fraîche jusqu'à {@code variable-ttl.max-ttl-seconds} au lieu du TTL global.
+ * Hits, misses et rechargements sont comptés par tranche de durée de vie ({@link #EXPIRY_BUCKETS}).
+ * <p>
+ * Remplissages concurrents des révocations : chaque patch / invalidation date la clé. Un remplissage issu d'un
+ * appel lancé avant cette date est refusé ({@code put} retourne null), sinon la liste lue avant la révocation
+ * réintroduirait le JTI révoqué pour toute la durée de vie de l'entrée.
+ */
+@Slf4j
 @Component
 public  class SessionCache {
-    private final Cache<String, List<String>> cache;
 
-    public SessionCache(@Value("${session.cache.ttl-seconds:120}") long ttlSeconds) {
+    // Tranches de durée de vie (fraîcheur) pour les métriques
+    static final String[] EXPIRY_BUCKETS = {"0-2m", "2-15m", "15-60m", "60m+"};
+    private static final long[] EXPIRY_BUCKET_LIMITS_MILLIS = {
+            Duration.ofMinutes(2).toMillis(), Duration.ofMinutes(15).toMillis(), Duration.ofMinutes(60).toMillis()};
+    // Conservation de la date de modification d'une clé : bien au-delà de la durée d'un appel amont
+    private static final Duration TOUCH_RETENTION = Duration.ofMinutes(2);
+    private static final long TOUCH_RETENTION_NANOS = TOUCH_RETENTION.toNanos();
+
+    private final Cache<SessionKey, Entry> cache;
+    // Dernière entrée connue par clé, conservée au-delà du TTL pour le mode dégradé (null si désactivé)
+    private final Cache<SessionKey, Entry> lastKnown;
+    // Dernier patch / invalidation par clé (System.nanoTime) ; jamais évincé avant TOUCH_RETENTION
+    private final Cache<SessionKey, Long> touchedAt;
+    private volatile long flushedAtNanos = Long.MIN_VALUE;
+    private final long ttlMillis;
+    private final long feedTtlMillis;
+    private final long maxStaleMillis;
+    private final boolean refreshAhead;
+    private final boolean variableTtl;
+    private final long maxVariableTtlMillis;
+
+    private final Counter[] hitsByBucket = new Counter[EXPIRY_BUCKETS.length];
+    private final Counter[] refreshesByBucket = new Counter[EXPIRY_BUCKETS.length];
+    private final Counter misses;
+    private final Counter supersededFills;
+
+    private volatile boolean feedConnected;
+    // Abonné aux JTI ajoutés (remplissage, patch, restauration), voir RejectedJtiCache
+    private volatile Consumer<JtiSet> jtisStored = jtis -> { };
+
+    public SessionCache(SessionProperties properties, MeterRegistry meterRegistry) {
+        SessionProperties.Cache settings = properties.getCache();
+        long ttlSeconds = settings.getTtlSeconds();
+        boolean refreshAhead = settings.getRefreshAhead().isEnabled();
+        long maxStaleSeconds = settings.getRefreshAhead().getMaxStaleSeconds();
+        boolean variableTtl = settings.getVariableTtl().isEnabled();
+        long maxVariableTtlSeconds = settings.getVariableTtl().getMaxTtlSeconds();
+        long fallbackMaxStalenessSeconds = settings.getFallback().getMaxStalenessSeconds();
+        this.ttlMillis = Duration.ofSeconds(ttlSeconds).toMillis();
+        this.feedTtlMillis = Duration.ofSeconds(properties.getRevocationFeed().getCacheTtlSeconds()).toMillis();
+        this.maxStaleMillis = refreshAhead ? Duration.ofSeconds(maxStaleSeconds).toMillis() : 0;
+        this.refreshAhead = refreshAhead;
+        this.variableTtl = variableTtl;
+        this.maxVariableTtlMillis = Duration.ofSeconds(maxVariableTtlSeconds).toMillis();
+        for (int i = 0; i < EXPIRY_BUCKETS.length; i++) {
+            hitsByBucket[i] = Counter.builder("gateway.session.cache.requests")
+                    .description("Consultations du cache de sessions")
+                    .tag("result", "hit").tag("bucket", EXPIRY_BUCKETS[i])
+                    .register(meterRegistry);
+            refreshesByBucket[i] = Counter.builder("gateway.session.cache.refreshes")
+                    .description("Chargements d'entrées depuis l'Authentication-Service")
+                    .tag("bucket", EXPIRY_BUCKETS[i])
+                    .register(meterRegistry);
+        }
+        this.misses = Counter.builder("gateway.session.cache.requests")
+                .description("Consultations du cache de sessions")
+                .tag("result", "miss").tag("bucket", "none")
+                .register(meterRegistry);
+        this.supersededFills = Counter.builder("gateway.session.cache.superseded-fills")
+                .description("Remplissages refusés : la clé a été révoquée ou invalidée pendant l'appel")
+                .register(meterRegistry);
+        // Sans limite de taille : une éviction effacerait justement la date qui protège une révocation.
+        // Le volume est celui des révocations des deux dernières minutes.
+        this.touchedAt = Caffeine.newBuilder()
+                .expireAfterWrite(TOUCH_RETENTION)
+                .build();
         this.cache = Caffeine.newBuilder()
                 .maximumSize(500_000)
-                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                // Expiration propre à chaque entrée (voir Entry#expiresAtMillis)
+                .expireAfter(Expiry.<SessionKey, Entry>writing((key, entry) ->
+                        Duration.ofMillis(Math.max(0, entry.expiresAtMillis() - System.currentTimeMillis()))))
                 .build();
+        this.lastKnown = fallbackMaxStalenessSeconds > 0
+                ? Caffeine.newBuilder()
+                .maximumSize(500_000)
+                .expireAfterWrite(Duration.ofSeconds(fallbackMaxStalenessSeconds))
+                .<SessionKey, Entry>build()
+                : null;
+        if (refreshAhead) {
+            log.info("♻️ Session cache refresh-ahead enabled (ttl {}s, max stale {}s)", ttlSeconds, maxStaleSeconds);
+        }
+        if (variableTtl) {
+            log.info("⏳ Session cache variable TTL enabled (up to {}s, bounded by session expiry)", maxVariableTtlSeconds);
+        }
+    }
+
+    public static SessionKey key(String employeeNumber, String appType) {
+        return new SessionKey(employeeNumber, appType);
+    }
+
+    /**
+     * Entrée du cache, éventuellement périmée (voir {@link Entry#isStale()}) en mode refresh-ahead.
+     */
+    public Entry getEntry(SessionKey key) {
+        Entry entry = cache.getIfPresent(key);
+        if (entry != null && !feedConnected && entry.feedBacked()
+                && System.currentTimeMillis() > entry.loadedAtMillis() + ttlMillis) {
+            // Chargée sous couverture du flux, qui est maintenant coupé : TTL court
+            cache.invalidate(key);
+            return null;
+        }
+        if (entry == null) {
+            misses.increment();
+        } else {
+            hitsByBucket[bucketOf(entry)].increment();
+        }
+        return entry;
+    }
+
+    /**
+     * Enregistre la réponse de l'Authentication-Service et retourne l'entrée créée,
+     * ou null si la clé a été modifiée depuis le lancement de l'appel.
+     *
+     * @param lookupStartNanos {@link System#nanoTime()} au lancement de l'appel amont
+     */
+    public Entry put(SessionKey key, SessionListResponse response, long lookupStartNanos) {
+        Instant earliestExpiry = response.earliestExpiry();
+        Entry entry = put(key, response.extractJtis(), response.getMaxSessions(),
+                earliestExpiry != null ? earliestExpiry.toEpochMilli() : null, lookupStartNanos);
+        if (entry != null) {
+            refreshesByBucket[bucketOf(entry)].increment();
+        }
+        return entry;
+    }
+
+    /**
+     * @param sessionsExpireAtMillis plus proche expiration des sessions (epoch ms), null si inconnue
+     * @param lookupStartNanos       {@link System#nanoTime()} au lancement de l'appel qui a produit la liste
+     * @return l'entrée créée, null si la clé a été patchée ou invalidée depuis {@code lookupStartNanos}
+     */
+    public Entry put(SessionKey key, List<String> jtis, Integer maxSessions, Long sessionsExpireAtMillis,
+                     long lookupStartNanos) {
+        Entry entry = newEntry(JtiSet.of(jtis), maxSessions == null ? Integer.MAX_VALUE : maxSessions,
+                sessionsExpireAtMillis == null ? Long.MAX_VALUE : sessionsExpireAtMillis, lookupStartNanos);
+        // Vérification et écriture atomiques vis-à-vis de patch / invalidate (même verrou de clé)
+        boolean[] superseded = {false};
+        cache.asMap().compute(key, (k, current) -> {
+            if (isTouchedSince(k, lookupStartNanos)) {
+                superseded[0] = true;
+                return current;
+            }
+            return entry;
+        });
+        if (superseded[0]) {
+            supersededFills.increment();
+            log.debug("Session fill for {} superseded by a revocation", key);
+            return null;
+        }
+        if (lastKnown != null) {
+            lastKnown.put(key, entry);
+        }
+        jtisStored.accept(entry.jtis());
+        return entry;
+    }
+
+    /**
+     * Dernière entrée connue, même expirée du cache principal, si elle a moins de
+     * {@code fallback.max-staleness-seconds} ; null sinon.
+     */
+    public Entry getFallback(SessionKey key) {
+        Entry entry = lastKnown != null ? lastKnown.getIfPresent(key) : null;
+        // Jamais de repli sur des sessions déjà expirées
+        return entry != null && System.currentTimeMillis() < entry.sessionsExpireAtMillis() ? entry : null;
+    }
+
+    /**
+     * Remplace les JTI d'une entrée existante sans toucher à ses dates. Même absente, la clé est datée :
+     * un remplissage en cours sera refusé.
+     */
+    public void patch(SessionKey key, JtiSet jtis) {
+        cache.asMap().compute(key, (k, entry) -> {
+            touch(k);
+            return entry == null ? null : entry.withJtis(jtis);
+        });
+        if (lastKnown != null) {
+            lastKnown.asMap().computeIfPresent(key, (k, entry) -> entry.withJtis(jtis));
+        }
+        jtisStored.accept(jtis);
+    }
+
+    /**
+     * Retire un JTI de l'entrée, si présente ; la clé est datée dans tous les cas.
+     */
+    public void revoke(SessionKey key, String jti) {
+        cache.asMap().compute(key, (k, entry) -> {
+            touch(k);
+            return entry == null ? null : entry.withJtis(entry.jtis().without(jti));
+        });
+        if (lastKnown != null) {
+            lastKnown.asMap().computeIfPresent(key, (k, entry) -> entry.withJtis(entry.jtis().without(jti)));
+        }
+    }
+
+    public void invalidate(SessionKey key) {
+        cache.asMap().compute(key, (k, entry) -> {
+            touch(k);
+            return null;
+        });
+        if (lastKnown != null) {
+            lastKnown.invalidate(key);
+        }
     }
 
-    public List<String> get(String key) {
-        return cache.getIfPresent(key);
+    public void invalidateAll() {
+        flushedAtNanos = System.nanoTime();
+        cache.invalidateAll();
+        if (lastKnown != null) {
+            lastKnown.invalidateAll();
+        }
     }
 
-    public void put(String key, List<String> value) {
-        cache.put(key, value);            // TTL appliqué globalement par expireAfterWrite()
+    /**
+     * Parcourt les entrées présentes (pour le snapshot sur disque).
+     */
+    public void forEach(BiConsumer<SessionKey, Entry> action) {
+        cache.asMap().forEach(action);
+    }
+
+    /**
+     * Réinjecte une entrée issue d'un snapshot : ignorée si expirée, si la clé a déjà été rechargée, ou si elle
+     * a été patchée, invalidée ou vidée (flush) depuis le début du chargement ; sinon une révocation reçue
+     * pendant le chargement serait écrasée par la liste du snapshot.
+     * <p>
+     * Les révocations survenues pendant l'arrêt n'ont pas été reçues : l'entrée n'est plus adossée au flux
+     * et sa durée de vie est ramenée au TTL court ({@code ttl-seconds}) compté depuis son chargement.
+     *
+     * @param loadStartNanos {@link System#nanoTime()} au début du chargement du snapshot
+     */
+    public boolean restore(SessionKey key, Entry entry, long loadStartNanos) {
+        long freshUntil = Math.min(entry.freshUntilMillis(), entry.loadedAtMillis() + ttlMillis);
+        long expiresAt = Math.min(entry.expiresAtMillis(), freshUntil + maxStaleMillis);
+        if (expiresAt <= System.currentTimeMillis()) {
+            return false;
+        }
+        // Horloge monotone propre au processus : l'appel d'origine est daté à partir de son chargement
+        long lookupStartNanos = System.nanoTime()
+                - TimeUnit.MILLISECONDS.toNanos(Math.max(0, System.currentTimeMillis() - entry.loadedAtMillis()));
+        Entry restored = new Entry(entry.jtis(), entry.maxSessions(), entry.loadedAtMillis(), freshUntil, expiresAt,
+                false, entry.sessionsExpireAtMillis(), lookupStartNanos);
+        // Même verrou de clé que patch / invalidate
+        boolean[] applied = {false};
+        cache.asMap().compute(key, (k, current) -> {
+            if (current != null || isTouchedSince(k, loadStartNanos)) {
+                return current;
+            }
+            applied[0] = true;
+            return restored;
+        });
+        if (applied[0]) {
+            jtisStored.accept(restored.jtis());
+        }
+        return applied[0];
+    }
+
+    /**
+     * Abonne {@code listener} aux listes de JTI enregistrées (remplissage, pair, flux, snapshot), hors verrou de clé.
+     */
+    public void onJtisStored(Consumer<JtiSet> listener) {
+        this.jtisStored = listener;
+    }
+
+    public boolean isRefreshAhead() {
+        return refreshAhead;
+    }
+
+    public void setFeedConnected(boolean connected) {
+        if (this.feedConnected != connected) {
+            log.info("📡 Session revocation feed {}", connected ? "connected" : "disconnected");
+        }
+        this.feedConnected = connected;
+    }
+
+    private void touch(SessionKey key) {
+        touchedAt.put(key, System.nanoTime());
+    }
+
+    private boolean isTouchedSince(SessionKey key, long sinceNanos) {
+        if (flushedAtNanos != Long.MIN_VALUE && flushedAtNanos - sinceNanos >= 0) {
+            return true;
+        }
+        // Au-delà de la rétention, une modification a pu expirer : dans le doute, la clé est considérée modifiée
+        if (System.nanoTime() - sinceNanos >= TOUCH_RETENTION_NANOS) {
+            return true;
+        }
+        Long touched = touchedAt.getIfPresent(key);
+        return touched != null && touched - sinceNanos >= 0;
+    }
+
+    private Entry newEntry(JtiSet jtis, int maxSessions, long sessionsExpireAtMillis, long lookupStartNanos) {
+        long now = System.currentTimeMillis();
+        boolean feedBacked = feedConnected;
+        long ttl = feedBacked ? feedTtlMillis : ttlMillis;
+        if (sessionsExpireAtMillis != Long.MAX_VALUE) {
+            long cap = variableTtl ? Math.max(ttl, maxVariableTtlMillis) : ttl;
+            ttl = Math.max(0, Math.min(sessionsExpireAtMillis - now, cap));
+        }
+        long freshUntil = now + ttl;
+        long expiresAt = Math.min(freshUntil + maxStaleMillis, sessionsExpireAtMillis);
+        return new Entry(jtis, maxSessions, now, freshUntil, expiresAt, feedBacked, sessionsExpireAtMillis,
+                lookupStartNanos);
+    }
+
+    private static int bucketOf(Entry entry) {
+        long lifetime = entry.freshUntilMillis() - entry.loadedAtMillis();
+        for (int i = 0; i < EXPIRY_BUCKET_LIMITS_MILLIS.length; i++) {
+            if (lifetime <= EXPIRY_BUCKET_LIMITS_MILLIS[i]) {
+                return i;
+            }
+        }
+        return EXPIRY_BUCKETS.length - 1;
+    }
+
+    /**
+     * @param jtis             JTI actifs
+     * @param maxSessions      quota de sessions simultanées
+     * @param loadedAtMillis   date de chargement
+     * @param freshUntilMillis au-delà, l'entrée est servie mais doit être rechargée
+     * @param expiresAtMillis  au-delà, l'entrée est retirée du cache
+     * @param feedBacked       chargée pendant que le flux de révocation était connecté
+     * @param sessionsExpireAtMillis plus proche expiration des sessions, {@link Long#MAX_VALUE} si inconnue
+     * @param lookupStartNanos {@link System#nanoTime()} au lancement de l'appel qui a produit la liste
+     */
+    public record Entry(JtiSet jtis,
+                        int maxSessions,
+                        long loadedAtMillis,
+                        long freshUntilMillis,
+                        long expiresAtMillis,
+                        boolean feedBacked,
+                        long sessionsExpireAtMillis,
+                        long lookupStartNanos) {
+
+        public boolean isStale() {
+            return System.currentTimeMillis() > freshUntilMillis;
+        }
+
+        public boolean isQuotaReached() {
+            return jtis.size() >= maxSessions;
+        }
+
+        /**
+         * La liste a été demandée après {@code nanos} ({@link System#nanoTime()}) : elle connaît tout jeton émis avant.
+         */
+        public boolean isLookedUpSince(long nanos) {
+            return lookupStartNanos - nanos >= 0;
+        }
+
+        Entry withJtis(JtiSet newJtis) {
+            return new Entry(newJtis, maxSessions, loadedAtMillis, freshUntilMillis, expiresAtMillis, feedBacked,
+                    sessionsExpireAtMillis, lookupStartNanos);
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,312 @@
+package com.bacos.mokengeli.biloko.service;
+
+import com.bacos.mokengeli.biloko.model.SessionKey;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.scheduler.Schedulers;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileAttribute;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Snapshot binaire du {@link SessionCache} sur disque local, pour redémarrer à chaud lors d'un déploiement.
+ * <p>
+ * Écrit à l'arrêt et périodiquement (fichier temporaire puis renommage atomique). Au démarrage, le fichier est
+ * mappé en mémoire, son CRC vérifié, puis les entrées non expirées sont réinjectées en arrière-plan :
+ * une clé rechargée entre-temps depuis l'Authentication-Service n'est jamais écrasée. Les entrées restaurées
+ * ont manqué les révocations de l'arrêt : elles repartent avec le TTL court ({@link SessionCache#restore}).
+ * <p>
+ * Le fichier contient des JTI valides : il est écrit dans un répertoire privé (0700, fichier 0600) et
+ * ignoré au chargement s'il est modifiable par d'autres utilisateurs.
+ * <p>
+ * Format (big-endian) :
+ * <pre>
+ * magic "MKSC" | version u16 | createdAt i64 | count i32
+ * count × [ employeeNumber str | appType str | maxSessions i32 | loadedAt i64 | freshUntil i64
+ *           | expiresAt i64 | feedBacked u8 | sessionsExpireAt i64 | jtiCount i32
+ *           | jtiCount × ( 0 msb i64 lsb i64 | 1 str ) ]
+ * crc32 i64 (sur tout ce qui précède)
+ * str = longueur u16 + octets UTF-8
+ * </pre>
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "session.cache.snapshot", name = "enabled", havingValue = "true")
+public class SessionCacheSnapshot {
+
+    private static final int MAGIC = 0x4D4B5343; // "MKSC"
+    private static final short VERSION = 1;
+    private static final int HEADER_SIZE = 4 + 2 + 8 + 4;
+    private static final int TRAILER_SIZE = 8;
+    private static final byte JTI_UUID = 0;
+    private static final byte JTI_STRING = 1;
+    private static final Set<PosixFilePermission> PRIVATE_DIRECTORY = PosixFilePermissions.fromString("rwx------");
+    private static final Set<PosixFilePermission> PRIVATE_FILE = PosixFilePermissions.fromString("rw-------");
+
+    private final SessionCache sessionCache;
+    private final Path path;
+    private final Duration interval;
+    private final Duration maxAge;
+
+    private Disposable periodicWrites;
+
+    public SessionCacheSnapshot(SessionCache sessionCache,
+                                @Value("${session.cache.snapshot.path:${user.home}/.api-gateway/session-cache.bin}") Path path,
+                                @Value("${session.cache.snapshot.interval:PT1M}") Duration interval,
+                                @Value("${session.cache.snapshot.max-age:PT10M}") Duration maxAge) {
+        this.sessionCache = sessionCache;
+        this.path = path;
+        this.interval = interval;
+        this.maxAge = maxAge;
+    }
+
+    @PostConstruct
+    void start() {
+        // Chargement en arrière-plan : le démarrage n'attend pas la lecture du fichier.
+        // Les révocations reçues à partir d'ici priment sur le snapshot.
+        long loadStart = System.nanoTime();
+        Schedulers.boundedElastic().schedule(() -> load(loadStart));
+        periodicWrites = Flux.interval(interval, interval, Schedulers.boundedElastic())
+                .subscribe(tick -> writeQuietly());
+    }
+
+    @PreDestroy
+    void stop() {
+        if (periodicWrites != null) {
+            periodicWrites.dispose();
+        }
+        writeQuietly();
+    }
+
+    private void writeQuietly() {
+        try {
+            long start = System.nanoTime();
+            int count = write();
+            log.debug("Session cache snapshot written: {} entries in {} ms",
+                    count, Duration.ofNanos(System.nanoTime() - start).toMillis());
+        } catch (IOException | RuntimeException e) {
+            log.warn("⚠️ Failed to write session cache snapshot {}: {}", path, e.getMessage());
+        }
+    }
+
+    public int write() throws IOException {
+        List<Map.Entry<SessionKey, SessionCache.Entry>> entries = new ArrayList<>();
+        sessionCache.forEach((key, entry) -> entries.add(Map.entry(key, entry)));
+
+        boolean posix = isPosix();
+        Path parent = path.toAbsolutePath().getParent();
+        if (parent != null && !Files.isDirectory(parent)) {
+            Files.createDirectories(parent, posix
+                    ? new FileAttribute<?>[]{PosixFilePermissions.asFileAttribute(PRIVATE_DIRECTORY)}
+                    : new FileAttribute<?>[0]);
+        }
+        // Fichier temporaire recréé privé avant d'y écrire le moindre JTI
+        Path tmp = path.resolveSibling(path.getFileName() + ".tmp");
+        Files.deleteIfExists(tmp);
+        if (posix) {
+            Files.createFile(tmp, PosixFilePermissions.asFileAttribute(PRIVATE_FILE));
+        } else {
+            Files.createFile(tmp);
+        }
+        CRC32 crc = new CRC32();
+        try (OutputStream file = Files.newOutputStream(tmp, StandardOpenOption.WRITE);
+             CheckedOutputStream checked = new CheckedOutputStream(new BufferedOutputStream(file, 64 * 1024), crc);
+             DataOutputStream out = new DataOutputStream(checked)) {
+            out.writeInt(MAGIC);
+            out.writeShort(VERSION);
+            out.writeLong(System.currentTimeMillis());
+            out.writeInt(entries.size());
+            for (Map.Entry<SessionKey, SessionCache.Entry> e : entries) {
+                writeEntry(out, e.getKey(), e.getValue());
+            }
+            out.flush();
+            // Le CRC couvre tout ce qui précède ; écrit hors du flux contrôlé
+            new DataOutputStream(file).writeLong(crc.getValue());
+        }
+        Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return entries.size();
+    }
+
+    private static void writeEntry(DataOutputStream out, SessionKey key, SessionCache.Entry entry) throws IOException {
+        writeString(out, key.employeeNumber());
+        writeString(out, key.appType());
+        out.writeInt(entry.maxSessions());
+        out.writeLong(entry.loadedAtMillis());
+        out.writeLong(entry.freshUntilMillis());
+        out.writeLong(entry.expiresAtMillis());
+        out.writeByte(entry.feedBacked() ? 1 : 0);
+        out.writeLong(entry.sessionsExpireAtMillis());
+        List<String> jtis = entry.jtis().toList();
+        out.writeInt(jtis.size());
+        for (String jti : jtis) {
+            UUID uuid = asCanonicalUuid(jti);
+            if (uuid != null) {
+                out.writeByte(JTI_UUID);
+                out.writeLong(uuid.getMostSignificantBits());
+                out.writeLong(uuid.getLeastSignificantBits());
+            } else {
+                out.writeByte(JTI_STRING);
+                writeString(out, jti);
+            }
+        }
+    }
+
+    /**
+     * @return nombre d'entrées restaurées
+     */
+    public int load() {
+        return load(System.nanoTime());
+    }
+
+    /**
+     * @param loadStartNanos {@link System#nanoTime()} à partir duquel une clé patchée, invalidée ou vidée
+     *                       n'est plus restaurée
+     * @return nombre d'entrées restaurées
+     */
+    int load(long loadStartNanos) {
+        if (!Files.isRegularFile(path)) {
+            log.info("🗂️ No session cache snapshot at {}, starting cold", path);
+            return 0;
+        }
+        long start = System.nanoTime();
+        try {
+            if (isPosix() && !PRIVATE_FILE.containsAll(Files.getPosixFilePermissions(path))) {
+                log.warn("⚠️ Session cache snapshot {} is accessible to other users, ignored", path);
+                return 0;
+            }
+        } catch (IOException e) {
+            log.warn("⚠️ Failed to read session cache snapshot permissions {}: {}", path, e.getMessage());
+            return 0;
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADER_SIZE + TRAILER_SIZE || size > Integer.MAX_VALUE) {
+                log.warn("⚠️ Session cache snapshot {} has an invalid size ({} bytes), ignored", path, size);
+                return 0;
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+
+            // Intégrité : CRC32 du contenu comparé au trailer
+            CRC32 crc = new CRC32();
+            crc.update(buffer.slice(0, (int) size - TRAILER_SIZE));
+            if (crc.getValue() != buffer.getLong((int) size - TRAILER_SIZE)) {
+                log.warn("⚠️ Session cache snapshot {} failed CRC check, ignored", path);
+                return 0;
+            }
+
+            ByteBuffer in = buffer.slice(0, (int) size - TRAILER_SIZE);
+            if (in.getInt() != MAGIC || in.getShort() != VERSION) {
+                log.warn("⚠️ Session cache snapshot {} has an unknown format, ignored", path);
+                return 0;
+            }
+            long createdAt = in.getLong();
+            if (System.currentTimeMillis() - createdAt > maxAge.toMillis()) {
+                log.info("🗂️ Session cache snapshot {} is older than {}, ignored", path, maxAge);
+                return 0;
+            }
+
+            int count = in.getInt();
+            int restored = 0;
+            for (int i = 0; i < count; i++) {
+                SessionKey key = new SessionKey(readString(in), readString(in));
+                if (sessionCache.restore(key, readEntry(in), loadStartNanos)) {
+                    restored++;
+                }
+            }
+            log.info("🗂️ Session cache warm start: {} of {} entries restored in {} ms",
+                    restored, count, Duration.ofNanos(System.nanoTime() - start).toMillis());
+            return restored;
+        } catch (IOException | BufferUnderflowException | IllegalArgumentException e) {
+            log.warn("⚠️ Failed to load session cache snapshot {}: {}", path, e.getMessage());
+            return 0;
+        }
+    }
+
+    private boolean isPosix() {
+        return path.getFileSystem().supportedFileAttributeViews().contains("posix");
+    }
+
+    private static SessionCache.Entry readEntry(ByteBuffer in) {
+        int maxSessions = in.getInt();
+        long loadedAt = in.getLong();
+        long freshUntil = in.getLong();
+        long expiresAt = in.getLong();
+        boolean feedBacked = in.get() == 1;
+        long sessionsExpireAt = in.getLong();
+        int jtiCount = in.getInt();
+        // UUID relus sur deux longs, sans passer par leur forme texte
+        long[] uuidBits = new long[jtiCount * 2];
+        int pairs = 0;
+        List<String> others = new ArrayList<>(0);
+        for (int j = 0; j < jtiCount; j++) {
+            byte kind = in.get();
+            if (kind == JTI_UUID) {
+                uuidBits[pairs * 2] = in.getLong();
+                uuidBits[pairs * 2 + 1] = in.getLong();
+                pairs++;
+            } else if (kind == JTI_STRING) {
+                others.add(readString(in));
+            } else {
+                throw new IllegalArgumentException("Unknown JTI kind " + kind);
+            }
+        }
+        // Date de l'appel d'origine recalculée par SessionCache#restore (horloge monotone du processus)
+        return new SessionCache.Entry(JtiSet.of(uuidBits, pairs, others), maxSessions, loadedAt, freshUntil, expiresAt,
+                feedBacked, sessionsExpireAt, 0L);
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeShort(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(ByteBuffer in) {
+        byte[] bytes = new byte[Short.toUnsignedInt(in.getShort())];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * UUID si le JTI est sous forme canonique (il sera restitué à l'identique), null sinon.
+     */
+    private static UUID asCanonicalUuid(String jti) {
+        if (jti.length() != 36) {
+            return null;
+        }
+        try {
+            UUID uuid = UUID.fromString(jti);
+            return uuid.toString().equals(jti) ? uuid : null;
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,329 @@
+package com.bacos.mokengeli.biloko.service;
+
+import com.bacos.mokengeli.biloko.config.SessionProperties;
+import com.bacos.mokengeli.biloko.model.SessionKey;
+import com.bacos.mokengeli.biloko.model.SessionListResponse;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Signal;
+import reactor.core.publisher.SignalType;
+import reactor.util.retry.Retry;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Récupère la liste des sessions actives auprès de l'Authentication-Service et alimente le {@link SessionCache}.
+ * <p>
+ * Single-flight : les misses simultanés pour une même clé employeeNumber:appType partagent
+ * un seul appel amont et un seul remplissage du cache.
+ * <p>
+ * Refresh-ahead : {@link #refreshInBackground} recharge une entrée périmée sans faire attendre la requête.
+ * <p>
+ * Micro-batching : si activé, les appels amont passent par {@link SessionBatchLookup}
+ * qui regroupe les clés distinctes en une seule requête.
+ * <p>
+ * Latence bornée : chaque appel a un délai maximal ({@code deadline}), peut être doublé par une requête
+ * de hedging, et le nombre de requêtes HTTP simultanées (hedges compris) est plafonné.
+ * En cas d'échec (délai, 429, 5xx), {@link SessionLookupUnavailableException} est levée avec la dernière liste connue
+ * ({@link SessionCache#getFallback}) si elle existe ; seul un refus explicite (401, 403, 404) est propagé tel quel.
+ */
+@Slf4j
+@Component
+public class SessionLookupService {
+
+    private static final long HEDGE_DELAY_REFRESH_NANOS = TimeUnit.SECONDS.toNanos(1);
+    private static final long HEDGE_MIN_SAMPLES = 100;
+
+    /**
+     * La clé a été révoquée ou invalidée pendant l'appel : la liste reçue est antérieure, on la redemande.
+     */
+    private static final class SupersededLookupException extends RuntimeException {
+        SupersededLookupException(SessionKey key) {
+            super("Session list for " + key + " superseded by a revocation", null, false, false);
+        }
+    }
+
+    private final AuthInternalClient authInternalClient;
+    private final SessionCache sessionCache;
+    // Collaborateurs optionnels : sans eux, pas de réchauffage des pairs ni de micro-batching
+    private final SessionPeerSync sessionPeerSync;
+    private final SessionBatchLookup sessionBatchLookup;
+
+    // Appels en cours, par clé de cache
+    private final Map<SessionKey, Mono<SessionCache.Entry>> inFlight = new ConcurrentHashMap<>();
+
+    private final Counter upstreamCalls;
+    private final Counter coalescedCalls;
+    private final Counter backgroundRefreshes;
+
+    // Latence bornée : délai par appel, hedging, bulkhead
+    private final Duration deadline;
+    private final boolean hedgeEnabled;
+    private final Duration hedgeMinDelay;
+    private final int maxConcurrent;
+    private final AtomicInteger outstanding = new AtomicInteger();
+    private final Timer latency;
+    private volatile Duration hedgeDelay;
+    private volatile long hedgeDelayComputedAt;
+
+    private final MeterRegistry meterRegistry;
+    private final Map<String, Counter> decisions = new ConcurrentHashMap<>();
+
+    public SessionLookupService(AuthInternalClient authInternalClient,
+                                SessionCache sessionCache,
+                                SessionProperties properties,
+                                MeterRegistry meterRegistry,
+                                @Nullable SessionPeerSync sessionPeerSync,
+                                @Nullable SessionBatchLookup sessionBatchLookup) {
+        SessionProperties.Lookup settings = properties.getLookup();
+        this.authInternalClient = authInternalClient;
+        this.sessionCache = sessionCache;
+        this.sessionPeerSync = sessionPeerSync;
+        this.sessionBatchLookup = sessionBatchLookup;
+        this.deadline = settings.getDeadline();
+        this.hedgeEnabled = settings.getHedge().isEnabled();
+        this.hedgeMinDelay = settings.getHedge().getMinDelay();
+        this.hedgeDelay = hedgeMinDelay;
+        this.maxConcurrent = settings.getBulkhead().getMaxConcurrent();
+        this.meterRegistry = meterRegistry;
+        this.latency = Timer.builder("gateway.session.lookup.latency")
+                .description("Latence des requêtes principales vers l'Authentication-Service")
+                .publishPercentiles(settings.getHedge().getPercentile())
+                .register(meterRegistry);
+        Gauge.builder("gateway.session.lookup.outstanding", outstanding, AtomicInteger::get)
+                .description("Requêtes HTTP en cours vers l'Authentication-Service, hedges compris (bulkhead)")
+                .register(meterRegistry);
+        this.upstreamCalls = Counter.builder("gateway.session.lookup.upstream")
+                .description("Appels effectifs vers l'Authentication-Service")
+                .register(meterRegistry);
+        this.coalescedCalls = Counter.builder("gateway.session.lookup.coalesced")
+                .description("Misses rattachés à un appel déjà en cours")
+                .register(meterRegistry);
+        this.backgroundRefreshes = Counter.builder("gateway.session.cache.refresh-ahead")
+                .description("Rechargements asynchrones d'entrées périmées")
+                .register(meterRegistry);
+        Gauge.builder("gateway.session.lookup.in-flight", inFlight, Map::size)
+                .description("Appels amont en cours")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Recharge les sessions de l'utilisateur et retourne l'entrée de cache résultante,
+     * en rejoignant l'appel en cours s'il existe.
+     * <p>
+     * L'appel partagé porte le jeton du premier appelant : seul son succès est partagé. Un appelant
+     * rattaché à un appel refusé (401, 403, 404) refait l'appel avec son propre jeton.
+     */
+    public Mono<SessionCache.Entry> fetch(String accessToken, String employeeNumber, String appType) {
+        SessionKey cacheKey = SessionCache.key(employeeNumber, appType);
+        return Mono.defer(() -> {
+            boolean[] created = {false};
+            Mono<SessionCache.Entry> call = inFlight.computeIfAbsent(cacheKey, key -> {
+                created[0] = true;
+                return upstream(key, accessToken, employeeNumber, appType)
+                        .doFinally(signal -> inFlight.remove(key))
+                        // Partage le résultat ; un appelant qui annule n'annule pas l'appel des autres
+                        .cache();
+            });
+            if (created[0]) {
+                return call;
+            }
+            coalescedCalls.increment();
+            log.debug("Session lookup coalesced for {}", cacheKey);
+            return call.onErrorResume(SessionLookupService::isExplicitRefusal, err -> {
+                decision("coalesced-refusal-retried");
+                return upstream(cacheKey, accessToken, employeeNumber, appType);
+            });
+        });
+    }
+
+    /**
+     * Recharge l'entrée en arrière-plan ; la requête courante continue avec la valeur en cache.
+     */
+    public void refreshInBackground(String accessToken, String employeeNumber, String appType) {
+        backgroundRefreshes.increment();
+        fetch(accessToken, employeeNumber, appType)
+                .subscribe(resp -> { },
+                        err -> log.warn("⚠️ Background session refresh failed for {}: {}",
+                                SessionCache.key(employeeNumber, appType), err.getMessage()));
+    }
+
+    private Mono<SessionCache.Entry> upstream(SessionKey cacheKey, String accessToken,
+                                               String employeeNumber, String appType) {
+        return Mono.defer(() -> {
+                    long lookupStart = System.nanoTime();
+                    return bounded(accessToken, employeeNumber, appType)
+                            .doOnSubscribe(s -> upstreamCalls.increment())
+                            // Met à jour le cache (liste des jtis valides), une fois pour tous les appelants,
+                            // puis réchauffe les autres instances du Gateway
+                            .<SessionCache.Entry>handle((resp, sink) -> {
+                                SessionCache.Entry entry = sessionCache.put(cacheKey, resp, lookupStart);
+                                if (entry == null) {
+                                    sink.error(new SupersededLookupException(cacheKey));
+                                    return;
+                                }
+                                if (sessionPeerSync != null) {
+                                    sessionPeerSync.publishFill(cacheKey, entry);
+                                }
+                                sink.next(entry);
+                            });
+                })
+                // Une révocation est arrivée pendant l'appel : un second appel lit la liste à jour
+                .retryWhen(Retry.max(1)
+                        .filter(SupersededLookupException.class::isInstance)
+                        .onRetryExhaustedThrow((spec, signal) -> signal.failure()))
+                .onErrorResume(err -> fallback(cacheKey, err));
+    }
+
+    /**
+     * Appel amont borné par le délai maximal, hedge compris.
+     */
+    private Mono<SessionListResponse> bounded(String accessToken, String employeeNumber, String appType) {
+        return call(accessToken, employeeNumber, appType)
+                .timeout(deadline)
+                .doOnSuccess(resp -> decision("upstream"))
+                .doOnError(TimeoutException.class, err -> decision("timeout"));
+    }
+
+    /**
+     * Hedging : si la réponse tarde au-delà du percentile configuré, une seconde requête part vers une autre
+     * instance ({@link HedgeSpreadServiceInstanceListSupplier}), quel que soit le load balancer.
+     * La première réponse gagne ; un refus explicite de l'une ou l'autre requête gagne aussi, sans attendre l'autre.
+     * Le hedging ne s'applique pas quand le micro-batching est activé : la requête groupée n'est pas doublée.
+     */
+    private Mono<SessionListResponse> call(String accessToken, String employeeNumber, String appType) {
+        if (sessionBatchLookup != null && sessionBatchLookup.isEnabled()) {
+            return attempt(sessionBatchLookup.lookup(accessToken, employeeNumber, appType), true);
+        }
+        if (!hedgeEnabled) {
+            return attempt(authInternalClient.list(accessToken, employeeNumber, appType), true);
+        }
+        HedgedRequestTracker.Group group = new HedgedRequestTracker.Group();
+        Mono<SessionListResponse> primary =
+                attempt(authInternalClient.list(accessToken, employeeNumber, appType, group), true);
+        Mono<SessionListResponse> hedge = Mono.defer(() -> Mono.delay(hedgeDelay()))
+                .then(attempt(Mono.defer(() -> {
+                    decision("hedged");
+                    return authInternalClient.list(accessToken, employeeNumber, appType, group)
+                            .doOnNext(resp -> decision("hedge-won"));
+                }), false));
+        return Mono.firstWithValue(refusalAsValue(primary), refusalAsValue(hedge))
+                .dematerialize();
+    }
+
+    /**
+     * Une requête HTTP vers l'Authentication-Service. Chacune prend une place du bulkhead, hedges compris :
+     * le doublement ne dépasse jamais {@code max-concurrent}. Sans place, un hedge n'est simplement pas envoyé.
+     * <p>
+     * Seule la latence de la requête principale est mesurée : celle du gagnant de la course raccourcirait
+     * la queue de distribution sur laquelle le délai de hedging est calé. Une requête principale annulée
+     * (hedge gagnant, délai dépassé) compte pour le temps écoulé, borne basse de sa latence.
+     */
+    private Mono<SessionListResponse> attempt(Mono<SessionListResponse> request, boolean primary) {
+        return Mono.defer(() -> {
+            if (outstanding.incrementAndGet() > maxConcurrent) {
+                outstanding.decrementAndGet();
+                if (!primary) {
+                    decision("hedge-skipped");
+                    return Mono.empty();
+                }
+                decision("bulkhead-rejected");
+                return Mono.error(new SessionLookupUnavailableException("Session lookup bulkhead full", null));
+            }
+            long start = System.nanoTime();
+            return request.doFinally(signal -> {
+                outstanding.decrementAndGet();
+                if (primary && signal != SignalType.ON_ERROR) {
+                    latency.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                }
+            });
+        });
+    }
+
+    /**
+     * Fait d'un refus explicite une valeur pour {@link Mono#firstWithValue} : il termine la course
+     * au lieu d'attendre l'autre requête, et n'est pas noyé dans l'erreur composite si les deux échouent.
+     */
+    private static Mono<Signal<SessionListResponse>> refusalAsValue(Mono<SessionListResponse> call) {
+        return call.materialize()
+                .<Signal<SessionListResponse>>flatMap(signal -> {
+                    if (signal.isOnComplete()) {
+                        return Mono.empty();
+                    }
+                    if (signal.isOnError() && !isExplicitRefusal(signal.getThrowable())) {
+                        return Mono.error(signal.getThrowable());
+                    }
+                    return Mono.just(signal);
+                });
+    }
+
+    /**
+     * Mode dégradé : l'Authentication-Service est indisponible, la dernière liste connue accompagne l'erreur.
+     * Un refus explicite (401, 403, 404) n'est jamais masqué ; 429 et 5xx sont des indisponibilités.
+     */
+    private Mono<SessionCache.Entry> fallback(SessionKey cacheKey, Throwable err) {
+        if (isExplicitRefusal(err)) {
+            return Mono.error(err);
+        }
+        SessionCache.Entry lastKnown = sessionCache.getFallback(cacheKey);
+        if (lastKnown != null) {
+            decision("stale-fallback");
+            log.warn("⚠️ Authentication service unavailable, last known sessions available for {}: {}",
+                    cacheKey, err.getMessage());
+        } else {
+            decision("unavailable");
+        }
+        return Mono.error(new SessionLookupUnavailableException("Session lookup failed for " + cacheKey,
+                err, lastKnown));
+    }
+
+    /**
+     * L'Authentication-Service a répondu que le jeton ou l'utilisateur n'existe pas ou n'est pas autorisé.
+     */
+    public static boolean isExplicitRefusal(Throwable err) {
+        if (!(err instanceof WebClientResponseException wcre)) {
+            return false;
+        }
+        int status = wcre.getStatusCode().value();
+        return status == 401 || status == 403 || status == 404;
+    }
+
+    /**
+     * Délai avant hedging : percentile observé des requêtes principales, jamais sous {@code hedge.min-delay},
+     * recalculé au plus une fois par seconde.
+     */
+    private Duration hedgeDelay() {
+        long now = System.nanoTime();
+        if (now - hedgeDelayComputedAt > HEDGE_DELAY_REFRESH_NANOS) {
+            hedgeDelayComputedAt = now;
+            Duration observed = hedgeMinDelay;
+            ValueAtPercentile[] percentiles = latency.takeSnapshot().percentileValues();
+            if (latency.count() >= HEDGE_MIN_SAMPLES && percentiles.length > 0) {
+                observed = Duration.ofNanos((long) percentiles[0].value(TimeUnit.NANOSECONDS));
+            }
+            hedgeDelay = observed.compareTo(hedgeMinDelay) > 0 ? observed : hedgeMinDelay;
+        }
+        return hedgeDelay;
+    }
+
+    private void decision(String decision) {
+        decisions.computeIfAbsent(decision, d -> Counter.builder("gateway.session.lookup.decision")
+                        .description("Issue des recherches de sessions (upstream, hedged, timeout, stale-fallback...)")
+                        .tag("decision", d)
+                        .register(meterRegistry))
+                .increment();
+    }
+}
@@ -0,0 +1,28 @@
+package com.bacos.mokengeli.biloko.service;
+
+/**
+ * L'Authentication-Service n'a pas répondu dans les limites fixées (délai, bulkhead, 429, 5xx).
+ * <p>
+ * Porte la dernière entrée connue de la clé si elle existe ({@link #lastKnown()}) : elle ne peut
+ * qu'autoriser un JTI qu'elle contient, jamais justifier un refus.
+ */
+public class SessionLookupUnavailableException extends RuntimeException {
+
+    private final transient SessionCache.Entry lastKnown;
+
+    public SessionLookupUnavailableException(String message, Throwable cause) {
+        this(message, cause, null);
+    }
+
+    public SessionLookupUnavailableException(String message, Throwable cause, SessionCache.Entry lastKnown) {
+        super(message, cause);
+        this.lastKnown = lastKnown;
+    }
+
+    /**
+     * Dernière liste connue (mode dégradé), ou null.
+     */
+    public SessionCache.Entry lastKnown() {
+        return lastKnown;
+    }
+}
@@ -0,0 +1,150 @@
+package com.bacos.mokengeli.biloko.service;
+
+import com.bacos.mokengeli.biloko.model.PeerCacheMessage;
+import com.bacos.mokengeli.biloko.model.SessionKey;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Synchronisation du {@link SessionCache} entre instances du Gateway.
+ * <p>
+ * Un remplissage depuis l'Authentication-Service est diffusé aux pairs (FILL) pour les réchauffer ;
+ * une invalidation locale (logout) est diffusée (INVALIDATE) pour évincer partout.
+ * Les messages reçus ne sont jamais rediffusés.
+ * <p>
+ * Les messages sont envoyés au port dédié des pairs ({@code gateway.peer-sync.port}) avec un secret propre
+ * à la synchronisation ({@code gateway.peer-sync.secret}), obligatoire et distinct de la clé de signature JWT.
+ */
+@Slf4j
+@Component
+public class SessionPeerSync {
+
+    public static final String PEER_ENDPOINT = "/internal/gateway/session-cache";
+    public static final String SECRET_HEADER = "X-Gateway-Peer-Secret";
+    private static final int MIN_SECRET_LENGTH = 32;
+    // Un FILL de pair résulte d'un appel lancé peu avant sa réception ; une clé révoquée dans cette fenêtre le refuse
+    private static final long PEER_FILL_WINDOW_NANOS = Duration.ofSeconds(30).toNanos();
+
+    private final WebClient webClient;
+    private final GatewayPeerLocator peerLocator;
+    private final SessionCache sessionCache;
+    private final boolean enabled;
+    private final String secret;
+    private final byte[] secretBytes;
+
+    private final Counter sent;
+    private final Counter received;
+    private final Counter failures;
+
+    public SessionPeerSync(@Qualifier("gatewayPeerWebClient") WebClient webClient,
+                           GatewayPeerLocator peerLocator,
+                           SessionCache sessionCache,
+                           MeterRegistry meterRegistry,
+                           @Value("${gateway.peer-sync.enabled:false}") boolean enabled,
+                           @Value("${gateway.peer-sync.secret:}") String secret,
+                           @Value("${security.jwt.secret:}") String jwtSecret) {
+        this.webClient = webClient;
+        this.peerLocator = peerLocator;
+        this.sessionCache = sessionCache;
+        this.enabled = enabled;
+        if (enabled) {
+            if (secret == null || secret.length() < MIN_SECRET_LENGTH) {
+                throw new IllegalStateException("gateway.peer-sync.secret must be set (at least "
+                        + MIN_SECRET_LENGTH + " characters) when gateway.peer-sync.enabled=true");
+            }
+            if (secret.equals(jwtSecret)) {
+                throw new IllegalStateException("gateway.peer-sync.secret must differ from security.jwt.secret");
+            }
+        }
+        this.secret = secret;
+        this.secretBytes = secret == null ? new byte[0] : secret.getBytes(StandardCharsets.UTF_8);
+        this.sent = Counter.builder("gateway.peer-sync.messages").tag("direction", "sent").register(meterRegistry);
+        this.received = Counter.builder("gateway.peer-sync.messages").tag("direction", "received").register(meterRegistry);
+        this.failures = Counter.builder("gateway.peer-sync.failures").register(meterRegistry);
+    }
+
+    public void publishFill(SessionKey key, SessionCache.Entry entry) {
+        if (!enabled) {
+            return;
+        }
+        broadcast(new PeerCacheMessage(PeerCacheMessage.Type.FILL, key.toString(),
+                entry.jtis().toList(), entry.maxSessions(), peerLocator.selfId(),
+                entry.sessionsExpireAtMillis() == Long.MAX_VALUE ? null : entry.sessionsExpireAtMillis()));
+    }
+
+    /**
+     * Invalide l'entrée localement puis sur toutes les autres instances.
+     */
+    public void invalidateEverywhere(SessionKey key) {
+        sessionCache.invalidate(key);
+        broadcast(new PeerCacheMessage(PeerCacheMessage.Type.INVALIDATE, key.toString(),
+                null, null, peerLocator.selfId(), null));
+    }
+
+    /**
+     * Applique un message reçu d'un pair, sans rediffusion.
+     *
+     * @return false si la clé du message est mal formée (message ignoré)
+     */
+    public boolean apply(PeerCacheMessage message) {
+        received.increment();
+        SessionKey key = SessionKey.parse(message.getKey());
+        if (key == null) {
+            log.warn("⚠️ Ignoring peer {} with malformed key from {}", message.getType(), message.getOrigin());
+            return false;
+        }
+        switch (message.getType()) {
+            case FILL -> sessionCache.put(key, message.getJtis(), message.getMaxSessions(),
+                    message.getSessionsExpireAt(), System.nanoTime() - PEER_FILL_WINDOW_NANOS);
+            case INVALIDATE -> sessionCache.invalidate(key);
+        }
+        log.debug("Peer {} applied from {}: {}", message.getType(), message.getOrigin(), message.getKey());
+        return true;
+    }
+
+    /**
+     * Comparaison en temps constant ; toujours refusé si la synchronisation est désactivée.
+     */
+    public boolean isAuthorized(String presentedSecret) {
+        return enabled
+                && presentedSecret != null
+                && MessageDigest.isEqual(secretBytes, presentedSecret.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private void broadcast(PeerCacheMessage message) {
+        if (!enabled) {
+            return;
+        }
+        List<URI> peers = peerLocator.peers();
+        if (peers.isEmpty()) {
+            return;
+        }
+        Flux.fromIterable(peers)
+                .flatMap(peer -> webClient.post()
+                        .uri(peer.resolve(PEER_ENDPOINT))
+                        .header(SECRET_HEADER, secret)
+                        .bodyValue(message)
+                        .retrieve()
+                        .toBodilessEntity()
+                        .doOnSuccess(r -> sent.increment())
+                        .onErrorResume(err -> {
+                            failures.increment();
+                            log.debug("Peer sync to {} failed: {}", peer, err.getMessage());
+                            return Mono.empty();
+                        }))
+                .subscribe();
+    }
+}
@@ -0,0 +1,223 @@
+package com.bacos.mokengeli.biloko.service;
+
+import com.bacos.mokengeli.biloko.model.SessionChangeEvent;
+import com.bacos.mokengeli.biloko.model.SessionDto;
+import com.bacos.mokengeli.biloko.model.SessionKey;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.netty.http.client.HttpClientRequest;
+import reactor.util.retry.Retry;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Abonnement au flux SSE de changements de sessions de l'Authentication-Service (résolu via Eureka).
+ * <p>
+ * Protocole de reprise :
+ * 1. Chaque événement porte un id séquentiel ; à la reconnexion on renvoie le dernier via {@code Last-Event-ID}.
+ * 2. Le serveur rejoue alors un événement RESYNC (clés touchées entre-temps) ou FLUSH s'il n'a plus l'historique.
+ * 3. Un trou dans la séquence détecté côté Gateway force un flush complet du cache.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "session.revocation-feed", name = "enabled", havingValue = "true")
+public class SessionRevocationFeed {
+
+    private static final ParameterizedTypeReference<ServerSentEvent<SessionChangeEvent>> EVENT_TYPE =
+            new ParameterizedTypeReference<>() { };
+
+    private final WebClient webClient;
+    private final SessionCache sessionCache;
+    private final String serviceId;
+    private final String path;
+    private final Duration idleTimeout;
+    private final Duration reconnectDelay;
+    private final Duration maxReconnectDelay;
+
+    private volatile long lastEventId = -1;
+    private Disposable subscription;
+
+    public SessionRevocationFeed(@Qualifier("authInternalWebClient") WebClient webClient,
+                                 SessionCache sessionCache,
+                                 @Value("${authentication.service-id}") String serviceId,
+                                 @Value("${session.revocation-feed.path:/api/auth/internal/sessions/stream}") String path,
+                                 @Value("${session.revocation-feed.idle-timeout:PT90S}") Duration idleTimeout,
+                                 @Value("${session.revocation-feed.reconnect-delay:PT1S}") Duration reconnectDelay,
+                                 @Value("${session.revocation-feed.max-reconnect-delay:PT30S}") Duration maxReconnectDelay) {
+        this.webClient = webClient;
+        this.sessionCache = sessionCache;
+        this.serviceId = serviceId;
+        this.path = path;
+        this.idleTimeout = idleTimeout;
+        this.reconnectDelay = reconnectDelay;
+        this.maxReconnectDelay = maxReconnectDelay;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        log.info("📡 Subscribing to session revocation feed {}{}", serviceId, path);
+        subscription = Flux.defer(this::connect)
+                .doOnError(err -> {
+                    sessionCache.setFeedConnected(false);
+                    log.warn("⚠️ Session revocation feed error: {}", err.getMessage());
+                })
+                .doOnComplete(() -> sessionCache.setFeedConnected(false))
+                .retryWhen(Retry.backoff(Long.MAX_VALUE, reconnectDelay)
+                        .maxBackoff(maxReconnectDelay)
+                        .transientErrors(true))
+                .repeatWhen(completed -> completed.delayElements(reconnectDelay))
+                .subscribe(this::onEventSafely);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (subscription != null) {
+            subscription.dispose();
+        }
+        sessionCache.setFeedConnected(false);
+    }
+
+    private Flux<ServerSentEvent<SessionChangeEvent>> connect() {
+        long resumeFrom = lastEventId;
+        return webClient.get()
+                .uri("http://" + serviceId + path)
+                .accept(MediaType.TEXT_EVENT_STREAM)
+                .headers(headers -> {
+                    if (resumeFrom >= 0) {
+                        headers.set("Last-Event-ID", Long.toString(resumeFrom));
+                    }
+                })
+                // Flux longue durée : le timeout de réponse devient un timeout d'inactivité (heartbeats serveur)
+                .httpRequest(request -> {
+                    HttpClientRequest nativeRequest = request.getNativeRequest();
+                    nativeRequest.responseTimeout(idleTimeout);
+                })
+                .retrieve()
+                .bodyToFlux(EVENT_TYPE)
+                .doOnSubscribe(s -> log.debug("Connecting to session revocation feed (Last-Event-ID={})", resumeFrom));
+    }
+
+    /**
+     * Une exception remontée ici mettrait fin à l'abonnement : l'événement est écarté et, faute de savoir
+     * quelles clés il touchait, le cache est vidé.
+     */
+    private void onEventSafely(ServerSentEvent<SessionChangeEvent> sse) {
+        try {
+            onEvent(sse);
+        } catch (RuntimeException e) {
+            log.warn("⚠️ Session feed event {} skipped ({}), flushing session cache", sse.id(), e.getMessage());
+            sessionCache.invalidateAll();
+        }
+    }
+
+    private void onEvent(ServerSentEvent<SessionChangeEvent> sse) {
+        sessionCache.setFeedConnected(true);
+
+        SessionChangeEvent event = sse.data();
+        boolean resync = event != null
+                && (event.getType() == SessionChangeEvent.Type.RESYNC || event.getType() == SessionChangeEvent.Type.FLUSH);
+        trackSequence(sse.id(), resync);
+
+        if (event == null || event.getType() == null) {
+            return; // heartbeat
+        }
+
+        switch (event.getType()) {
+            case REVOKED -> onRevoked(event);
+            case SESSIONS -> onSessions(event);
+            case RESYNC -> {
+                List<String> keys = event.getKeys() == null ? List.of() : event.getKeys();
+                List<SessionKey> parsed = keys.stream().map(SessionKey::parse).toList();
+                if (parsed.contains(null)) {
+                    // Clé illisible : impossible de savoir quelle entrée est touchée
+                    log.warn("⚠️ Session feed resync with malformed keys, flushing session cache");
+                    sessionCache.invalidateAll();
+                    return;
+                }
+                parsed.forEach(sessionCache::invalidate);
+                log.info("🔄 Session feed resync: {} keys flushed", keys.size());
+            }
+            case FLUSH -> {
+                sessionCache.invalidateAll();
+                log.warn("🧹 Session feed requested a full flush");
+            }
+        }
+    }
+
+    private void trackSequence(String id, boolean resync) {
+        if (id == null) {
+            return;
+        }
+        long sequence;
+        try {
+            sequence = Long.parseLong(id);
+        } catch (NumberFormatException e) {
+            return;
+        }
+        long previous = lastEventId;
+        if (resync || previous < 0) {
+            // Le serveur a lui-même comblé le trou (RESYNC / FLUSH) ou première connexion
+            lastEventId = sequence;
+            return;
+        }
+        if (sequence > previous + 1) {
+            // Événements manqués sans RESYNC serveur : on ne sait pas quelles clés sont touchées
+            log.warn("⚠️ Session feed gap ({} → {}), flushing session cache", previous, sequence);
+            sessionCache.invalidateAll();
+        } else if (sequence <= previous) {
+            // Séquence réinitialisée (redémarrage du serveur)
+            log.warn("⚠️ Session feed sequence reset ({} → {}), flushing session cache", previous, sequence);
+            sessionCache.invalidateAll();
+        }
+        lastEventId = sequence;
+    }
+
+    private void onRevoked(SessionChangeEvent event) {
+        if (!hasKey(event)) {
+            return;
+        }
+        SessionKey key = SessionCache.key(event.getEmployeeNumber(), event.getAppType());
+        if (event.getJti() == null) {
+            sessionCache.invalidate(key);
+            return;
+        }
+        // Datée même sans entrée : un appel en cours pour cette clé ne pourra pas réintroduire le JTI
+        sessionCache.revoke(key, event.getJti());
+        log.debug("Session revoked for {} (jti {})", key, event.getJti());
+    }
+
+    private void onSessions(SessionChangeEvent event) {
+        if (!hasKey(event)) {
+            return;
+        }
+        SessionKey key = SessionCache.key(event.getEmployeeNumber(), event.getAppType());
+        List<SessionDto> sessions = event.getSessions();
+        if (sessions == null) {
+            sessionCache.invalidate(key);
+            return;
+        }
+        sessionCache.patch(key, JtiSet.of(sessions.stream().map(SessionDto::getJti).toList()));
+    }
+
+    private boolean hasKey(SessionChangeEvent event) {
+        if (event.getEmployeeNumber() != null && event.getAppType() != null) {
+            return true;
+        }
+        log.warn("⚠️ Session feed {} event without employeeNumber/appType, flushing session cache", event.getType());
+        sessionCache.invalidateAll();
+        return false;
+    }
+}
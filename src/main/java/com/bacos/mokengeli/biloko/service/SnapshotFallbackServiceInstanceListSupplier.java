@@ -0,0 +1,37 @@
+package com.bacos.mokengeli.biloko.service;
+
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.loadbalancer.core.DelegatingServiceInstanceListSupplier;
+import org.springframework.cloud.loadbalancer.core.ServiceInstanceListSupplier;
+import reactor.core.publisher.Flux;
+
+import java.util.List;
+
+/**
+ * Repli sur le snapshot local du registre ({@link RegistrySnapshotStore}) quand la découverte échoue, ou ne renvoie
+ * aucune instance avant le premier fetch Eureka. Après ce fetch, une liste vide est transmise telle quelle :
+ * le client Eureka garde son registre pendant une coupure, le service n'a donc vraiment plus d'instance.
+ * Dès que la découverte renvoie des instances, elles sont utilisées telles quelles.
+ */
+public class SnapshotFallbackServiceInstanceListSupplier extends DelegatingServiceInstanceListSupplier {
+
+    private final RegistrySnapshotStore registrySnapshotStore;
+
+    public SnapshotFallbackServiceInstanceListSupplier(ServiceInstanceListSupplier delegate,
+                                                       RegistrySnapshotStore registrySnapshotStore) {
+        super(delegate);
+        this.registrySnapshotStore = registrySnapshotStore;
+    }
+
+    @Override
+    public Flux<List<ServiceInstance>> get() {
+        return getDelegate().get()
+                .map(instances -> instances.isEmpty() && !registrySnapshotStore.isRegistryFetched()
+                        ? registrySnapshotStore.lastKnown(getServiceId())
+                        : instances)
+                .onErrorResume(err -> {
+                    List<ServiceInstance> lastKnown = registrySnapshotStore.lastKnown(getServiceId());
+                    return lastKnown.isEmpty() ? Flux.error(err) : Flux.just(lastKnown);
+                });
+    }
+}
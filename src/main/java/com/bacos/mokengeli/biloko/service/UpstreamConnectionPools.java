@@ -0,0 +1,191 @@
+package com.bacos.mokengeli.biloko.service;
+
+import com.bacos.mokengeli.biloko.config.NettyWebSocketConfiguration;
+import com.bacos.mokengeli.biloko.config.UpstreamPoolProperties;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.distribution.HistogramSnapshot;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cloud.gateway.config.GatewayProperties;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.route.RouteDefinition;
+import org.springframework.stereotype.Component;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+import reactor.netty.transport.AddressUtils;
+
+import java.net.URI;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Un pool de connexions Reactor Netty par service aval, pour qu'une rafale vers un service
+ * (connexions longues de l'order-service par exemple) ne prive pas les autres de connexions.
+ * <p>
+ * Les services sont déduits des routes déclarées ; chaque pool publie ses gauges
+ * {@code reactor.netty.connection.provider.*} (actives, inactives, en attente) et le temps
+ * d'acquisition {@code reactor.netty.connection.provider.pending.connections.time}, tagués {@code name=upstream-<service>}.
+ */
+@Slf4j
+@Component
+public class UpstreamConnectionPools {
+
+    private static final String POOL_PREFIX = "upstream-";
+    private static final String METRIC_PREFIX = "reactor.netty.connection.provider.";
+
+    private record Upstream(ConnectionProvider provider, HttpClient client, UpstreamPoolProperties.Pool settings) {
+    }
+
+    private final MeterRegistry meterRegistry;
+    private final Map<String, Upstream> upstreams = new LinkedHashMap<>();
+
+    public UpstreamConnectionPools(UpstreamPoolProperties properties,
+                                   GatewayProperties gatewayProperties,
+                                   MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+        if (!properties.isEnabled()) {
+            log.info("🔌 Per-service upstream pools disabled, routes share the gateway HttpClient pool");
+            return;
+        }
+        for (RouteDefinition route : gatewayProperties.getRoutes()) {
+            String serviceId = serviceId(route.getUri());
+            if (serviceId != null && !upstreams.containsKey(serviceId)) {
+                upstreams.put(serviceId, create(serviceId, properties.forService(serviceId)));
+            }
+        }
+        properties.getServices().keySet().stream()
+                .filter(serviceId -> !upstreams.containsKey(serviceId))
+                .forEach(serviceId -> log.warn("⚠️ Upstream pool configured for {} but no route targets it", serviceId));
+    }
+
+    /**
+     * HttpClient du service ciblé par la route, null s'il n'a pas de pool dédié.
+     */
+    public HttpClient clientFor(Route route) {
+        String serviceId = serviceId(route.getUri());
+        Upstream upstream = serviceId == null ? null : upstreams.get(serviceId);
+        return upstream == null ? null : upstream.client();
+    }
+
+    /**
+     * Services disposant d'un pool dédié.
+     */
+    public Set<String> serviceIds() {
+        return Set.copyOf(upstreams.keySet());
+    }
+
+    /**
+     * HttpClient du pool du service, null s'il n'en a pas.
+     */
+    public HttpClient client(String serviceId) {
+        Upstream upstream = upstreams.get(serviceId);
+        return upstream == null ? null : upstream.client();
+    }
+
+    /**
+     * Ferme les connexions du pool du service vers une instance disparue : inactives immédiatement,
+     * en cours d'utilisation à leur libération.
+     * L'adresse est construite comme les clés de pool de Reactor Netty ({@link AddressUtils#createUnresolved}).
+     */
+    public void release(String serviceId, String host, int port) {
+        Upstream upstream = upstreams.get(serviceId);
+        if (upstream != null) {
+            upstream.provider().disposeWhen(AddressUtils.createUnresolved(host, port))
+                    .subscribe(null, err -> log.warn("⚠️ Failed to close {} connections to {}:{}: {}",
+                            serviceId, host, port, err.getMessage()));
+        }
+    }
+
+    /**
+     * État des pools pour l'endpoint actuator : configuration, connexions et temps d'acquisition.
+     */
+    public List<Map<String, Object>> status() {
+        return upstreams.entrySet().stream()
+                .map(e -> describe(e.getKey(), e.getValue()))
+                .toList();
+    }
+
+    @PreDestroy
+    void close() {
+        upstreams.values().forEach(upstream -> upstream.provider().disposeLater().subscribe());
+    }
+
+    private static Upstream create(String serviceId, UpstreamPoolProperties.Pool settings) {
+        ConnectionProvider.Builder builder = ConnectionProvider.builder(POOL_PREFIX + serviceId)
+                .maxConnections(settings.getMaxConnections())
+                .pendingAcquireMaxCount(settings.getPendingAcquireMaxCount())
+                .pendingAcquireTimeout(settings.getPendingAcquireTimeout())
+                .maxIdleTime(settings.getMaxIdleTime())
+                .maxLifeTime(settings.getMaxLifeTime())
+                .evictInBackground(settings.getEvictInBackground())
+                .metrics(true);
+        if (settings.getLeasingStrategy() == UpstreamPoolProperties.LeasingStrategy.LIFO) {
+            builder.lifo();
+        } else {
+            builder.fifo();
+        }
+        ConnectionProvider provider = builder.build();
+        log.info("🔌 Upstream pool for {}: maxConnections={}, pendingAcquireMaxCount={}, leasing={}",
+                serviceId, settings.getMaxConnections(), settings.getPendingAcquireMaxCount(),
+                settings.getLeasingStrategy());
+        return new Upstream(provider, NettyWebSocketConfiguration.configureClient(HttpClient.create(provider)), settings);
+    }
+
+    private Map<String, Object> describe(String serviceId, Upstream upstream) {
+        String poolName = POOL_PREFIX + serviceId;
+        UpstreamPoolProperties.Pool settings = upstream.settings();
+        Map<String, Object> description = new LinkedHashMap<>();
+        description.put("service", serviceId);
+        description.put("pool", poolName);
+        description.put("maxConnections", settings.getMaxConnections());
+        description.put("pendingAcquireMaxCount", settings.getPendingAcquireMaxCount());
+        description.put("pendingAcquireTimeout", settings.getPendingAcquireTimeout().toString());
+        description.put("maxIdleTime", settings.getMaxIdleTime().toString());
+        description.put("maxLifeTime", settings.getMaxLifeTime().toString());
+        description.put("leasingStrategy", settings.getLeasingStrategy());
+        description.put("total", sum(poolName, "total.connections"));
+        description.put("active", sum(poolName, "active.connections"));
+        description.put("idle", sum(poolName, "idle.connections"));
+        description.put("pending", sum(poolName, "pending.connections"));
+        description.put("acquire", acquireLatency(poolName));
+        return description;
+    }
+
+    /**
+     * Somme d'une gauge du pool sur toutes les adresses distantes (une série par instance).
+     */
+    private long sum(String poolName, String metric) {
+        return Math.round(meterRegistry.find(METRIC_PREFIX + metric).tag("name", poolName).gauges().stream()
+                .mapToDouble(Gauge::value)
+                .sum());
+    }
+
+    private Map<String, Object> acquireLatency(String poolName) {
+        Map<String, Object> values = new LinkedHashMap<>();
+        long count = 0;
+        double maxMillis = 0;
+        for (Timer timer : meterRegistry.find(METRIC_PREFIX + "pending.connections.time").tag("name", poolName).timers()) {
+            HistogramSnapshot snapshot = timer.takeSnapshot();
+            count += snapshot.count();
+            maxMillis = Math.max(maxMillis, snapshot.max(TimeUnit.MILLISECONDS));
+            for (ValueAtPercentile percentile : snapshot.percentileValues()) {
+                // Pire valeur parmi les instances pour chaque percentile
+                values.merge("p" + Math.round(percentile.percentile() * 100) + "Ms",
+                        percentile.value(TimeUnit.MILLISECONDS), (a, b) -> Math.max((double) a, (double) b));
+            }
+        }
+        values.put("count", count);
+        values.put("maxMs", maxMillis);
+        return values;
+    }
+
+    private static String serviceId(URI uri) {
+        return uri == null || uri.getHost() == null ? null : uri.getHost();
+    }
+}
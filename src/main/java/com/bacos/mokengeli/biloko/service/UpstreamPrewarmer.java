@@ -0,0 +1,198 @@
+package com.bacos.mokengeli.biloko.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.discovery.DiscoveryClient;
+import org.springframework.cloud.client.discovery.event.HeartbeatEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+import reactor.netty.http.client.HttpClient;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Pré-chauffage des connexions vers les instances des services aval.
+ * <p>
+ * À chaque rafraîchissement du registre (HeartbeatEvent, toutes les {@code registry-fetch-interval-seconds})
+ * et au démarrage, les instances apparues reçoivent {@code connections} requêtes parallèles vers
+ * {@code path} à travers le pool de leur service : les connexions restent ensuite dans le pool.
+ * Tant que le pré-chauffage n'est pas terminé, l'instance est écartée par le load balancer
+ * ({@link WarmingServiceInstanceListSupplier}). Les pools des instances disparues sont fermés.
+ * <p>
+ * Les premières requêtes routées vers une nouvelle instance sont chronométrées
+ * ({@code gateway.upstream.cold.requests{service,warmed}}) pour comparer avec et sans pré-chauffage.
+ */
+@Slf4j
+@Component
+public class UpstreamPrewarmer {
+
+    /**
+     * Instance connue : pré-chauffage en cours, et nombre de requêtes encore chronométrées.
+     */
+    private static final class InstanceState {
+        final String serviceId;
+        final boolean warmed;
+        volatile boolean warming;
+        final AtomicInteger coldRequestsLeft;
+
+        InstanceState(String serviceId, boolean warmed, int coldRequests) {
+            this.serviceId = serviceId;
+            this.warmed = warmed;
+            this.warming = warmed;
+            this.coldRequestsLeft = new AtomicInteger(coldRequests);
+        }
+    }
+
+    private final DiscoveryClient discoveryClient;
+    private final UpstreamConnectionPools upstreamConnectionPools;
+    private final MeterRegistry meterRegistry;
+    private final boolean enabled;
+    private final int connections;
+    private final String path;
+    private final Duration timeout;
+    private final int coldRequests;
+
+    // Clé host:port → état ; une instance peut apparaître sous plusieurs services
+    private final Map<String, InstanceState> instances = new ConcurrentHashMap<>();
+    private final Map<String, Timer> coldTimers = new ConcurrentHashMap<>();
+    private final Counter warmups;
+    private final Counter warmupFailures;
+
+    public UpstreamPrewarmer(DiscoveryClient discoveryClient,
+                             UpstreamConnectionPools upstreamConnectionPools,
+                             MeterRegistry meterRegistry,
+                             @Value("${gateway.upstream-prewarm.enabled:true}") boolean enabled,
+                             @Value("${gateway.upstream-prewarm.connections:4}") int connections,
+                             @Value("${gateway.upstream-prewarm.path:/actuator/health}") String path,
+                             @Value("${gateway.upstream-prewarm.timeout:PT5S}") Duration timeout,
+                             @Value("${gateway.upstream-prewarm.cold-requests:20}") int coldRequests) {
+        this.discoveryClient = discoveryClient;
+        this.upstreamConnectionPools = upstreamConnectionPools;
+        this.meterRegistry = meterRegistry;
+        this.enabled = enabled;
+        this.connections = connections;
+        this.path = path;
+        this.timeout = timeout;
+        this.coldRequests = coldRequests;
+        this.warmups = Counter.builder("gateway.upstream.prewarm")
+                .description("Instances pré-chauffées")
+                .tag("result", "success")
+                .register(meterRegistry);
+        this.warmupFailures = Counter.builder("gateway.upstream.prewarm")
+                .description("Instances pré-chauffées")
+                .tag("result", "failure")
+                .register(meterRegistry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onStartup() {
+        Schedulers.boundedElastic().schedule(this::refresh);
+    }
+
+    @EventListener(HeartbeatEvent.class)
+    public void onRegistryRefresh() {
+        Schedulers.boundedElastic().schedule(this::refresh);
+    }
+
+    /**
+     * Instance en cours de pré-chauffage, à écarter du load balancing.
+     */
+    public boolean isWarming(ServiceInstance instance) {
+        InstanceState state = instances.get(key(instance.getHost(), instance.getPort()));
+        return state != null && state.warming;
+    }
+
+    /**
+     * Timer des premières requêtes vers l'instance de l'URL, null une fois le quota atteint.
+     */
+    public Timer coldRequestTimer(URI url) {
+        InstanceState state = instances.get(key(url.getHost(), url.getPort()));
+        if (state == null || state.coldRequestsLeft.get() <= 0 || state.coldRequestsLeft.getAndDecrement() <= 0) {
+            return null;
+        }
+        return coldTimers.computeIfAbsent(state.serviceId + (state.warmed ? ":warm" : ":cold"), k ->
+                Timer.builder("gateway.upstream.cold.requests")
+                        .description("Premières requêtes routées vers une nouvelle instance")
+                        .tag("service", state.serviceId)
+                        .tag("warmed", Boolean.toString(state.warmed))
+                        .publishPercentiles(0.5, 0.99)
+                        .register(meterRegistry));
+    }
+
+    synchronized void refresh() {
+        Map<String, String> current = new HashMap<>();
+        for (String serviceId : upstreamConnectionPools.serviceIds()) {
+            try {
+                for (ServiceInstance instance : discoveryClient.getInstances(serviceId)) {
+                    current.put(key(instance.getHost(), instance.getPort()), serviceId);
+                    if (!instances.containsKey(key(instance.getHost(), instance.getPort()))) {
+                        discovered(serviceId, instance);
+                    }
+                }
+            } catch (RuntimeException e) {
+                log.warn("⚠️ Failed to list instances of {}: {}", serviceId, e.getMessage());
+                return;
+            }
+        }
+
+        Set<String> gone = new HashSet<>(instances.keySet());
+        gone.removeAll(current.keySet());
+        for (String key : gone) {
+            InstanceState state = instances.remove(key);
+            int separator = key.lastIndexOf(':');
+            log.info("🔌 Instance {} of {} deregistered, closing its connections", key, state.serviceId);
+            upstreamConnectionPools.release(state.serviceId, key.substring(0, separator),
+                    Integer.parseInt(key.substring(separator + 1)));
+        }
+    }
+
+    private void discovered(String serviceId, ServiceInstance instance) {
+        String key = key(instance.getHost(), instance.getPort());
+        HttpClient client = upstreamConnectionPools.client(serviceId);
+        InstanceState state = new InstanceState(serviceId, enabled && client != null && connections > 0, coldRequests);
+        instances.put(key, state);
+        if (!state.warmed) {
+            return;
+        }
+
+        long start = System.nanoTime();
+        String url = instance.getUri().toString() + path;
+        // Requêtes parallèles : chacune occupe une connexion, qui retourne au pool une fois la réponse lue
+        Flux.range(0, connections)
+                .flatMap(i -> client.get()
+                        .uri(url)
+                        .responseSingle((response, body) -> body.then(Mono.just(response.status().code()))),
+                        connections)
+                .then()
+                .timeout(timeout)
+                .doFinally(signal -> state.warming = false)
+                .subscribe(v -> { }, err -> {
+                    warmupFailures.increment();
+                    log.warn("⚠️ Pre-warming {} ({}) failed, routing to it anyway: {}", key, serviceId, err.getMessage());
+                }, () -> {
+                    warmups.increment();
+                    log.info("🔥 Pre-warmed {} connections to {} ({}) in {} ms", connections, key, serviceId,
+                            TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+                });
+    }
+
+    private static String key(String host, int port) {
+        return host + ":" + port;
+    }
+}
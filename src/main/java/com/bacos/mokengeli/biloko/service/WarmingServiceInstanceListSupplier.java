@@ -0,0 +1,34 @@
+package com.bacos.mokengeli.biloko.service;
+
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.loadbalancer.core.DelegatingServiceInstanceListSupplier;
+import org.springframework.cloud.loadbalancer.core.ServiceInstanceListSupplier;
+import reactor.core.publisher.Flux;
+
+import java.util.List;
+
+/**
+ * Écarte du load balancing les instances dont les connexions sont en cours de pré-chauffage
+ * ({@link UpstreamPrewarmer}). Si toutes le sont, la liste est rendue telle quelle.
+ */
+public class WarmingServiceInstanceListSupplier extends DelegatingServiceInstanceListSupplier {
+
+    private final UpstreamPrewarmer upstreamPrewarmer;
+
+    public WarmingServiceInstanceListSupplier(ServiceInstanceListSupplier delegate, UpstreamPrewarmer upstreamPrewarmer) {
+        super(delegate);
+        this.upstreamPrewarmer = upstreamPrewarmer;
+    }
+
+    @Override
+    public Flux<List<ServiceInstance>> get() {
+        return getDelegate().get().map(this::filter);
+    }
+
+    private List<ServiceInstance> filter(List<ServiceInstance> instances) {
+        List<ServiceInstance> ready = instances.stream()
+                .filter(instance -> !upstreamPrewarmer.isWarming(instance))
+                .toList();
+        return ready.isEmpty() ? instances : ready;
+    }
+}
@@ -0,0 +1,36 @@
+package com.bacos.mokengeli.biloko.benchmark;
+
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.GlobalFilter;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+/**
+ * Chaîne de filtres minimale, équivalente à celle du FilteringWebHandler, terminée par un service simulé.
+ */
+final class BenchmarkChain implements GatewayFilterChain {
+
+    private final List<GlobalFilter> filters;
+    private final int index;
+    private final GatewayFilterChain terminal;
+
+    BenchmarkChain(List<GlobalFilter> filters, GatewayFilterChain terminal) {
+        this(filters, 0, terminal);
+    }
+
+    private BenchmarkChain(List<GlobalFilter> filters, int index, GatewayFilterChain terminal) {
+        this.filters = filters;
+        this.index = index;
+        this.terminal = terminal;
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange) {
+        if (index < filters.size()) {
+            return filters.get(index).filter(exchange, new BenchmarkChain(filters, index + 1, terminal));
+        }
+        return terminal.filter(exchange);
+    }
+}
@@ -0,0 +1,78 @@
+package com.bacos.mokengeli.biloko.benchmark;
+
+import com.bacos.mokengeli.biloko.benchmark.GatewayFilterFixtures.Traffic;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.GlobalFilter;
+import org.springframework.mock.web.server.MockServerWebExchange;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Coût de chaque GlobalFilter du package {@code filter}, puis de la chaîne complète, par mélange de trafic.
+ * <p>
+ * {@code exchangeOnly} mesure la seule construction du MockServerWebExchange, à soustraire des autres résultats.
+ * Lancer avec le profiler GC ({@code -prof gc}, activé par défaut dans le profil Maven {@code perf})
+ * pour obtenir l'allocation par opération.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FilterChainBenchmark {
+
+    @Param({"WEB_COOKIE", "MOBILE_BEARER", "SOCKET_IO_POLLING", "PUBLIC_PATH", "LOGIN_RESPONSE"})
+    public Traffic traffic;
+
+    @Param({"CHAIN",
+            "AuthenticationContextFilter",
+            "SocketIOGatewayFilter",
+            "AccessLogFilter",
+            "MultiSessionValidationGatewayFilter",
+            "UnifiedAuthenticationFilter",
+            "AuthenticationTranslatorFilter",
+            "AuthenticationResponseFilter"})
+    public String filter;
+
+    private GatewayFilterFixtures fixtures;
+    private List<GlobalFilter> filters;
+    private GatewayFilterChain terminal;
+
+    @Setup
+    public void setup() {
+        fixtures = new GatewayFilterFixtures();
+        filters = "CHAIN".equals(filter) ? fixtures.chain() : List.of(fixtures.filter(filter));
+        terminal = fixtures.terminal(traffic);
+    }
+
+    @TearDown
+    public void tearDown() {
+        fixtures.close();
+    }
+
+    @Benchmark
+    public MockServerWebExchange filters() {
+        MockServerWebExchange exchange = fixtures.exchange(traffic);
+        new BenchmarkChain(filters, terminal).filter(exchange).block();
+        return exchange;
+    }
+
+    @Benchmark
+    public MockServerWebExchange exchangeOnly() {
+        return fixtures.exchange(traffic);
+    }
+}
@@ -0,0 +1,203 @@
+package com.bacos.mokengeli.biloko.benchmark;
+
+import com.bacos.mokengeli.biloko.config.AccessLogProperties;
+import com.bacos.mokengeli.biloko.filter.AccessLogFilter;
+import com.bacos.mokengeli.biloko.filter.AuthenticationContextFilter;
+import com.bacos.mokengeli.biloko.filter.AuthenticationResponseFilter;
+import com.bacos.mokengeli.biloko.filter.AuthenticationTranslatorFilter;
+import com.bacos.mokengeli.biloko.filter.MultiSessionValidationGatewayFilter;
+import com.bacos.mokengeli.biloko.filter.SocketIOGatewayFilter;
+import com.bacos.mokengeli.biloko.filter.UnifiedAuthenticationFilter;
+import com.bacos.mokengeli.biloko.service.AccessLogPipeline;
+import com.bacos.mokengeli.biloko.service.AuthInternalClient;
+import com.bacos.mokengeli.biloko.service.AuthenticationContextResolver;
+import com.bacos.mokengeli.biloko.service.ClientProfileResolver;
+import com.bacos.mokengeli.biloko.service.JwtTokenVerifier;
+import com.bacos.mokengeli.biloko.service.RejectedJtiCache;
+import com.bacos.mokengeli.biloko.service.RequestClassifier;
+import com.bacos.mokengeli.biloko.service.SessionCache;
+import com.bacos.mokengeli.biloko.service.SessionFixtures;
+import com.bacos.mokengeli.biloko.service.SessionLookupService;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.springframework.cloud.gateway.config.GatewayProperties;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.GlobalFilter;
+import org.springframework.cloud.gateway.route.RouteDefinition;
+import org.springframework.core.Ordered;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Filtres du Gateway assemblés sans contexte Spring, avec leurs vraies dépendances
+ * (le cache de sessions est pré-rempli : aucun appel réseau pendant les mesures).
+ * <p>
+ * Le journal d'accès est démarré comme en production : sans lui, {@code AccessLogFilter} ne fait rien.
+ * À fermer en fin de mesure ({@link #close()}).
+ */
+public class GatewayFilterFixtures implements AutoCloseable {
+
+    private static final String SECRET = "benchmark-secret-benchmark-secret-benchmark-secret";
+    private static final String COOKIE_NAME = "accessToken";
+    private static final List<String> PUBLIC_PATHS = List.of("/public/**", "/api/auth/login");
+    private static final List<String> AUTH_ENDPOINTS = List.of("/api/auth/login/**", "/api/auth/refresh/**");
+    private static final List<String> LOGOUT_PATHS = List.of("/api/auth/logout");
+    private static final List<String> SOCKET_IO_PATHS =
+            List.of("/socket.io/**", "/api/order/socket.io/**", "/api/order/socketio/**");
+
+    /**
+     * Mélanges de trafic mesurés.
+     */
+    public enum Traffic {
+        WEB_COOKIE, MOBILE_BEARER, SOCKET_IO_POLLING, PUBLIC_PATH, LOGIN_RESPONSE
+    }
+
+    private final Map<String, GlobalFilter> filters = new LinkedHashMap<>();
+    private final AccessLogPipeline accessLogPipeline;
+    private final String token;
+    private final byte[] loginBody;
+
+    public GatewayFilterFixtures() {
+        MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+        String jti = UUID.randomUUID().toString();
+        this.token = Jwts.builder()
+                .id(jti)
+                .claim("employeeNumber", "EMP-0001")
+                .claim("appType", "WAITER")
+                .expiration(Date.from(Instant.now().plus(Duration.ofHours(8))))
+                .signWith(Keys.hmacShaKeyFor(SECRET.getBytes(StandardCharsets.UTF_8)))
+                .compact();
+        this.loginBody = ("{\"user\":{\"employeeNumber\":\"EMP-0001\",\"roles\":[\"WAITER\"]},"
+                + "\"token\":\"" + token + "\",\"expiresIn\":28800}").getBytes(StandardCharsets.UTF_8);
+
+        JwtTokenVerifier jwtTokenVerifier = new JwtTokenVerifier(SECRET, 100_000, 3600, meterRegistry);
+        ClientProfileResolver clientProfileResolver = new ClientProfileResolver(1024, meterRegistry);
+        AuthenticationContextResolver contextResolver =
+                new AuthenticationContextResolver(jwtTokenVerifier, clientProfileResolver);
+        ReflectionTestUtils.setField(contextResolver, "accessTokenCookieName", COOKIE_NAME);
+        RequestClassifier requestClassifier = new RequestClassifier(PUBLIC_PATHS, AUTH_ENDPOINTS, LOGOUT_PATHS,
+                SOCKET_IO_PATHS, gatewayProperties());
+
+        SessionCache sessionCache = SessionFixtures.cache(meterRegistry);
+        sessionCache.put(SessionCache.key("EMP-0001", "WAITER"), List.of(jti), 5, null, System.nanoTime());
+        AuthInternalClient authInternalClient =
+                new AuthInternalClient(WebClient.create(), "authentication-service", COOKIE_NAME);
+        SessionLookupService lookupService = SessionFixtures.lookup(authInternalClient, sessionCache)
+                .meterRegistry(meterRegistry)
+                .build();
+        RejectedJtiCache rejectedJtiCache = new RejectedJtiCache(30, 100_000, sessionCache, meterRegistry);
+
+        this.accessLogPipeline = new AccessLogPipeline(new AccessLogProperties(), meterRegistry);
+        accessLogPipeline.start();
+
+        AuthenticationTranslatorFilter translatorFilter = new AuthenticationTranslatorFilter(contextResolver);
+        ReflectionTestUtils.setField(translatorFilter, "accessTokenCookieName", COOKIE_NAME);
+        AuthenticationResponseFilter responseFilter =
+                new AuthenticationResponseFilter(requestClassifier, contextResolver);
+        ReflectionTestUtils.setField(responseFilter, "accessTokenCookieName", COOKIE_NAME);
+
+        List<GlobalFilter> all = List.of(
+                new AuthenticationContextFilter(contextResolver, requestClassifier),
+                new SocketIOGatewayFilter(contextResolver, requestClassifier),
+                new AccessLogFilter(accessLogPipeline, contextResolver, requestClassifier),
+                new MultiSessionValidationGatewayFilter(lookupService, sessionCache, contextResolver,
+                        sessionPeerSync, rejectedJtiCache, requestClassifier),
+                new UnifiedAuthenticationFilter(contextResolver),
+                translatorFilter,
+                responseFilter);
+        all.stream()
+                .sorted(Comparator.comparingInt(f -> ((Ordered) f).getOrder()))
+                .forEach(f -> filters.put(f.getClass().getSimpleName(), f));
+    }
+
+    /**
+     * Chaîne complète, dans l'ordre du Gateway.
+     */
+    public List<GlobalFilter> chain() {
+        return List.copyOf(filters.values());
+    }
+
+    public GlobalFilter filter(String simpleName) {
+        GlobalFilter filter = filters.get(simpleName);
+        if (filter == null) {
+            throw new IllegalArgumentException("Unknown filter " + simpleName + ", expected one of " + filters.keySet());
+        }
+        return filter;
+    }
+
+    public MockServerWebExchange exchange(Traffic traffic) {
+        return MockServerWebExchange.from(switch (traffic) {
+            case WEB_COOKIE -> MockServerHttpRequest.get("/api/order/orders/42")
+                    .header(HttpHeaders.USER_AGENT, "Mozilla/5.0 (Windows NT 10.0; Win64; x64) Chrome/126.0")
+                    .header(HttpHeaders.ORIGIN, "https://app.mokengeli-biloko.com")
+                    .cookie(new org.springframework.http.HttpCookie(COOKIE_NAME, token));
+            case MOBILE_BEARER -> MockServerHttpRequest.get("/api/inventory/items")
+                    .header(HttpHeaders.USER_AGENT, "okhttp/4.9.2")
+                    .header("X-Client-Type", "mobile")
+                    .header(HttpHeaders.AUTHORIZATION, "Bearer " + token);
+            case SOCKET_IO_POLLING -> MockServerHttpRequest.get("/api/order/socket.io/")
+                    .queryParam("EIO", "4")
+                    .queryParam("transport", "polling")
+                    .queryParam("sid", "bWVzc2FnZQ")
+                    .queryParam("token", token)
+                    .header(HttpHeaders.USER_AGENT, "okhttp/4.9.2");
+            case PUBLIC_PATH -> MockServerHttpRequest.get("/public/menu")
+                    .header(HttpHeaders.USER_AGENT, "Mozilla/5.0 (Macintosh; Intel Mac OS X 14_5) Safari/605.1.15");
+            case LOGIN_RESPONSE -> MockServerHttpRequest.post("/api/auth/login")
+                    .header(HttpHeaders.USER_AGENT, "Expo/2.31.2 CFNetwork/1496.0.7 Darwin/23.5.0")
+                    .header("X-Client-Type", "mobile");
+        });
+    }
+
+    /**
+     * Fin de chaîne simulant le service aval : corps de login pour LOGIN_RESPONSE, réponse vide sinon.
+     */
+    public GatewayFilterChain terminal(Traffic traffic) {
+        if (traffic != Traffic.LOGIN_RESPONSE) {
+            return exchange -> Mono.empty();
+        }
+        return exchange -> {
+            exchange.getResponse().setStatusCode(HttpStatus.OK);
+            return exchange.getResponse().writeWith(Flux.just(
+                    exchange.getResponse().bufferFactory().wrap(loginBody)));
+        };
+    }
+
+    @Override
+    public void close() {
+        try {
+            accessLogPipeline.stop();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static GatewayProperties gatewayProperties() {
+        GatewayProperties properties = new GatewayProperties();
+        properties.setRoutes(List.of(
+                new RouteDefinition("order-service-http=lb://order-service,Path=/api/order/**"),
+                new RouteDefinition("inventory-service=lb://inventory-service,Path=/api/inventory/**"),
+                new RouteDefinition("user-service=lb://user-service,Path=/api/user/**"),
+                new RouteDefinition("authentication-service=lb://authentication-service,Path=/api/auth/**")));
+        return properties;
+    }
+}
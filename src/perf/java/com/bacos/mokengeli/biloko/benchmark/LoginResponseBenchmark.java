@@ -0,0 +1,159 @@
+package com.bacos.mokengeli.biloko.benchmark;
+
+import com.bacos.mokengeli.biloko.benchmark.GatewayFilterFixtures.Traffic;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.reactivestreams.Publisher;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.GlobalFilter;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.http.server.reactive.ServerHttpResponseDecorator;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Réponse de login mobile : filtre en streaming ({@code AuthenticationResponseFilter}) contre l'ancienne
+ * implémentation qui agrégeait tout le corps, le convertissait en String et construisait un arbre Jackson.
+ * <p>
+ * Le corps (token placé après l'objet {@code user}, comme chez l'Authentication-Service) est découpé en
+ * {@code chunks} buffers. Lancer avec {@code -prof gc} (par défaut dans le profil {@code perf}) pour
+ * comparer l'allocation par réponse.
+ * <p>
+ * {@code mvn -Pperf test-compile exec:exec -Djmh.benchmarks=LoginResponseBenchmark}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LoginResponseBenchmark {
+
+    @Param({"STREAMING", "BUFFERED"})
+    public String implementation;
+
+    @Param({"1024", "16384"})
+    public int bodySize;
+
+    @Param({"1", "4"})
+    public int chunks;
+
+    private GatewayFilterFixtures fixtures;
+    private List<GlobalFilter> filters;
+    private byte[][] body;
+
+    @Setup
+    public void setup() {
+        fixtures = new GatewayFilterFixtures();
+        GlobalFilter responseFilter = "STREAMING".equals(implementation)
+                ? fixtures.filter("AuthenticationResponseFilter")
+                : new BufferedLoginResponseFilter();
+        // Le contexte (client mobile, classe de requête) est résolu par le premier filtre de la chaîne
+        filters = List.of(fixtures.filter("AuthenticationContextFilter"), responseFilter);
+        body = split(loginBody(bodySize), chunks);
+    }
+
+    @TearDown
+    public void tearDown() {
+        fixtures.close();
+    }
+
+    @Benchmark
+    public MockServerWebExchange loginResponse() {
+        MockServerWebExchange exchange = fixtures.exchange(Traffic.LOGIN_RESPONSE);
+        new BenchmarkChain(filters, terminal()).filter(exchange).block();
+        if (exchange.getResponse().getHeaders().getFirst(HttpHeaders.AUTHORIZATION) == null) {
+            throw new IllegalStateException("Authorization header missing");
+        }
+        return exchange;
+    }
+
+    private GatewayFilterChain terminal() {
+        return exchange -> {
+            ServerHttpResponse response = exchange.getResponse();
+            response.setStatusCode(HttpStatus.OK);
+            return response.writeWith(Flux.fromArray(body).map(chunk -> response.bufferFactory().wrap(chunk)));
+        };
+    }
+
+    private static byte[] loginBody(int size) {
+        String prefix = "{\"user\":{\"employeeNumber\":\"EMP-0001\",\"roles\":[\"WAITER\"],\"profile\":\"";
+        String suffix = "\"},\"token\":\"eyJhbGciOiJIUzI1NiJ9.eyJqdGkiOiIxIn0.signature\",\"expiresIn\":28800}";
+        int padding = Math.max(0, size - prefix.length() - suffix.length());
+        return (prefix + "x".repeat(padding) + suffix).getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static byte[][] split(byte[] bytes, int parts) {
+        List<byte[]> chunks = new ArrayList<>(parts);
+        int size = (bytes.length + parts - 1) / parts;
+        for (int from = 0; from < bytes.length; from += size) {
+            chunks.add(Arrays.copyOfRange(bytes, from, Math.min(bytes.length, from + size)));
+        }
+        return chunks.toArray(byte[][]::new);
+    }
+
+    /**
+     * Implémentation précédente d'AuthenticationResponseFilter, conservée pour comparaison.
+     */
+    static final class BufferedLoginResponseFilter implements GlobalFilter {
+
+        private final ObjectMapper objectMapper = new ObjectMapper();
+
+        @Override
+        public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+            ServerHttpResponse originalResponse = exchange.getResponse();
+            return chain.filter(exchange.mutate().response(new ServerHttpResponseDecorator(originalResponse) {
+                @Override
+                @SuppressWarnings("unchecked")
+                public Mono<Void> writeWith(Publisher<? extends DataBuffer> body) {
+                    if (!(body instanceof Flux) || originalResponse.getStatusCode() != HttpStatus.OK) {
+                        return super.writeWith(body);
+                    }
+                    Flux<? extends DataBuffer> fluxBody = (Flux<? extends DataBuffer>) body;
+                    return super.writeWith(fluxBody.buffer().map(dataBuffers -> {
+                        DataBuffer joinedBuffer = originalResponse.bufferFactory().join(dataBuffers);
+                        byte[] content = new byte[joinedBuffer.readableByteCount()];
+                        joinedBuffer.read(content);
+                        DataBufferUtils.release(joinedBuffer);
+                        try {
+                            JsonNode jsonNode = objectMapper.readTree(new String(content, StandardCharsets.UTF_8));
+                            String token = jsonNode.has("token") ? jsonNode.get("token").asText()
+                                    : jsonNode.has("accessToken") ? jsonNode.get("accessToken").asText() : null;
+                            if (token != null) {
+                                originalResponse.getHeaders().add(HttpHeaders.AUTHORIZATION, "Bearer " + token);
+                                originalResponse.getHeaders().add("Access-Control-Expose-Headers", "Authorization");
+                            }
+                        } catch (Exception e) {
+                            throw new IllegalStateException(e);
+                        }
+                        return originalResponse.bufferFactory().wrap(content);
+                    }));
+                }
+            }).build());
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package com.bacos.mokengeli.biloko.benchmark;
+
+import com.bacos.mokengeli.biloko.model.RequestClass;
+import com.bacos.mokengeli.biloko.service.RequestClassifier;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.cloud.gateway.config.GatewayProperties;
+import org.springframework.http.server.PathContainer;
+import org.springframework.web.util.pattern.PathPattern;
+import org.springframework.web.util.pattern.PathPatternParser;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Classification d'un chemin selon le nombre de chemins configurés :
+ * index par premier segment ({@link RequestClassifier}) contre parcours linéaire de tous les motifs.
+ * <p>
+ * {@code SHARED_PREFIX} reproduit une configuration réelle où tous les motifs commencent par {@code /api}
+ * (un seul groupe dans l'index, cas le plus défavorable) ; {@code DISTINCT_SEGMENTS} un premier segment
+ * différent par motif. Le chemin classé correspond au dernier motif ({@code MATCH}) ou à aucun ({@code MISS}).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RequestClassifierBenchmark {
+
+    private static final String[] SERVICES = {"order", "inventory", "user", "auth"};
+
+    @Param({"8", "64", "512"})
+    public int pathCount;
+
+    @Param({"SHARED_PREFIX", "DISTINCT_SEGMENTS"})
+    public String layout;
+
+    @Param({"MATCH", "MISS"})
+    public String lookup;
+
+    private RequestClassifier classifier;
+    private List<PathPattern> linear;
+    private PathContainer path;
+
+    @Setup
+    public void setup() {
+        List<String> publicPaths = new ArrayList<>();
+        for (int i = 0; i < pathCount; i++) {
+            publicPaths.add("SHARED_PREFIX".equals(layout)
+                    ? "/api/" + SERVICES[i % SERVICES.length] + "/public" + i + "/**"
+                    : "/public" + i + "/**");
+        }
+        classifier = new RequestClassifier(publicPaths, List.of("/api/auth/login/**"), List.of("/api/auth/logout"),
+                List.of("/socket.io/**"), new GatewayProperties());
+        linear = publicPaths.stream().map(PathPatternParser.defaultInstance::parse).toList();
+        int last = pathCount - 1;
+        String matching = "SHARED_PREFIX".equals(layout)
+                ? "/api/" + SERVICES[last % SERVICES.length] + "/public" + last + "/menu/42"
+                : "/public" + last + "/menu/42";
+        path = PathContainer.parsePath("MATCH".equals(lookup) ? matching : "/api/order/orders/42");
+    }
+
+    @Benchmark
+    public RequestClass indexed() {
+        return classifier.classify(path);
+    }
+
+    @Benchmark
+    public boolean linearScan() {
+        for (PathPattern pattern : linear) {
+            if (pattern.matches(path)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
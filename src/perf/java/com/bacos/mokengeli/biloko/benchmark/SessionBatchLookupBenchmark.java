@@ -0,0 +1,133 @@
+package com.bacos.mokengeli.biloko.benchmark;
+
+import com.bacos.mokengeli.biloko.loadtest.StubBackends;
+import com.bacos.mokengeli.biloko.service.AuthInternalClient;
+import com.bacos.mokengeli.biloko.service.SessionBatchLookup;
+import com.bacos.mokengeli.biloko.service.SessionCache;
+import com.bacos.mokengeli.biloko.service.SessionFixtures;
+import com.bacos.mokengeli.biloko.service.SessionLookupService;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Rafale de recherches de sessions simultanées (clés toutes distinctes) contre l'Authentication-Service
+ * simulé de {@link StubBackends} : endpoint unitaire ({@code batched=false}) contre lots
+ * ({@code batched=true}). Le temps mesuré est celui de la rafale complète ; {@code upstreamCalls}
+ * compte les requêtes HTTP reçues par le stub (à rapporter au nombre de rafales).
+ * <p>
+ * {@code mvn -Pperf test-compile exec:exec -Djmh.benchmarks=SessionBatchLookupBenchmark}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SessionBatchLookupBenchmark {
+
+    private static final String[] APP_TYPES = {"WAITER", "MANAGER", "KITCHEN", "CASHIER"};
+
+    @Param({"false", "true"})
+    public boolean batched;
+
+    @Param({"16", "128"})
+    public int burst;
+
+    @Param({"2"})
+    public int latencyMillis;
+
+    private StubBackends backends;
+    private ConnectionProvider connections;
+    private SessionBatchLookup batchLookup;
+    private SessionLookupService lookupService;
+    private long next;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        backends = new StubBackends(Duration.ofMillis(latencyMillis), 0.2, 256).start();
+        connections = ConnectionProvider.builder("session-batch-benchmark")
+                .maxConnections(256)
+                .pendingAcquireMaxCount(-1)
+                .build();
+        WebClient webClient = WebClient.builder()
+                .clientConnector(new ReactorClientHttpConnector(HttpClient.create(connections)))
+                .build();
+        // Adresse directe du stub à la place du nom Eureka
+        AuthInternalClient authInternalClient = new AuthInternalClient(webClient,
+                "127.0.0.1:" + backends.ports().get("authentication-service"), "accessToken");
+
+        MeterRegistry meterRegistry = new SimpleMeterRegistry();
+        SessionCache sessionCache = SessionFixtures.cache(
+                settings -> settings.getCache().getFallback().setMaxStalenessSeconds(0), meterRegistry);
+        SessionFixtures.LookupBuilder lookup = SessionFixtures.lookup(authInternalClient, sessionCache)
+                .settings(settings -> {
+                    settings.getLookup().setDeadline(Duration.ofSeconds(5));
+                    settings.getLookup().getBulkhead().setMaxConcurrent(burst);
+                    settings.getLookup().getBatch().setEnabled(batched);
+                })
+                .meterRegistry(meterRegistry);
+        lookupService = lookup.build();
+        batchLookup = lookup.batchLookup();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        if (batchLookup != null) {
+            batchLookup.stop();
+        }
+        connections.disposeLater().block(Duration.ofSeconds(5));
+        backends.close();
+    }
+
+    /**
+     * Requêtes HTTP vers l'Authentication-Service, rapportées par opération.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class UpstreamCalls {
+        public long upstreamCalls;
+    }
+
+    @Benchmark
+    public long lookupBurst(UpstreamCalls calls) {
+        long before = upstreamRequests();
+        long first = next;
+        next += burst;
+        Long found = Flux.range(0, burst)
+                .flatMap(i -> {
+                    long n = first + i;
+                    return lookupService.fetch("token", String.format("EMP-%07d", n), APP_TYPES[(int) (n % APP_TYPES.length)]);
+                }, burst)
+                .count()
+                .block(Duration.ofSeconds(10));
+        calls.upstreamCalls += upstreamRequests() - before;
+        return found == null ? 0 : found;
+    }
+
+    private long upstreamRequests() {
+        // Requêtes reçues par l'Authentication-Service simulé, quel que soit le mode
+        return backends.sessionLookups() + backends.batchLookups();
+    }
+}
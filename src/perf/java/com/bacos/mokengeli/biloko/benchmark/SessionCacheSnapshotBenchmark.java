@@ -0,0 +1,111 @@
+package com.bacos.mokengeli.biloko.benchmark;
+
+import com.bacos.mokengeli.biloko.service.SessionCache;
+import com.bacos.mokengeli.biloko.service.SessionFixtures;
+import com.bacos.mokengeli.biloko.service.SessionCacheSnapshot;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Écriture et chargement du snapshot du cache de sessions à pleine capacité (500 000 clés par défaut) :
+ * durée du démarrage à chaud et de l'écriture périodique.
+ * <p>
+ * {@code mvn -Pperf test-compile exec:exec -Djmh.benchmarks=SessionCacheSnapshotBenchmark}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class SessionCacheSnapshotBenchmark {
+
+    private static final String[] APP_TYPES = {"WAITER", "MANAGER", "KITCHEN", "CASHIER"};
+
+    @Param({"500000"})
+    public int entries;
+
+    @Param({"3"})
+    public int sessions;
+
+    private Path directory;
+    private Path file;
+    private SessionCacheSnapshot writer;
+    private SessionCacheSnapshot loader;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        directory = Files.createTempDirectory("session-cache-snapshot");
+        file = directory.resolve("session-cache.bin");
+        SessionCache source = newCache();
+        for (int i = 0; i < entries; i++) {
+            List<String> jtis = new ArrayList<>(sessions);
+            for (int j = 0; j < sessions; j++) {
+                jtis.add(UUID.randomUUID().toString());
+            }
+            source.put(SessionCache.key(String.format("EMP-%07d", i), APP_TYPES[i % APP_TYPES.length]),
+                    jtis, 5, null, System.nanoTime());
+        }
+        writer = new SessionCacheSnapshot(source, file, Duration.ofMinutes(1), Duration.ofMinutes(10));
+        writer.write();
+    }
+
+    /**
+     * Chaque chargement part d'un cache vide, comme au démarrage.
+     */
+    @Setup(Level.Invocation)
+    public void freshCache() {
+        loader = new SessionCacheSnapshot(newCache(), file, Duration.ofMinutes(1), Duration.ofMinutes(10));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        try (var paths = Files.walk(directory)) {
+            for (Path p : paths.sorted((a, b) -> b.compareTo(a)).toList()) {
+                Files.deleteIfExists(p);
+            }
+        }
+    }
+
+    @Benchmark
+    public int load() {
+        int restored = loader.load();
+        if (restored != entries) {
+            throw new IllegalStateException("Only " + restored + " of " + entries + " entries restored");
+        }
+        return restored;
+    }
+
+    @Benchmark
+    public int write() throws IOException {
+        return writer.write();
+    }
+
+    private static SessionCache newCache() {
+        return SessionFixtures.cache(settings -> {
+            settings.getCache().setTtlSeconds(600);
+            settings.getCache().getFallback().setMaxStalenessSeconds(0);
+        }, new SimpleMeterRegistry());
+    }
+}
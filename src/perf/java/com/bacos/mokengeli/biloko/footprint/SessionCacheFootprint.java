@@ -0,0 +1,173 @@
+package com.bacos.mokengeli.biloko.footprint;
+
+import com.bacos.mokengeli.biloko.model.SessionKey;
+import com.bacos.mokengeli.biloko.service.SessionCache;
+import com.bacos.mokengeli.biloko.service.SessionFixtures;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import java.lang.management.ManagementFactory;
+import java.lang.ref.Reference;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.IntSupplier;
+
+/**
+ * Empreinte mémoire du cache de sessions à pleine capacité : ancienne disposition
+ * ({@code Cache<String, List<String>>}, clé concaténée, JTI en chaînes) contre la disposition compacte
+ * ({@link SessionKey}, {@code JtiSet}). Mesure aussi les octets alloués par consultation.
+ * <p>
+ * {@code mvn -Pperf test-compile exec:exec@footprint [-Dfootprint.args="entries=500000 sessions=3"]}
+ * <p>
+ * Le cache de repli ({@code fallback.max-staleness-seconds}) est désactivé pour comparer les seules dispositions.
+ */
+public final class SessionCacheFootprint {
+
+    private static final String[] APP_TYPES = {"WAITER", "MANAGER", "KITCHEN", "CASHIER"};
+    private static final int LOOKUPS = 1_000_000;
+
+    private final int entries;
+    private final int sessions;
+    private final String[] employees;
+    private final String[][] jtis;
+
+    SessionCacheFootprint(int entries, int sessions) {
+        this.entries = entries;
+        this.sessions = sessions;
+        this.employees = new String[entries];
+        this.jtis = new String[entries][sessions];
+        for (int i = 0; i < entries; i++) {
+            employees[i] = String.format("EMP-%07d", i);
+            for (int j = 0; j < sessions; j++) {
+                jtis[i][j] = UUID.randomUUID().toString();
+            }
+        }
+    }
+
+    public static void main(String[] args) {
+        Map<String, String> options = new LinkedHashMap<>();
+        for (String arg : args) {
+            int eq = arg.indexOf('=');
+            if (eq > 0) {
+                options.put(arg.substring(0, eq), arg.substring(eq + 1));
+            }
+        }
+        int entries = Integer.parseInt(options.getOrDefault("entries", "500000"));
+        int sessions = Integer.parseInt(options.getOrDefault("sessions", "3"));
+        new SessionCacheFootprint(entries, sessions).run();
+    }
+
+    void run() {
+        System.out.printf("Session cache footprint: %,d entries, %d sessions each%n", entries, sessions);
+
+        long baseline = usedHeap();
+        Cache<String, List<String>> legacy = legacy();
+        long legacyBytes = usedHeap() - baseline;
+        long legacyAllocated = allocatedPerLookup(() -> legacyLookups(legacy));
+        report("legacy  (String key, List<String>)", legacyBytes, legacyAllocated, legacy.estimatedSize());
+
+        baseline = usedHeap();
+        SessionCache compact = compact();
+        long compactBytes = usedHeap() - baseline;
+        long compactAllocated = allocatedPerLookup(() -> compactLookups(compact));
+        long[] size = {0};
+        compact.forEach((key, entry) -> size[0]++);
+        report("compact (SessionKey, JtiSet)", compactBytes, compactAllocated, size[0]);
+
+        System.out.printf("Retained heap ratio compact/legacy: %.2f%n", (double) compactBytes / legacyBytes);
+        // Les deux caches restent joignables jusqu'à la fin des mesures
+        Reference.reachabilityFence(legacy);
+        Reference.reachabilityFence(compact);
+    }
+
+    private Cache<String, List<String>> legacy() {
+        Cache<String, List<String>> cache = Caffeine.newBuilder()
+                .maximumSize(500_000)
+                .expireAfterWrite(Duration.ofMinutes(10))
+                .build();
+        for (int i = 0; i < entries; i++) {
+            List<String> list = new ArrayList<>(sessions);
+            for (int j = 0; j < sessions; j++) {
+                // Copie : chaque réponse désérialisée porte ses propres chaînes
+                list.add(new String(jtis[i][j]));
+            }
+            cache.put(employees[i] + ":" + APP_TYPES[i % APP_TYPES.length], list);
+        }
+        cache.cleanUp();
+        return cache;
+    }
+
+    private SessionCache compact() {
+        SessionCache cache = SessionFixtures.cache(settings -> {
+            settings.getCache().setTtlSeconds(600);
+            settings.getCache().getFallback().setMaxStalenessSeconds(0);
+        }, new SimpleMeterRegistry());
+        for (int i = 0; i < entries; i++) {
+            cache.put(SessionCache.key(new String(employees[i]), APP_TYPES[i % APP_TYPES.length]),
+                    List.of(jtis[i]), 5, null, System.nanoTime());
+        }
+        return cache;
+    }
+
+    private int legacyLookups(Cache<String, List<String>> cache) {
+        int found = 0;
+        for (int n = 0; n < LOOKUPS; n++) {
+            int i = n % entries;
+            List<String> list = cache.getIfPresent(employees[i] + ":" + APP_TYPES[i % APP_TYPES.length]);
+            if (list != null && list.contains(jtis[i][n % sessions])) {
+                found++;
+            }
+        }
+        return found;
+    }
+
+    private int compactLookups(SessionCache cache) {
+        int found = 0;
+        for (int n = 0; n < LOOKUPS; n++) {
+            int i = n % entries;
+            SessionCache.Entry entry = cache.getEntry(SessionCache.key(employees[i], APP_TYPES[i % APP_TYPES.length]));
+            if (entry != null && entry.jtis().contains(jtis[i][n % sessions])) {
+                found++;
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Octets alloués par consultation, après un tour de chauffe pour le JIT.
+     */
+    private static long allocatedPerLookup(IntSupplier lookups) {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        lookups.getAsInt();
+        long before = threads.getCurrentThreadAllocatedBytes();
+        int found = lookups.getAsInt();
+        long allocated = threads.getCurrentThreadAllocatedBytes() - before;
+        if (found != LOOKUPS) {
+            System.out.printf("  warning: %,d/%,d lookups found their JTI%n", found, LOOKUPS);
+        }
+        return allocated / LOOKUPS;
+    }
+
+    private static void report(String layout, long retainedBytes, long allocatedPerLookup, long size) {
+        System.out.printf("%-36s retained %,7d KiB (%,4d B/entry), %,4d B allocated per lookup, %,d entries%n",
+                layout, retainedBytes / 1024, size == 0 ? 0 : retainedBytes / size, allocatedPerLookup, size);
+    }
+
+    private static long usedHeap() {
+        for (int i = 0; i < 5; i++) {
+            System.gc();
+            try {
+                Thread.sleep(100);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+}
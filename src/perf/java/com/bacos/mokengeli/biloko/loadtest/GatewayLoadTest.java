@@ -0,0 +1,189 @@
+package com.bacos.mokengeli.biloko.loadtest;
+
+import com.bacos.mokengeli.biloko.Application;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
+import io.netty.handler.codec.http.HttpMethod;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.convert.DurationStyle;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.http.HttpHeaders;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.IntFunction;
+
+/**
+ * Test de charge de bout en bout, sans réseau : services aval simulés sur la boucle locale,
+ * Gateway démarré en process avec une liste d'instances statique à la place d'Eureka.
+ * <p>
+ * Pour chaque route, la cadence monte par paliers jusqu'à ce que le p99 dépasse le SLO ou que
+ * le taux d'erreur dépasse 1 % ; le dernier palier tenu donne le débit maximal soutenable.
+ * <p>
+ * {@code mvn -Pperf test-compile exec:exec@loadtest -Dloadtest.args="latency=5ms payload=2048 users=500"}
+ * <p>
+ * Options (clé=valeur) : latency, jitter, payload, users, start-rps, step-factor, max-rps,
+ * step-duration, slo-p99, routes (liste séparée par des virgules).
+ */
+@Slf4j
+public class GatewayLoadTest {
+
+    private static final String SECRET = "load-test-secret-load-test-secret-load-test-secret";
+    private static final double MAX_ERROR_RATE = 0.01;
+
+    private final Map<String, String> options;
+
+    GatewayLoadTest(Map<String, String> options) {
+        this.options = options;
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new LinkedHashMap<>();
+        for (String arg : args) {
+            int eq = arg.indexOf('=');
+            if (eq > 0) {
+                options.put(arg.substring(0, eq), arg.substring(eq + 1));
+            }
+        }
+        new GatewayLoadTest(options).run();
+        System.exit(0);
+    }
+
+    void run() throws InterruptedException {
+        Duration latency = DurationStyle.detectAndParse(option("latency", "5ms"));
+        int users = Integer.parseInt(option("users", "500"));
+        List<String> tokens = tokens(users);
+
+        try (StubBackends stubs = new StubBackends(latency, Double.parseDouble(option("jitter", "0.2")),
+                Integer.parseInt(option("payload", "2048"))).start()) {
+            ConfigurableApplicationContext gateway = startGateway(stubs.ports());
+            int port = gateway.getEnvironment().getRequiredProperty("local.server.port", Integer.class);
+            try (OpenModelLoad load = new OpenModelLoad(port, 2048, 20_000)) {
+                Map<String, IntFunction<OpenModelLoad.Call>> routes = routes(tokens);
+                List<String> selected = List.of(option("routes", String.join(",", routes.keySet())).split(","));
+
+                // Préchauffage : JIT, pools de connexions et cache de sessions
+                for (String route : selected) {
+                    load.run(route, 200, Duration.ofSeconds(5), routes.get(route));
+                }
+
+                List<OpenModelLoad.Step> summary = new ArrayList<>();
+                for (String route : selected) {
+                    OpenModelLoad.Step best = ramp(load, route, routes.get(route));
+                    if (best != null) {
+                        summary.add(best);
+                    }
+                }
+                report(summary);
+            } finally {
+                gateway.close();
+            }
+        }
+    }
+
+    private OpenModelLoad.Step ramp(OpenModelLoad load, String route, IntFunction<OpenModelLoad.Call> calls)
+            throws InterruptedException {
+        double stepFactor = Double.parseDouble(option("step-factor", "1.5"));
+        int maxRps = Integer.parseInt(option("max-rps", "50000"));
+        Duration stepDuration = DurationStyle.detectAndParse(option("step-duration", "10s"));
+        double sloP99Millis = Double.parseDouble(option("slo-p99", "100"));
+
+        OpenModelLoad.Step best = null;
+        for (int rps = Integer.parseInt(option("start-rps", "500")); rps <= maxRps; rps = (int) (rps * stepFactor)) {
+            OpenModelLoad.Step step = load.run(route, rps, stepDuration, calls);
+            log.info("📈 {} @ {} rps: achieved {} rps, p50 {} ms, p99 {} ms, p99.9 {} ms, errors {}",
+                    route, rps, Math.round(step.achievedRps()),
+                    format(step.percentileMillis(50)), format(step.percentileMillis(99)),
+                    format(step.percentileMillis(99.9)), step.errors() + step.shed());
+            if (step.errorRate() > MAX_ERROR_RATE || step.percentileMillis(99) > sloP99Millis) {
+                break;
+            }
+            best = step;
+        }
+        return best;
+    }
+
+    private static void report(List<OpenModelLoad.Step> summary) {
+        StringBuilder out = new StringBuilder("\n")
+                .append(String.format("%-22s %12s %10s %10s %10s %8s%n",
+                        "route", "max rps", "p50 ms", "p99 ms", "p99.9 ms", "errors"));
+        for (OpenModelLoad.Step step : summary) {
+            out.append(String.format("%-22s %12d %10s %10s %10s %8d%n",
+                    step.route(), Math.round(step.achievedRps()),
+                    format(step.percentileMillis(50)), format(step.percentileMillis(99)),
+                    format(step.percentileMillis(99.9)), step.errors() + step.shed()));
+        }
+        log.info("🏁 Max sustainable throughput per route:{}", out);
+    }
+
+    private ConfigurableApplicationContext startGateway(Map<String, Integer> ports) {
+        Map<String, Object> properties = new LinkedHashMap<>();
+        properties.put("server.port", 0);
+        properties.put("eureka.client.enabled", false);
+        properties.put("security.jwt.secret", SECRET);
+        properties.put("logging.level.com.bacos.mokengeli.biloko", "INFO");
+        properties.put("logging.level.org.springframework.cloud.gateway.handler.RoutePredicateHandlerMapping", "INFO");
+        properties.put("logging.level.ACCESS_LOG", option("access-log-level", "WARN"));
+        ports.forEach((service, port) -> properties.put(
+                "spring.cloud.discovery.client.simple.instances." + service + "[0].uri", "http://127.0.0.1:" + port));
+
+        return new SpringApplicationBuilder(Application.class)
+                .properties(properties)
+                .run();
+    }
+
+    /**
+     * Trafic par route : cookie web pour les services métier, Bearer mobile pour user-service,
+     * login mobile (réponse réécrite par AuthenticationResponseFilter) pour l'Authentication-Service.
+     */
+    private static Map<String, IntFunction<OpenModelLoad.Call>> routes(List<String> tokens) {
+        byte[] login = "{\"username\":\"load\",\"password\":\"test\"}".getBytes(StandardCharsets.UTF_8);
+        Map<String, IntFunction<OpenModelLoad.Call>> routes = new LinkedHashMap<>();
+        routes.put("order-service-http", i -> new OpenModelLoad.Call(HttpMethod.GET, "/api/order/orders/" + i,
+                List.of(HttpHeaders.COOKIE, "accessToken=" + token(tokens, i)), null));
+        routes.put("inventory-service", i -> new OpenModelLoad.Call(HttpMethod.GET, "/api/inventory/items",
+                List.of(HttpHeaders.COOKIE, "accessToken=" + token(tokens, i)), null));
+        routes.put("user-service", i -> new OpenModelLoad.Call(HttpMethod.GET, "/api/user/me",
+                List.of(HttpHeaders.AUTHORIZATION, "Bearer " + token(tokens, i),
+                        "X-Client-Type", "mobile", HttpHeaders.USER_AGENT, "okhttp/4.9.2"), null));
+        routes.put("authentication-service", i -> new OpenModelLoad.Call(HttpMethod.POST, "/api/auth/login",
+                List.of(HttpHeaders.CONTENT_TYPE, "application/json",
+                        "X-Client-Type", "mobile", HttpHeaders.USER_AGENT, "okhttp/4.9.2"), login));
+        return routes;
+    }
+
+    private static String token(List<String> tokens, int i) {
+        return tokens.get(i % tokens.size());
+    }
+
+    private static List<String> tokens(int users) {
+        Date expiration = Date.from(Instant.now().plus(Duration.ofHours(8)));
+        List<String> tokens = new ArrayList<>(users);
+        for (int i = 0; i < users; i++) {
+            String employeeNumber = String.format("EMP-%05d", i);
+            tokens.add(Jwts.builder()
+                    .id(StubBackends.jtiFor(employeeNumber))
+                    .claim("employeeNumber", employeeNumber)
+                    .claim("appType", "WAITER")
+                    .expiration(expiration)
+                    .signWith(Keys.hmacShaKeyFor(SECRET.getBytes(StandardCharsets.UTF_8)))
+                    .compact());
+        }
+        return tokens;
+    }
+
+    private String option(String name, String defaultValue) {
+        return options.getOrDefault(name, defaultValue);
+    }
+
+    private static String format(double millis) {
+        return String.format("%.2f", millis);
+    }
+}
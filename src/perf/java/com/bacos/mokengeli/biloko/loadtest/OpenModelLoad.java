@@ -0,0 +1,134 @@
+package com.bacos.mokengeli.biloko.loadtest;
+
+import io.netty.buffer.Unpooled;
+import io.netty.handler.codec.http.HttpMethod;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+import reactor.core.publisher.Mono;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.IntFunction;
+
+/**
+ * Générateur de charge en modèle ouvert : les requêtes partent à cadence fixe, que les précédentes
+ * aient répondu ou non. La latence est mesurée depuis l'instant d'envoi prévu, pour ne pas masquer
+ * l'attente accumulée quand le Gateway décroche (omission coordonnée).
+ */
+public class OpenModelLoad implements AutoCloseable {
+
+    /**
+     * Requête à émettre : méthode, chemin, en-têtes (paires nom/valeur) et corps éventuel.
+     */
+    public record Call(HttpMethod method, String path, List<String> headers, byte[] body) {
+    }
+
+    /**
+     * Résultat d'un palier de charge.
+     */
+    public record Step(String route, int targetRps, double achievedRps, long completed, long errors,
+                       long shed, Histogram latency) {
+
+        public double errorRate() {
+            long total = completed + errors + shed;
+            return total == 0 ? 0 : (double) (errors + shed) / total;
+        }
+
+        public double percentileMillis(double percentile) {
+            return latency.getValueAtPercentile(percentile) / 1_000_000.0;
+        }
+    }
+
+    private static final long HIGHEST_TRACKABLE_NANOS = TimeUnit.MINUTES.toNanos(1);
+
+    private final ConnectionProvider connections;
+    private final HttpClient client;
+    private final int maxInFlight;
+
+    public OpenModelLoad(int port, int maxConnections, int maxInFlight) {
+        this.connections = ConnectionProvider.builder("load-generator")
+                .maxConnections(maxConnections)
+                .pendingAcquireMaxCount(-1)
+                .build();
+        this.client = HttpClient.create(connections)
+                .baseUrl("http://127.0.0.1:" + port);
+        this.maxInFlight = maxInFlight;
+    }
+
+    /**
+     * Envoie {@code rps} requêtes par seconde pendant {@code duration}, puis attend les réponses en vol.
+     *
+     * @param calls requête à émettre pour le n-ième envoi
+     */
+    public Step run(String route, int rps, Duration duration, IntFunction<Call> calls) throws InterruptedException {
+        Recorder recorder = new Recorder(HIGHEST_TRACKABLE_NANOS, 3);
+        AtomicLong completed = new AtomicLong();
+        AtomicLong errors = new AtomicLong();
+        AtomicInteger inFlight = new AtomicInteger();
+        long shed = 0;
+
+        long intervalNanos = TimeUnit.SECONDS.toNanos(1) / rps;
+        int total = Math.toIntExact(duration.toSeconds() * rps);
+        long start = System.nanoTime();
+        for (int i = 0; i < total; i++) {
+            long intended = start + i * intervalNanos;
+            long wait = intended - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+            }
+            if (inFlight.get() >= maxInFlight) {
+                // Le Gateway ne suit plus : la requête est comptée comme perdue plutôt que d'attendre
+                shed++;
+                continue;
+            }
+            inFlight.incrementAndGet();
+            send(calls.apply(i))
+                    .subscribe(status -> {
+                        recorder.recordValue(Math.min(System.nanoTime() - intended, HIGHEST_TRACKABLE_NANOS));
+                        (status < 400 ? completed : errors).incrementAndGet();
+                        inFlight.decrementAndGet();
+                    }, err -> {
+                        errors.incrementAndGet();
+                        inFlight.decrementAndGet();
+                    });
+        }
+        long sendEnd = System.nanoTime();
+        awaitDrain(inFlight, Duration.ofSeconds(10));
+        // Toujours en vol après le délai de grâce : comptées en erreur
+        errors.addAndGet(inFlight.get());
+
+        double seconds = (sendEnd - start) / 1e9;
+        return new Step(route, rps, completed.get() / seconds, completed.get(), errors.get(), shed,
+                recorder.getIntervalHistogram());
+    }
+
+    private Mono<Integer> send(Call call) {
+        return client.headers(h -> {
+                    for (int i = 0; i + 1 < call.headers().size(); i += 2) {
+                        h.add(call.headers().get(i), call.headers().get(i + 1));
+                    }
+                })
+                .request(call.method())
+                .uri(call.path())
+                .send(call.body() == null ? Mono.empty() : Mono.just(Unpooled.wrappedBuffer(call.body())))
+                .responseSingle((response, body) -> body.then(Mono.just(response.status().code())));
+    }
+
+    private static void awaitDrain(AtomicInteger inFlight, Duration timeout) throws InterruptedException {
+        long deadline = System.nanoTime() + timeout.toNanos();
+        while (inFlight.get() > 0 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+    }
+
+    @Override
+    public void close() {
+        connections.disposeLater().block(Duration.ofSeconds(5));
+    }
+}
@@ -0,0 +1,58 @@
+package com.bacos.mokengeli.biloko.config;
+
+import com.bacos.mokengeli.biloko.filter.InstrumentedGlobalFilter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.GlobalFilter;
+import org.springframework.core.Ordered;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Sélection des filtres enveloppés par l'instrumentation.
+ */
+class FilterLatencyInstrumentationTest {
+
+    private final FilterLatencyInstrumentation instrumentation = instrumentation();
+
+    @Test
+    void projectFiltersAreInstrumented() {
+        Object bean = instrumentation.postProcessAfterInitialization(new OrderedFilter(10), "orderedFilter");
+
+        assertThat(bean).isInstanceOf(InstrumentedGlobalFilter.class);
+        assertThat(instrumentation.filters()).hasSize(1);
+    }
+
+    @Test
+    void routingFiltersAreNeverInstrumented() {
+        OrderedFilter routing = new OrderedFilter(Ordered.LOWEST_PRECEDENCE);
+
+        assertThat(instrumentation.postProcessAfterInitialization(routing, "routingFilter")).isSameAs(routing);
+        assertThat(instrumentation.filters()).isEmpty();
+    }
+
+    private static FilterLatencyInstrumentation instrumentation() {
+        DefaultListableBeanFactory beanFactory = new DefaultListableBeanFactory();
+        beanFactory.registerSingleton("meterRegistry", new SimpleMeterRegistry());
+        return new FilterLatencyInstrumentation(beanFactory.getBeanProvider(MeterRegistry.class), new MockEnvironment());
+    }
+
+    private record OrderedFilter(int order) implements GlobalFilter, Ordered {
+
+        @Override
+        public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+            return chain.filter(exchange);
+        }
+
+        @Override
+        public int getOrder() {
+            return order;
+        }
+    }
+}
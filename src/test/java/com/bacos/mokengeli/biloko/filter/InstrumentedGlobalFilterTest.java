@@ -0,0 +1,57 @@
+package com.bacos.mokengeli.biloko.filter;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.cloud.gateway.filter.GlobalFilter;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Phases pre / post mesurées par l'enveloppe d'instrumentation.
+ */
+class InstrumentedGlobalFilterTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    void recordsBothPhasesWhenTheChainContinues() {
+        GlobalFilter delegate = (exchange, chain) -> chain.filter(exchange).then(Mono.fromRunnable(() -> { }));
+        InstrumentedGlobalFilter filter = instrument(delegate);
+
+        filter.filter(exchange(), exchange -> Mono.delay(Duration.ofMillis(5)).then()).block(Duration.ofSeconds(5));
+
+        assertThat(filter.preTimer().count()).isEqualTo(1);
+        assertThat(filter.postTimer().count()).isEqualTo(1);
+        // La suite de la chaîne (5 ms) n'est comptée dans aucune des deux phases
+        assertThat(filter.postTimer().totalTime(TimeUnit.MILLISECONDS)).isLessThan(5);
+    }
+
+    @Test
+    void shortCircuitIsRecordedAsPreOnly() {
+        GlobalFilter delegate = (exchange, chain) -> Mono.empty();
+        InstrumentedGlobalFilter filter = instrument(delegate);
+
+        filter.filter(exchange(), exchange -> Mono.empty()).block(Duration.ofSeconds(5));
+
+        assertThat(filter.preTimer().count()).isEqualTo(1);
+        assertThat(filter.postTimer().count()).isZero();
+    }
+
+    private InstrumentedGlobalFilter instrument(GlobalFilter delegate) {
+        DefaultListableBeanFactory beanFactory = new DefaultListableBeanFactory();
+        beanFactory.registerSingleton("meterRegistry", meterRegistry);
+        return new InstrumentedGlobalFilter(delegate, "TestFilter", beanFactory.getBeanProvider(MeterRegistry.class));
+    }
+
+    private static MockServerWebExchange exchange() {
+        return MockServerWebExchange.from(MockServerHttpRequest.get("/api/order/orders/42"));
+    }
+}
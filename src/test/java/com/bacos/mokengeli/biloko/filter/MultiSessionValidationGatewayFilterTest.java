@@ -0,0 +1,116 @@
+package com.bacos.mokengeli.biloko.filter;
+
+import com.bacos.mokengeli.biloko.model.AuthenticationContext;
+import com.bacos.mokengeli.biloko.model.ClientProfile;
+import com.bacos.mokengeli.biloko.model.VerifiedToken;
+import com.bacos.mokengeli.biloko.service.AuthInternalClient;
+import com.bacos.mokengeli.biloko.service.AuthenticationContextResolver;
+import com.bacos.mokengeli.biloko.service.ClientProfileResolver;
+import com.bacos.mokengeli.biloko.service.JwtTokenVerifier;
+import com.bacos.mokengeli.biloko.service.RejectedJtiCache;
+import com.bacos.mokengeli.biloko.service.RequestClassifier;
+import com.bacos.mokengeli.biloko.service.SessionCache;
+import com.bacos.mokengeli.biloko.service.SessionFixtures;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.gateway.config.GatewayProperties;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Cache négatif des JTI : alimenté seulement par une liste demandée après la requête,
+ * et jamais consulté pour un JTI présent dans le cache positif.
+ */
+class MultiSessionValidationGatewayFilterTest {
+
+    private static final String SECRET = "filter-test-secret-filter-test-secret-0001";
+    private static final String KNOWN_JTI = UUID.randomUUID().toString();
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final SessionCache sessionCache = SessionFixtures.cache(meterRegistry);
+    private final RejectedJtiCache rejectedJtiCache = new RejectedJtiCache(30, 1000, sessionCache, meterRegistry);
+    private final AtomicInteger passed = new AtomicInteger();
+    private final GatewayFilterChain chain = exchange -> {
+        passed.incrementAndGet();
+        return Mono.empty();
+    };
+
+    @Test
+    void newSessionMissingFromAnEarlierLookupIsNotRemembered() {
+        // La liste renvoyée ne connaît que KNOWN_JTI, et arrive après 200 ms
+        MultiSessionValidationGatewayFilter filter = filter(Duration.ofMillis(200));
+        String staleJti = UUID.randomUUID().toString();
+        String newJti = UUID.randomUUID().toString();
+
+        MockServerWebExchange first = exchange(staleJti);
+        Mono<Void> firstRequest = filter.filter(first, chain).cache();
+        firstRequest.subscribe();
+        // Connexion toute récente : la requête rejoint la recherche lancée avant elle
+        MockServerWebExchange second = exchange(newJti);
+        filter.filter(second, chain).block(Duration.ofSeconds(5));
+        firstRequest.block(Duration.ofSeconds(5));
+
+        assertThat(first.getResponse().getStatusCode()).isEqualTo(HttpStatus.UNAUTHORIZED);
+        assertThat(second.getResponse().getStatusCode()).isEqualTo(HttpStatus.UNAUTHORIZED);
+        assertThat(rejectedJtiCache.rejection(staleJti)).isEqualTo(HttpStatus.UNAUTHORIZED);
+        assertThat(rejectedJtiCache.rejection(newJti)).isNull();
+    }
+
+    @Test
+    void positiveCacheWinsOverARejection() {
+        MultiSessionValidationGatewayFilter filter = filter(Duration.ZERO);
+        String jti = UUID.randomUUID().toString();
+        sessionCache.put(SessionCache.key("EMP-0001", "WAITER"), List.of(jti), 5, null, System.nanoTime());
+        rejectedJtiCache.reject(jti, HttpStatus.UNAUTHORIZED);
+
+        filter.filter(exchange(jti), chain).block(Duration.ofSeconds(5));
+
+        assertThat(passed).hasValue(1);
+    }
+
+    private MultiSessionValidationGatewayFilter filter(Duration authLatency) {
+        WebClient webClient = WebClient.builder()
+                .exchangeFunction(request -> Mono.delay(authLatency).thenReturn(ClientResponse.create(HttpStatus.OK)
+                        .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                        .body("{\"employeeNumber\":\"EMP-0001\",\"appType\":\"WAITER\",\"maxSessions\":5,"
+                                + "\"sessions\":[{\"jti\":\"" + KNOWN_JTI + "\"}]}")
+                        .build()))
+                .build();
+        AuthInternalClient authInternalClient =
+                new AuthInternalClient(webClient, "authentication-service", "accessToken");
+        AuthenticationContextResolver contextResolver = new AuthenticationContextResolver(
+                new JwtTokenVerifier(SECRET, 1000, 3600, meterRegistry), new ClientProfileResolver(16, meterRegistry));
+        RequestClassifier requestClassifier = new RequestClassifier(List.of("/public/**"),
+                List.of("/api/auth/login/**"), List.of("/api/auth/logout"), List.of("/socket.io/**"),
+                new GatewayProperties());
+        return new MultiSessionValidationGatewayFilter(
+                SessionFixtures.lookup(authInternalClient, sessionCache).meterRegistry(meterRegistry).build(),
+                sessionCache, contextResolver, null, rejectedJtiCache, requestClassifier);
+    }
+
+    /**
+     * Requête dont le contexte d'authentification (jeton cookie vérifié) est déjà résolu.
+     */
+    private static MockServerWebExchange exchange(String jti) {
+        MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/api/order/orders"));
+        exchange.getAttributes().put(AuthenticationContext.ATTRIBUTE, new AuthenticationContext(
+                AuthenticationContext.TokenSource.COOKIE, "token-" + jti, null, "token-" + jti, null,
+                ClientProfile.WEB, new VerifiedToken("EMP-0001", "WAITER", jti, Instant.now().plusSeconds(3600))));
+        return exchange;
+    }
+}
@@ -0,0 +1,115 @@
+package com.bacos.mokengeli.biloko.filter;
+
+import com.bacos.mokengeli.biloko.config.UpstreamPoolProperties;
+import com.bacos.mokengeli.biloko.service.InstanceLoadTracker;
+import com.bacos.mokengeli.biloko.service.UpstreamConnectionPools;
+import com.bacos.mokengeli.biloko.service.UpstreamPrewarmer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.netty.channel.ChannelOption;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.cloud.client.discovery.simple.SimpleDiscoveryClient;
+import org.springframework.cloud.client.discovery.simple.SimpleDiscoveryProperties;
+import org.springframework.cloud.gateway.config.GatewayProperties;
+import org.springframework.cloud.gateway.config.HttpClientProperties;
+import org.springframework.cloud.gateway.filter.headers.HttpHeadersFilter;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.route.RouteDefinition;
+import org.springframework.core.ResolvableType;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import reactor.netty.http.client.HttpClient;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.cloud.gateway.support.RouteMetadataUtils.CONNECT_TIMEOUT_ATTR;
+
+/**
+ * Choix du HttpClient par route : pool du service ciblé, ou client partagé du Gateway.
+ */
+class UpstreamRoutingFilterTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final HttpClient sharedClient = HttpClient.create();
+    private final MockServerWebExchange exchange =
+            MockServerWebExchange.from(MockServerHttpRequest.get("/api/order/orders"));
+
+    @Test
+    void routeUsesThePoolOfItsService() {
+        UpstreamConnectionPools pools = pools(true);
+        UpstreamRoutingFilter filter = filter(pools);
+
+        assertThat(filter.getHttpClient(route("lb://order-service"), exchange)).isSameAs(pools.client("order-service"));
+        assertThat(filter.getHttpClient(route("lb://menu-service"), exchange)).isSameAs(pools.client("menu-service"));
+        assertThat(pools.client("order-service")).isNotSameAs(pools.client("menu-service"));
+    }
+
+    @Test
+    void routeWithoutDedicatedPoolKeepsTheSharedClient() {
+        UpstreamRoutingFilter filter = filter(pools(true));
+
+        assertThat(filter.getHttpClient(route("lb://reporting-service"), exchange)).isSameAs(sharedClient);
+    }
+
+    @Test
+    void disabledPoolsKeepTheSharedClient() {
+        UpstreamRoutingFilter filter = filter(pools(false));
+
+        assertThat(filter.getHttpClient(route("lb://order-service"), exchange)).isSameAs(sharedClient);
+    }
+
+    @Test
+    void routeConnectTimeoutAppliesToThePoolClient() {
+        UpstreamConnectionPools pools = pools(true);
+        UpstreamRoutingFilter filter = filter(pools);
+
+        HttpClient numeric = filter.getHttpClient(route("lb://order-service", 250), exchange);
+        HttpClient text = filter.getHttpClient(route("lb://order-service", "400"), exchange);
+
+        assertThat(numeric.configuration().options().get(ChannelOption.CONNECT_TIMEOUT_MILLIS)).isEqualTo(250);
+        assertThat(text.configuration().options().get(ChannelOption.CONNECT_TIMEOUT_MILLIS)).isEqualTo(400);
+        assertThat(pools.client("order-service").configuration().options().get(ChannelOption.CONNECT_TIMEOUT_MILLIS))
+                .isNotEqualTo(250);
+    }
+
+    private UpstreamConnectionPools pools(boolean enabled) {
+        UpstreamPoolProperties properties = new UpstreamPoolProperties();
+        properties.setEnabled(enabled);
+        GatewayProperties gatewayProperties = new GatewayProperties();
+        gatewayProperties.setRoutes(List.of(definition("orders", "lb://order-service"),
+                definition("menu", "lb://menu-service")));
+        return new UpstreamConnectionPools(properties, gatewayProperties, meterRegistry);
+    }
+
+    private UpstreamRoutingFilter filter(UpstreamConnectionPools pools) {
+        ObjectProvider<List<HttpHeadersFilter>> headersFilters = new DefaultListableBeanFactory()
+                .getBeanProvider(ResolvableType.forClassWithGenerics(List.class, HttpHeadersFilter.class));
+        UpstreamPrewarmer prewarmer = new UpstreamPrewarmer(new SimpleDiscoveryClient(new SimpleDiscoveryProperties()),
+                pools, meterRegistry, false, 0, "/actuator/health", Duration.ofSeconds(1), 0);
+        InstanceLoadTracker loadTracker = new InstanceLoadTracker(meterRegistry, Duration.ofSeconds(10),
+                Duration.ofMinutes(10), Duration.ofMinutes(2));
+        return new UpstreamRoutingFilter(sharedClient, headersFilters, new HttpClientProperties(), pools,
+                prewarmer, loadTracker);
+    }
+
+    private static RouteDefinition definition(String id, String uri) {
+        RouteDefinition definition = new RouteDefinition();
+        definition.setId(id);
+        definition.setUri(URI.create(uri));
+        return definition;
+    }
+
+    private static Route route(String uri) {
+        return Route.async().id(uri).uri(uri).predicate(exchange -> true).build();
+    }
+
+    private static Route route(String uri, Object connectTimeout) {
+        return Route.async().id(uri).uri(uri).predicate(exchange -> true)
+                .metadata(CONNECT_TIMEOUT_ATTR, connectTimeout)
+                .build();
+    }
+}
@@ -0,0 +1,222 @@
+package com.bacos.mokengeli.biloko.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.netty.handler.codec.http.QueryStringDecoder;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import reactor.core.publisher.Mono;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.server.HttpServer;
+import reactor.netty.http.server.HttpServerRequest;
+import reactor.netty.http.server.HttpServerResponse;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Services aval simulés (Reactor Netty, loopback uniquement) : latence et taille de réponse configurables.
+ * <p>
+ * L'Authentication-Service simulé répond aussi à {@code /api/auth/internal/jti} (unitaire et batch) :
+ * chaque employé a une seule session, dont le JTI est dérivé de son numéro ({@link #jtiFor(String)}).
+ * Les requêtes reçues sur ces endpoints sont comptées ; l'endpoint batch peut répondre un statut d'erreur
+ * ({@link #batchStatus}) ou omettre des employés ({@link #omitFromBatch}).
+ */
+@Slf4j
+public class StubBackends implements AutoCloseable {
+
+    public static final List<String> SERVICES =
+            List.of("order-service", "inventory-service", "user-service", "authentication-service");
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final byte[] LOGIN = ("{\"user\":{\"employeeNumber\":\"EMP-00000\",\"roles\":[\"WAITER\"]},"
+            + "\"token\":\"" + UUID.randomUUID() + "\",\"expiresIn\":28800}").getBytes(StandardCharsets.UTF_8);
+
+    private final Duration latency;
+    private final double jitter;
+    private final byte[] payload;
+    private final Map<String, DisposableServer> servers = new LinkedHashMap<>();
+    private final AtomicLong sessionLookups = new AtomicLong();
+    private final AtomicLong batchLookups = new AtomicLong();
+    private volatile HttpResponseStatus batchStatus = HttpResponseStatus.OK;
+    private final Set<String> omittedFromBatch = ConcurrentHashMap.newKeySet();
+
+    /**
+     * @param latency     latence de base de chaque réponse
+     * @param jitter      variation aléatoire relative (0.2 = ±20 %)
+     * @param payloadSize taille du corps JSON renvoyé par les services métier
+     */
+    public StubBackends(Duration latency, double jitter, int payloadSize) {
+        this.latency = latency;
+        this.jitter = jitter;
+        this.payload = payload(payloadSize);
+    }
+
+    public StubBackends start() {
+        for (String service : SERVICES) {
+            HttpServer server = HttpServer.create()
+                    .host("127.0.0.1")
+                    .port(0)
+                    .handle("authentication-service".equals(service) ? this::authentication : this::business);
+            servers.put(service, server.bindNow());
+        }
+        servers.forEach((service, server) -> log.info("🧪 Stub {} listening on 127.0.0.1:{}", service, server.port()));
+        return this;
+    }
+
+    public Map<String, Integer> ports() {
+        Map<String, Integer> ports = new LinkedHashMap<>();
+        servers.forEach((service, server) -> ports.put(service, server.port()));
+        return ports;
+    }
+
+    /**
+     * Statut renvoyé par l'endpoint batch ; hors 2xx, sans corps (route absente, erreur serveur...).
+     */
+    public StubBackends batchStatus(HttpResponseStatus status) {
+        this.batchStatus = status;
+        return this;
+    }
+
+    /**
+     * Employés absents des réponses de l'endpoint batch (l'endpoint unitaire les connaît toujours).
+     */
+    public StubBackends omitFromBatch(String... employeeNumbers) {
+        omittedFromBatch.addAll(Arrays.asList(employeeNumbers));
+        return this;
+    }
+
+    /**
+     * Requêtes reçues sur l'endpoint unitaire {@code /api/auth/internal/jti}.
+     */
+    public long sessionLookups() {
+        return sessionLookups.get();
+    }
+
+    /**
+     * Requêtes reçues sur l'endpoint batch {@code /api/auth/internal/jti/batch}.
+     */
+    public long batchLookups() {
+        return batchLookups.get();
+    }
+
+    public static String jtiFor(String employeeNumber) {
+        return UUID.nameUUIDFromBytes(employeeNumber.getBytes(StandardCharsets.UTF_8)).toString();
+    }
+
+    @Override
+    public void close() {
+        servers.values().forEach(DisposableServer::disposeNow);
+    }
+
+    private Mono<Void> business(HttpServerRequest request, HttpServerResponse response) {
+        return request.receive().then(delay())
+                .then(json(response, payload));
+    }
+
+    private Mono<Void> authentication(HttpServerRequest request, HttpServerResponse response) {
+        String path = request.fullPath();
+        if (path.equals("/api/auth/internal/jti")) {
+            sessionLookups.incrementAndGet();
+            Map<String, List<String>> query = new QueryStringDecoder(request.uri()).parameters();
+            byte[] body = write(sessionList(first(query, "employeeNumber"), first(query, "appType")));
+            return request.receive().then(delay()).then(json(response, body));
+        }
+        if (path.equals("/api/auth/login")) {
+            return request.receive().then(delay()).then(json(response, LOGIN));
+        }
+        if (path.equals("/api/auth/internal/jti/batch")) {
+            batchLookups.incrementAndGet();
+            HttpResponseStatus status = batchStatus;
+            if (status.code() / 100 != 2) {
+                return request.receive().then(delay()).then(response.status(status).send());
+            }
+            return request.receive().aggregate().asByteArray()
+                    .map(this::batch)
+                    .delayUntil(body -> delay())
+                    .flatMap(body -> json(response, body));
+        }
+        return business(request, response);
+    }
+
+    private byte[] batch(byte[] request) {
+        try {
+            List<Map<String, Object>> lists = new ArrayList<>();
+            for (JsonNode item : MAPPER.readTree(request)) {
+                String employeeNumber = item.path("employeeNumber").asText();
+                if (!omittedFromBatch.contains(employeeNumber)) {
+                    lists.add(sessionList(employeeNumber, item.path("appType").asText()));
+                }
+            }
+            return write(lists);
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Invalid batch request", e);
+        }
+    }
+
+    private static Map<String, Object> sessionList(String employeeNumber, String appType) {
+        OffsetDateTime now = OffsetDateTime.now();
+        return Map.of(
+                "employeeNumber", employeeNumber,
+                "appType", appType,
+                "maxSessions", 5,
+                "sessions", List.of(Map.of(
+                        "jti", jtiFor(employeeNumber),
+                        "issuedAt", now.minusMinutes(5).toString(),
+                        "expiresAt", now.plusHours(8).toString())));
+    }
+
+    private Mono<Long> delay() {
+        long base = latency.toNanos();
+        if (base <= 0) {
+            return Mono.empty();
+        }
+        double factor = jitter <= 0 ? 1.0 : 1.0 + ThreadLocalRandom.current().nextDouble(-jitter, jitter);
+        return Mono.delay(Duration.ofNanos((long) (base * factor)));
+    }
+
+    private static Mono<Void> json(HttpServerResponse response, byte[] body) {
+        ByteBuf buffer = Unpooled.wrappedBuffer(body);
+        return response.header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                .header(HttpHeaders.CONTENT_LENGTH, String.valueOf(body.length))
+                .send(Mono.just(buffer))
+                .then();
+    }
+
+    private static byte[] write(Object value) {
+        try {
+            return MAPPER.writeValueAsBytes(value);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static byte[] payload(int size) {
+        // {"data":"xxxx…"} à la taille demandée
+        int filler = Math.max(0, size - 11);
+        char[] chars = new char[filler];
+        Arrays.fill(chars, 'x');
+        return ("{\"data\":\"" + new String(chars) + "\"}").getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String first(Map<String, List<String>> query, String name) {
+        List<String> values = query.get(name);
+        return values == null || values.isEmpty() ? "" : values.get(0);
+    }
+}
@@ -0,0 +1,136 @@
+package com.bacos.mokengeli.biloko.service;
+
+import com.bacos.mokengeli.biloko.model.AuthenticationContext;
+import com.bacos.mokengeli.biloko.model.AuthenticationContext.TokenSource;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpCookie;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Date;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Résolution du jeton (query → Bearer → cookie) et des claims du cookie d'accès.
+ */
+class AuthenticationContextResolverTest {
+
+    private static final String SECRET = "resolver-test-secret-resolver-test-secret-01";
+    private static final String COOKIE_NAME = "accessToken";
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final AuthenticationContextResolver resolver = resolver();
+
+    @Test
+    void queryTokenWinsOverBearerAndCookie() {
+        String cookieToken = token(UUID.randomUUID().toString(), SECRET);
+        MockServerHttpRequest request = MockServerHttpRequest.get("/socket.io/?token=query-token")
+                .header(HttpHeaders.AUTHORIZATION, "Bearer bearer-token")
+                .cookie(new HttpCookie(COOKIE_NAME, cookieToken))
+                .build();
+
+        AuthenticationContext context = resolver.resolve(request);
+
+        assertThat(context.source()).isEqualTo(TokenSource.QUERY);
+        assertThat(context.token()).isEqualTo("query-token");
+        assertThat(context.bearerToken()).isEqualTo("bearer-token");
+        assertThat(context.cookieToken()).isEqualTo(cookieToken);
+    }
+
+    @Test
+    void bearerTokenWinsOverCookie() {
+        MockServerHttpRequest request = MockServerHttpRequest.get("/api/order/orders")
+                .header(HttpHeaders.AUTHORIZATION, "Bearer bearer-token")
+                .cookie(new HttpCookie(COOKIE_NAME, token(UUID.randomUUID().toString(), SECRET)))
+                .build();
+
+        AuthenticationContext context = resolver.resolve(request);
+
+        assertThat(context.source()).isEqualTo(TokenSource.BEARER);
+        assertThat(context.token()).isEqualTo("bearer-token");
+    }
+
+    @Test
+    void claimsComeFromTheCookieTokenOnly() {
+        String jti = UUID.randomUUID().toString();
+        String cookieToken = token(jti, SECRET);
+        MockServerHttpRequest cookieRequest = MockServerHttpRequest.get("/api/order/orders")
+                .cookie(new HttpCookie(COOKIE_NAME, cookieToken))
+                .build();
+        MockServerHttpRequest bearerRequest = MockServerHttpRequest.get("/api/order/orders")
+                .header(HttpHeaders.AUTHORIZATION, "Bearer " + token(UUID.randomUUID().toString(), SECRET))
+                .build();
+
+        AuthenticationContext fromCookie = resolver.resolve(cookieRequest);
+        AuthenticationContext fromBearer = resolver.resolve(bearerRequest);
+
+        assertThat(fromCookie.source()).isEqualTo(TokenSource.COOKIE);
+        assertThat(fromCookie.token()).isEqualTo(cookieToken);
+        assertThat(fromCookie.claims().jti()).isEqualTo(jti);
+        assertThat(fromCookie.claims().employeeNumber()).isEqualTo("EMP-0001");
+        assertThat(fromCookie.claims().appType()).isEqualTo("WAITER");
+        assertThat(fromBearer.claims()).isNull();
+        assertThat(fromBearer.hasInvalidCookieToken()).isFalse();
+    }
+
+    @Test
+    void badlySignedCookieIsReportedInvalid() {
+        String forged = token(UUID.randomUUID().toString(), "another-secret-another-secret-another-01");
+        MockServerHttpRequest request = MockServerHttpRequest.get("/api/order/orders")
+                .cookie(new HttpCookie(COOKIE_NAME, forged))
+                .build();
+
+        AuthenticationContext context = resolver.resolve(request);
+
+        assertThat(context.source()).isEqualTo(TokenSource.COOKIE);
+        assertThat(context.claims()).isNull();
+        assertThat(context.hasInvalidCookieToken()).isTrue();
+    }
+
+    @Test
+    void requestWithoutTokenHasNoSource() {
+        AuthenticationContext context = resolver.resolve(MockServerHttpRequest.get("/public/menu").build());
+
+        assertThat(context.source()).isEqualTo(TokenSource.NONE);
+        assertThat(context.token()).isNull();
+        assertThat(context.hasInvalidCookieToken()).isFalse();
+    }
+
+    @Test
+    void contextIsResolvedOncePerExchange() {
+        MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/api/order/orders")
+                .header(HttpHeaders.AUTHORIZATION, "Bearer bearer-token"));
+
+        AuthenticationContext first = resolver.current(exchange);
+
+        assertThat(resolver.current(exchange)).isSameAs(first);
+        assertThat((AuthenticationContext) exchange.getAttribute(AuthenticationContext.ATTRIBUTE)).isSameAs(first);
+    }
+
+    private AuthenticationContextResolver resolver() {
+        AuthenticationContextResolver contextResolver = new AuthenticationContextResolver(
+                new JwtTokenVerifier(SECRET, 1000, 3600, meterRegistry), new ClientProfileResolver(16, meterRegistry));
+        ReflectionTestUtils.setField(contextResolver, "accessTokenCookieName", COOKIE_NAME);
+        return contextResolver;
+    }
+
+    private static String token(String jti, String secret) {
+        return Jwts.builder()
+                .id(jti)
+                .claim("employeeNumber", "EMP-0001")
+                .claim("appType", "WAITER")
+                .expiration(Date.from(Instant.now().plus(Duration.ofHours(1))))
+                .signWith(Keys.hmacShaKeyFor(secret.getBytes(StandardCharsets.UTF_8)))
+                .compact();
+    }
+}
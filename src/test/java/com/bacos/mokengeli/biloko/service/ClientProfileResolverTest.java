@@ -0,0 +1,50 @@
+package com.bacos.mokengeli.biloko.service;
+
+import com.bacos.mokengeli.biloko.model.ClientProfile;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Classification des clients à partir du User-Agent, de l'Origin et de X-Client-Type.
+ */
+class ClientProfileResolverTest {
+
+    private final ClientProfileResolver resolver = new ClientProfileResolver(16, new SimpleMeterRegistry());
+
+    @Test
+    void dartAndFlutterUserAgentsAreMobile() {
+        ClientProfile dart = resolver.resolve(null, "Dart/3.3 (dart:io)", null);
+        ClientProfile flutter = resolver.resolve(null, "MyApp Flutter/3.19", null);
+
+        assertThat(dart).isEqualTo(ClientProfile.FLUTTER);
+        assertThat(flutter).isEqualTo(ClientProfile.FLUTTER);
+        assertThat(dart.isMobile()).isTrue();
+    }
+
+    @Test
+    void expoOriginIsMobileWhateverTheUserAgent() {
+        String browser = "Mozilla/5.0 (Linux; Android 14) AppleWebKit/537.36 Chrome/124.0 Mobile Safari/537.36";
+
+        assertThat(resolver.resolve(null, browser, "exp://192.168.1.10:8081")).isEqualTo(ClientProfile.EXPO);
+        assertThat(resolver.resolve(null, browser, "exps://u.expo.dev")).isEqualTo(ClientProfile.EXPO);
+        assertThat(resolver.resolve(null, null, "exp://192.168.1.10:8081").isMobile()).isTrue();
+    }
+
+    @Test
+    void browserStaysWebUnlessTheClientDeclaresItselfMobile() {
+        String browser = "Mozilla/5.0 (Windows NT 10.0; Win64; x64) Chrome/124.0 Safari/537.36";
+
+        assertThat(resolver.resolve(null, browser, "https://app.mokengeli.com")).isEqualTo(ClientProfile.WEB);
+        assertThat(resolver.resolve("mobile", browser, null)).isEqualTo(ClientProfile.NATIVE_APP);
+    }
+
+    @Test
+    void userAgentProfileWinsOverTheOrigin() {
+        String userAgent = "okhttp/4.12.0";
+
+        assertThat(resolver.resolve(null, userAgent, null)).isEqualTo(ClientProfile.REACT_NATIVE);
+        assertThat(resolver.resolve(null, userAgent, "exp://10.0.0.2:8081")).isEqualTo(ClientProfile.REACT_NATIVE);
+    }
+}
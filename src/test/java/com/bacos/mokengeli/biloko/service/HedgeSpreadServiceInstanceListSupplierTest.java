@@ -0,0 +1,77 @@
+package com.bacos.mokengeli.biloko.service;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.client.DefaultServiceInstance;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.loadbalancer.DefaultRequest;
+import org.springframework.cloud.client.loadbalancer.DefaultResponse;
+import org.springframework.cloud.client.loadbalancer.Request;
+import org.springframework.cloud.client.loadbalancer.RequestData;
+import org.springframework.cloud.client.loadbalancer.RequestDataContext;
+import org.springframework.cloud.loadbalancer.core.ServiceInstanceListSupplier;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import reactor.core.publisher.Flux;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Requête de hedging dirigée vers une autre instance que celle de la requête principale.
+ */
+class HedgeSpreadServiceInstanceListSupplierTest {
+
+    private static final ServiceInstance FIRST =
+            new DefaultServiceInstance("authentication-service-1", "authentication-service", "10.0.0.31", 8080, false);
+    private static final ServiceInstance SECOND =
+            new DefaultServiceInstance("authentication-service-2", "authentication-service", "10.0.0.32", 8080, false);
+
+    private final HedgedRequestTracker tracker = new HedgedRequestTracker();
+    private final HedgeSpreadServiceInstanceListSupplier supplier =
+            new HedgeSpreadServiceInstanceListSupplier(new StaticSupplier(List.of(FIRST, SECOND)));
+
+    @Test
+    void hedgeAvoidsTheInstanceOfThePrimary() {
+        HedgedRequestTracker.Group group = new HedgedRequestTracker.Group();
+        tracker.onStartRequest(request(group), new DefaultResponse(FIRST));
+
+        assertThat(supplier.get(request(group)).blockFirst()).containsExactly(SECOND);
+    }
+
+    @Test
+    void everyInstanceStaysAvailableOnceAllWereChosen() {
+        HedgedRequestTracker.Group group = new HedgedRequestTracker.Group();
+        tracker.onStartRequest(request(group), new DefaultResponse(FIRST));
+        tracker.onStartRequest(request(group), new DefaultResponse(SECOND));
+
+        assertThat(supplier.get(request(group)).blockFirst()).containsExactly(FIRST, SECOND);
+    }
+
+    @Test
+    void requestsOutsideAHedgedCallAreNotFiltered() {
+        Request<RequestDataContext> plain = new DefaultRequest<>(new RequestDataContext(
+                new RequestData(MockServerHttpRequest.get("/api/auth/internal/jti").build(), Map.of())));
+
+        assertThat(supplier.get(plain).blockFirst()).containsExactly(FIRST, SECOND);
+    }
+
+    private static Request<RequestDataContext> request(HedgedRequestTracker.Group group) {
+        return new DefaultRequest<>(new RequestDataContext(new RequestData(
+                MockServerHttpRequest.get("/api/auth/internal/jti").build(),
+                Map.of(HedgedRequestTracker.GROUP_ATTR, group))));
+    }
+
+    private record StaticSupplier(List<ServiceInstance> instances) implements ServiceInstanceListSupplier {
+
+        @Override
+        public String getServiceId() {
+            return "authentication-service";
+        }
+
+        @Override
+        public Flux<List<ServiceInstance>> get() {
+            return Flux.just(instances);
+        }
+    }
+}
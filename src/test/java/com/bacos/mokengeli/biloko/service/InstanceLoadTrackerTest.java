@@ -0,0 +1,110 @@
+package com.bacos.mokengeli.biloko.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.client.DefaultServiceInstance;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.loadbalancer.CompletionContext;
+import org.springframework.cloud.client.loadbalancer.DefaultRequest;
+import org.springframework.cloud.client.loadbalancer.DefaultResponse;
+import org.springframework.cloud.client.loadbalancer.Request;
+import org.springframework.cloud.client.loadbalancer.RequestData;
+import org.springframework.cloud.client.loadbalancer.RequestDataContext;
+import org.springframework.cloud.client.loadbalancer.Response;
+import org.springframework.cloud.client.loadbalancer.ResponseData;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Décompte des requêtes en cours par instance.
+ */
+class InstanceLoadTrackerTest {
+
+    private static final ServiceInstance INSTANCE =
+            new DefaultServiceInstance("order-service-1", "order-service", "10.0.0.12", 8080, false);
+
+    private final InstanceLoadTracker tracker = new InstanceLoadTracker(new SimpleMeterRegistry(),
+            Duration.ofSeconds(10), Duration.ofMinutes(10), Duration.ofMinutes(2));
+
+    @Test
+    void completedRequestIsCountedOnce() {
+        Map<String, Object> attributes = new HashMap<>();
+        Request<RequestDataContext> request = request(attributes);
+        Response<ServiceInstance> response = new DefaultResponse(INSTANCE);
+
+        tracker.onStartRequest(request, response);
+        assertThat(tracker.load(INSTANCE).outstanding()).isEqualTo(1);
+
+        tracker.onComplete(new CompletionContext<ResponseData, ServiceInstance, RequestDataContext>(
+                CompletionContext.Status.SUCCESS, request, response));
+        tracker.onComplete(new CompletionContext<ResponseData, ServiceInstance, RequestDataContext>(
+                CompletionContext.Status.SUCCESS, request, response));
+
+        assertThat(tracker.load(INSTANCE).outstanding()).isZero();
+        assertThat(tracker.load(INSTANCE).latencyEwmaNanos()).isPositive();
+    }
+
+    @Test
+    void cancelledRequestIsNoLongerOutstanding() {
+        Map<String, Object> attributes = new HashMap<>();
+        Request<RequestDataContext> request = request(attributes);
+        Response<ServiceInstance> response = new DefaultResponse(INSTANCE);
+
+        tracker.onStartRequest(request, response);
+        tracker.cancel(attributes.get(InstanceLoadTracker.IN_FLIGHT_ATTR));
+        // Un signal de fin tardif ne décompte pas une seconde fois
+        tracker.onComplete(new CompletionContext<ResponseData, ServiceInstance, RequestDataContext>(
+                CompletionContext.Status.FAILED, request, response));
+
+        assertThat(tracker.load(INSTANCE).outstanding()).isZero();
+    }
+
+    @Test
+    void identicalConcurrentRequestsAreTrackedSeparately() {
+        Request<RequestDataContext> first = request(new HashMap<>());
+        Request<RequestDataContext> second = request(new HashMap<>());
+        Response<ServiceInstance> response = new DefaultResponse(INSTANCE);
+
+        tracker.onStartRequest(first, response);
+        tracker.onStartRequest(second, response);
+        tracker.onComplete(new CompletionContext<ResponseData, ServiceInstance, RequestDataContext>(
+                CompletionContext.Status.SUCCESS, first, response));
+
+        assertThat(tracker.load(INSTANCE).outstanding()).isEqualTo(1);
+    }
+
+    @Test
+    void readOnlyAttributesAreLeftUntouched() {
+        Map<String, Object> attributes = Collections.unmodifiableMap(new HashMap<>());
+        Request<RequestDataContext> request = request(attributes);
+        Response<ServiceInstance> response = new DefaultResponse(INSTANCE);
+
+        tracker.onStartRequest(request, response);
+
+        assertThat(attributes).isEmpty();
+        assertThat(tracker.load(INSTANCE).outstanding()).isEqualTo(1);
+        tracker.onComplete(new CompletionContext<ResponseData, ServiceInstance, RequestDataContext>(
+                CompletionContext.Status.SUCCESS, request, response));
+        assertThat(tracker.load(INSTANCE).outstanding()).isZero();
+    }
+
+    @Test
+    void requestWithoutClientRequestIsStillTracked() {
+        Request<RequestDataContext> request = new DefaultRequest<>(new RequestDataContext());
+
+        tracker.onStartRequest(request, new DefaultResponse(INSTANCE));
+
+        assertThat(tracker.load(INSTANCE).outstanding()).isEqualTo(1);
+    }
+
+    private static Request<RequestDataContext> request(Map<String, Object> attributes) {
+        return new DefaultRequest<>(new RequestDataContext(
+                new RequestData(MockServerHttpRequest.get("/api/order/orders/42").build(), attributes)));
+    }
+}
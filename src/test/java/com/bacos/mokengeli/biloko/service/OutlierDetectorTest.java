@@ -0,0 +1,91 @@
+package com.bacos.mokengeli.biloko.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.client.DefaultServiceInstance;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.loadbalancer.CompletionContext;
+import org.springframework.cloud.client.loadbalancer.DefaultRequest;
+import org.springframework.cloud.client.loadbalancer.DefaultResponse;
+import org.springframework.cloud.client.loadbalancer.RequestDataContext;
+import org.springframework.cloud.client.loadbalancer.ResponseData;
+
+import java.net.ConnectException;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Éjection passive et plafond calculé sur les instances découvertes, respecté même en concurrence.
+ */
+class OutlierDetectorTest {
+
+    private static final ServiceInstance FAILING =
+            new DefaultServiceInstance("order-service-1", "ORDER-SERVICE", "10.0.0.12", 8080, false);
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final OutlierDetector detector = new OutlierDetector(meterRegistry, true, 5, 0.5, 20,
+            Duration.ofSeconds(10), Duration.ofSeconds(30), Duration.ofMinutes(5), 50, Duration.ofSeconds(30),
+            Duration.ofMinutes(10));
+
+    @Test
+    void failingInstanceIsEjectedWhenOthersAreDiscovered() {
+        detector.discovered("order-service", 4);
+
+        fail(FAILING, 5);
+
+        assertThat(detector.isAvailable(FAILING)).isFalse();
+        assertThat(detector.status("order-service")).singleElement()
+                .satisfies(state -> assertThat(state).containsEntry("state", "ejected"));
+    }
+
+    @Test
+    void lastDiscoveredInstanceIsKeptInRotation() {
+        detector.discovered("order-service", 1);
+
+        fail(FAILING, 5);
+
+        assertThat(detector.isAvailable(FAILING)).isTrue();
+    }
+
+    @Test
+    void concurrentEjectionsStayUnderTheCap() throws InterruptedException {
+        detector.discovered("order-service", 4);
+        List<ServiceInstance> failing = IntStream.range(0, 4)
+                .mapToObj(i -> (ServiceInstance) new DefaultServiceInstance("order-service-" + i, "ORDER-SERVICE",
+                        "10.0.0." + (20 + i), 8080, false))
+                .toList();
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> threads = failing.stream()
+                .map(instance -> Thread.ofPlatform().start(() -> {
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return;
+                    }
+                    fail(instance, 5);
+                }))
+                .toList();
+
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertThat(failing.stream().filter(instance -> !detector.isAvailable(instance))).hasSize(2);
+        assertThat(meterRegistry.get("gateway.lb.outlier.ejected").tag("service", "order-service").gauge().value())
+                .isEqualTo(2.0);
+    }
+
+    private void fail(ServiceInstance instance, int times) {
+        for (int i = 0; i < times; i++) {
+            detector.onComplete(new CompletionContext<ResponseData, ServiceInstance, RequestDataContext>(
+                    CompletionContext.Status.FAILED, new ConnectException("Connection refused"),
+                    new DefaultRequest<>(new RequestDataContext()), new DefaultResponse(instance)));
+        }
+    }
+}
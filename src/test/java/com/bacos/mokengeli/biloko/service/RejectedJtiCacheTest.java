@@ -0,0 +1,54 @@
+package com.bacos.mokengeli.biloko.service;
+
+import com.bacos.mokengeli.biloko.model.SessionKey;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Un JTI refusé redevient utilisable dès que le cache de sessions l'enregistre.
+ */
+class RejectedJtiCacheTest {
+
+    private static final SessionKey KEY = SessionCache.key("EMP-0001", "WAITER");
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final SessionCache sessionCache = SessionFixtures.cache(meterRegistry);
+    private final RejectedJtiCache rejectedJtiCache = new RejectedJtiCache(30, 1000, sessionCache, meterRegistry);
+
+    @Test
+    void newSessionIsNoLongerRejected() {
+        String jti = UUID.randomUUID().toString();
+        rejectedJtiCache.reject(jti, HttpStatus.UNAUTHORIZED);
+
+        sessionCache.put(KEY, List.of(jti), 5, null, System.nanoTime());
+
+        assertThat(rejectedJtiCache.rejection(jti)).isNull();
+    }
+
+    @Test
+    void feedPatchClearsTheRejection() {
+        String jti = UUID.randomUUID().toString();
+        rejectedJtiCache.reject(jti, HttpStatus.TOO_MANY_REQUESTS);
+
+        sessionCache.patch(KEY, JtiSet.of(List.of(jti)));
+
+        assertThat(rejectedJtiCache.rejection(jti)).isNull();
+    }
+
+    @Test
+    void supersededFillKeepsTheRejection() {
+        String jti = UUID.randomUUID().toString();
+        long lookupStart = System.nanoTime();
+        rejectedJtiCache.reject(jti, HttpStatus.UNAUTHORIZED);
+        sessionCache.invalidate(KEY);
+
+        assertThat(sessionCache.put(KEY, List.of(jti), 5, null, lookupStart)).isNull();
+        assertThat(rejectedJtiCache.rejection(jti)).isEqualTo(HttpStatus.UNAUTHORIZED);
+    }
+}
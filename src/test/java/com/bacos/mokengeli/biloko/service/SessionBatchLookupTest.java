@@ -0,0 +1,87 @@
+package com.bacos.mokengeli.biloko.service;
+
+import com.bacos.mokengeli.biloko.loadtest.StubBackends;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Recherches groupées contre l'Authentication-Service simulé : un lot refusé ou incomplet
+ * ne se transforme jamais en refus des jetons.
+ */
+class SessionBatchLookupTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final StubBackends backends = new StubBackends(Duration.ZERO, 0, 64).start();
+    private SessionBatchLookup batchLookup;
+
+    @AfterEach
+    void tearDown() {
+        if (batchLookup != null) {
+            batchLookup.stop();
+        }
+        backends.close();
+    }
+
+    @Test
+    void rejectedBatchIsRetriedKeyByKey() {
+        backends.batchStatus(HttpResponseStatus.NOT_FOUND);
+        SessionLookupService service = service();
+
+        Mono<SessionCache.Entry> first = service.fetch("token", "EMP-0001", "WAITER").cache();
+        Mono<SessionCache.Entry> second = service.fetch("token", "EMP-0002", "WAITER").cache();
+        first.subscribe(entry -> { }, err -> { });
+        second.subscribe(entry -> { }, err -> { });
+
+        assertThat(first.block(Duration.ofSeconds(5)).jtis().contains(StubBackends.jtiFor("EMP-0001"))).isTrue();
+        assertThat(second.block(Duration.ofSeconds(5)).jtis().contains(StubBackends.jtiFor("EMP-0002"))).isTrue();
+        assertThat(backends.batchLookups()).isEqualTo(1);
+        assertThat(backends.sessionLookups()).isEqualTo(2);
+    }
+
+    @Test
+    void keyMissingFromTheBatchIsAnOutageNotARefusal() {
+        backends.omitFromBatch("EMP-0002");
+        SessionLookupService service = service();
+
+        Mono<SessionCache.Entry> first = service.fetch("token", "EMP-0001", "WAITER").cache();
+        Mono<SessionCache.Entry> second = service.fetch("token", "EMP-0002", "WAITER").cache();
+        first.subscribe(entry -> { }, err -> { });
+        second.subscribe(entry -> { }, err -> { });
+
+        assertThat(first.block(Duration.ofSeconds(5)).jtis().contains(StubBackends.jtiFor("EMP-0001"))).isTrue();
+        assertThatThrownBy(() -> second.block(Duration.ofSeconds(5)))
+                .isInstanceOf(SessionLookupUnavailableException.class)
+                .satisfies(ex -> assertThat(SessionLookupService.isExplicitRefusal(ex)).isFalse());
+        assertThat(backends.batchLookups()).isEqualTo(1);
+        assertThat(backends.sessionLookups()).isZero();
+    }
+
+    /**
+     * Lots de deux clés : les deux recherches d'un test partent ensemble.
+     */
+    private SessionLookupService service() {
+        AuthInternalClient authInternalClient = new AuthInternalClient(WebClient.create(),
+                "127.0.0.1:" + backends.ports().get("authentication-service"), "accessToken");
+        SessionFixtures.LookupBuilder lookup = SessionFixtures.lookup(authInternalClient,
+                        SessionFixtures.cache(meterRegistry))
+                .settings(settings -> {
+                    settings.getLookup().setDeadline(Duration.ofSeconds(5));
+                    settings.getLookup().getBatch().setEnabled(true);
+                    settings.getLookup().getBatch().setMaxSize(2);
+                    settings.getLookup().getBatch().setWindow(Duration.ofSeconds(1));
+                })
+                .meterRegistry(meterRegistry);
+        SessionLookupService service = lookup.build();
+        batchLookup = lookup.batchLookup();
+        return service;
+    }
+}
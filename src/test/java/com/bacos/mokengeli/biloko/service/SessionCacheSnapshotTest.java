@@ -0,0 +1,116 @@
+package com.bacos.mokengeli.biloko.service;
+
+import com.bacos.mokengeli.biloko.model.SessionKey;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.DisabledOnOs;
+import org.junit.jupiter.api.condition.OS;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Écriture puis restauration du snapshot du cache de sessions.
+ */
+class SessionCacheSnapshotTest {
+
+    private static final SessionKey KEY = SessionCache.key("EMP-0001", "WAITER");
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void restoredEntriesFallBackToTheShortTtl() throws IOException {
+        SessionCache source = cache();
+        source.setFeedConnected(true);
+        String jti = UUID.randomUUID().toString();
+        SessionCache.Entry written = source.put(KEY, List.of(jti), 5, null, System.nanoTime());
+        assertThat(written.feedBacked()).isTrue();
+        Path file = directory.resolve("private/session-cache.bin");
+        new SessionCacheSnapshot(source, file, Duration.ofMinutes(1), Duration.ofMinutes(10)).write();
+
+        SessionCache target = cache();
+        int restored = new SessionCacheSnapshot(target, file, Duration.ofMinutes(1), Duration.ofMinutes(10)).load();
+
+        assertThat(restored).isEqualTo(1);
+        SessionCache.Entry entry = target.getEntry(KEY);
+        assertThat(entry.jtis().contains(jti)).isTrue();
+        assertThat(entry.feedBacked()).isFalse();
+        assertThat(entry.freshUntilMillis()).isLessThanOrEqualTo(written.loadedAtMillis() + 120_000);
+    }
+
+    @Test
+    void uuidAndOpaqueJtisSurviveTheRoundTrip() throws IOException {
+        SessionCache source = cache();
+        String uuid = UUID.randomUUID().toString();
+        String nil = new UUID(0L, 0L).toString();
+        String opaque = "legacy-jti-42";
+        source.put(KEY, List.of(uuid, nil, opaque), 5, null, System.nanoTime());
+        Path file = directory.resolve("private/session-cache.bin");
+        new SessionCacheSnapshot(source, file, Duration.ofMinutes(1), Duration.ofMinutes(10)).write();
+
+        SessionCache target = cache();
+        new SessionCacheSnapshot(target, file, Duration.ofMinutes(1), Duration.ofMinutes(10)).load();
+
+        JtiSet jtis = target.getEntry(KEY).jtis();
+        assertThat(jtis.size()).isEqualTo(3);
+        assertThat(jtis.toList()).containsExactlyInAnyOrder(uuid, nil, opaque);
+        assertThat(jtis.contains(UUID.randomUUID().toString())).isFalse();
+    }
+
+    @Test
+    void keysRevokedOrFlushedDuringTheLoadAreNotRestored() throws IOException {
+        SessionCache source = cache();
+        SessionKey other = SessionCache.key("EMP-0002", "WAITER");
+        source.put(KEY, List.of(UUID.randomUUID().toString()), 5, null, System.nanoTime());
+        source.put(other, List.of(UUID.randomUUID().toString()), 5, null, System.nanoTime());
+        Path file = directory.resolve("private/session-cache.bin");
+        new SessionCacheSnapshot(source, file, Duration.ofMinutes(1), Duration.ofMinutes(10)).write();
+
+        SessionCache revoked = cache();
+        long loadStart = System.nanoTime();
+        revoked.invalidate(KEY);
+        assertThat(new SessionCacheSnapshot(revoked, file, Duration.ofMinutes(1), Duration.ofMinutes(10))
+                .load(loadStart)).isEqualTo(1);
+        assertThat(revoked.getEntry(KEY)).isNull();
+        assertThat(revoked.getEntry(other)).isNotNull();
+
+        SessionCache flushed = cache();
+        loadStart = System.nanoTime();
+        flushed.invalidateAll();
+        assertThat(new SessionCacheSnapshot(flushed, file, Duration.ofMinutes(1), Duration.ofMinutes(10))
+                .load(loadStart)).isZero();
+    }
+
+    @Test
+    @DisabledOnOs(OS.WINDOWS)
+    void snapshotIsPrivateAndSharedFilesAreIgnored() throws IOException {
+        SessionCache source = cache();
+        source.put(KEY, List.of(UUID.randomUUID().toString()), 5, null, System.nanoTime());
+        Path file = directory.resolve("private/session-cache.bin");
+        new SessionCacheSnapshot(source, file, Duration.ofMinutes(1), Duration.ofMinutes(10)).write();
+
+        assertThat(PosixFilePermissions.toString(Files.getPosixFilePermissions(file))).isEqualTo("rw-------");
+        assertThat(PosixFilePermissions.toString(Files.getPosixFilePermissions(file.getParent())))
+                .isEqualTo("rwx------");
+
+        Files.setPosixFilePermissions(file, PosixFilePermissions.fromString("rw-rw-rw-"));
+        SessionCache target = cache();
+        assertThat(new SessionCacheSnapshot(target, file, Duration.ofMinutes(1), Duration.ofMinutes(10)).load())
+                .isZero();
+        assertThat(target.getEntry(KEY)).isNull();
+    }
+
+    private static SessionCache cache() {
+        return SessionFixtures.cache(settings -> settings.getCache().getFallback().setMaxStalenessSeconds(0),
+                new SimpleMeterRegistry());
+    }
+}
@@ -0,0 +1,80 @@
+package com.bacos.mokengeli.biloko.service;
+
+import com.bacos.mokengeli.biloko.model.SessionDto;
+import com.bacos.mokengeli.biloko.model.SessionKey;
+import com.bacos.mokengeli.biloko.model.SessionListResponse;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Durée de vie des entrées calculée à partir des expirations de sessions, et remplissages refusés après révocation.
+ */
+class SessionCacheTest {
+
+    private static final SessionKey KEY = SessionCache.key("EMP-0001", "WAITER");
+
+    private final SessionCache cache = SessionFixtures.cache(
+            settings -> settings.getCache().getVariableTtl().setEnabled(true), new SimpleMeterRegistry());
+
+    @Test
+    void alreadyExpiredSessionDoesNotCollapseTheTtl() {
+        OffsetDateTime now = OffsetDateTime.now();
+        SessionListResponse response = response(
+                new SessionDto("expired", now.minusHours(9), now.minusMinutes(1)),
+                new SessionDto("active", now.minusMinutes(5), now.plusHours(8)));
+
+        SessionCache.Entry entry = cache.put(KEY, response, System.nanoTime());
+
+        assertThat(entry.isStale()).isFalse();
+        assertThat(entry.freshUntilMillis() - System.currentTimeMillis()).isGreaterThan(60_000);
+        assertThat(cache.getEntry(KEY)).isNotNull();
+    }
+
+    @Test
+    void alreadyExpiredSessionIsNotAccepted() {
+        OffsetDateTime now = OffsetDateTime.now();
+        SessionListResponse response = response(
+                new SessionDto("expired", now.minusHours(9), now.minusMinutes(1)),
+                new SessionDto("active", now.minusMinutes(5), now.plusHours(8)));
+
+        SessionCache.Entry entry = cache.put(KEY, response, System.nanoTime());
+
+        assertThat(entry.jtis().contains("expired")).isFalse();
+        assertThat(entry.jtis().contains("active")).isTrue();
+    }
+
+    @Test
+    void ttlIsBoundedByTheEarliestActiveSession() {
+        OffsetDateTime now = OffsetDateTime.now();
+        SessionListResponse response = response(
+                new SessionDto("short", now.minusMinutes(5), now.plusSeconds(30)),
+                new SessionDto("long", now.minusMinutes(5), now.plusHours(8)));
+
+        SessionCache.Entry entry = cache.put(KEY, response, System.nanoTime());
+
+        assertThat(entry.expiresAtMillis()).isLessThanOrEqualTo(now.plusSeconds(30).toInstant().toEpochMilli());
+    }
+
+    @Test
+    void fillOlderThanTheRevocationRetentionIsRefused() {
+        long lookupStart = System.nanoTime() - Duration.ofMinutes(3).toNanos();
+
+        assertThat(cache.put(KEY, List.of("a-jti"), 5, null, lookupStart)).isNull();
+        assertThat(cache.put(KEY, List.of("a-jti"), 5, null, System.nanoTime())).isNotNull();
+    }
+
+    private static SessionListResponse response(SessionDto... sessions) {
+        SessionListResponse response = new SessionListResponse();
+        response.setEmployeeNumber("EMP-0001");
+        response.setAppType("WAITER");
+        response.setMaxSessions(5);
+        response.setSessions(List.of(sessions));
+        return response;
+    }
+}
@@ -0,0 +1,80 @@
+package com.bacos.mokengeli.biloko.service;
+
+import com.bacos.mokengeli.biloko.config.SessionProperties;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import java.util.function.Consumer;
+
+/**
+ * Cache et recherche de sessions hors contexte Spring, partagés par les tests et les benchmarks.
+ * <p>
+ * Les réglages partent des valeurs de {@code application.yml} ({@link SessionProperties}) ;
+ * chaque test n'ajuste que ce qu'il éprouve.
+ */
+public final class SessionFixtures {
+
+    private SessionFixtures() {
+    }
+
+    public static SessionProperties properties(Consumer<SessionProperties> settings) {
+        SessionProperties properties = new SessionProperties();
+        settings.accept(properties);
+        return properties;
+    }
+
+    public static SessionCache cache(MeterRegistry meterRegistry) {
+        return cache(settings -> { }, meterRegistry);
+    }
+
+    public static SessionCache cache(Consumer<SessionProperties> settings, MeterRegistry meterRegistry) {
+        return new SessionCache(properties(settings), meterRegistry);
+    }
+
+    public static LookupBuilder lookup(AuthInternalClient authInternalClient, SessionCache sessionCache) {
+        return new LookupBuilder(authInternalClient, sessionCache);
+    }
+
+    /**
+     * {@link SessionLookupService} sans synchronisation entre pairs ; micro-batching si activé dans les réglages.
+     */
+    public static final class LookupBuilder {
+        private final AuthInternalClient authInternalClient;
+        private final SessionCache sessionCache;
+        private final SessionProperties properties = new SessionProperties();
+        private MeterRegistry meterRegistry = new SimpleMeterRegistry();
+        private SessionBatchLookup batchLookup;
+
+        private LookupBuilder(AuthInternalClient authInternalClient, SessionCache sessionCache) {
+            this.authInternalClient = authInternalClient;
+            this.sessionCache = sessionCache;
+        }
+
+        public LookupBuilder settings(Consumer<SessionProperties> settings) {
+            settings.accept(properties);
+            return this;
+        }
+
+        public LookupBuilder meterRegistry(MeterRegistry meterRegistry) {
+            this.meterRegistry = meterRegistry;
+            return this;
+        }
+
+        /**
+         * Pipeline de lots créé et démarré par {@link #build()} si {@code session.lookup.batch.enabled},
+         * à arrêter par l'appelant ; null sinon.
+         */
+        public SessionBatchLookup batchLookup() {
+            return batchLookup;
+        }
+
+        public SessionLookupService build() {
+            if (properties.getLookup().getBatch().isEnabled()) {
+                batchLookup = new SessionBatchLookup(authInternalClient, properties, meterRegistry);
+                batchLookup.start();
+            }
+            return new SessionLookupService(authInternalClient, sessionCache, properties, meterRegistry,
+                    null, batchLookup);
+        }
+    }
+}
@@ -0,0 +1,143 @@
+package com.bacos.mokengeli.biloko.service;
+
+import com.bacos.mokengeli.biloko.model.SessionKey;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.ExchangeFunction;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Issue d'une recherche de sessions selon la réponse de l'Authentication-Service.
+ */
+class SessionLookupServiceTest {
+
+    private static final SessionKey KEY = SessionCache.key("EMP-0001", "WAITER");
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final SessionCache cache = SessionFixtures.cache(meterRegistry);
+
+    @Test
+    void serverErrorCarriesTheLastKnownList() {
+        String jti = UUID.randomUUID().toString();
+        cache.put(KEY, List.of(jti), 5, null, System.nanoTime());
+
+        assertThatThrownBy(() -> lookup(HttpStatus.SERVICE_UNAVAILABLE))
+                .isInstanceOfSatisfying(SessionLookupUnavailableException.class,
+                        ex -> assertThat(ex.lastKnown().jtis().contains(jti)).isTrue());
+    }
+
+    @Test
+    void tooManyRequestsIsAnOutageNotARefusal() {
+        assertThatThrownBy(() -> lookup(HttpStatus.TOO_MANY_REQUESTS))
+                .isInstanceOfSatisfying(SessionLookupUnavailableException.class,
+                        ex -> assertThat(ex.lastKnown()).isNull());
+    }
+
+    @Test
+    void explicitRefusalIsPropagated() {
+        String jti = UUID.randomUUID().toString();
+        cache.put(KEY, List.of(jti), 5, null, System.nanoTime());
+
+        assertThatThrownBy(() -> lookup(HttpStatus.UNAUTHORIZED))
+                .isInstanceOf(WebClientResponseException.class)
+                .satisfies(ex -> assertThat(SessionLookupService.isExplicitRefusal(ex)).isTrue());
+    }
+
+    @Test
+    void coalescedCallerRetriesARefusalWithItsOwnToken() {
+        String jti = UUID.randomUUID().toString();
+        SessionLookupService service = service(request -> {
+            if ("accessToken=revoked".equals(request.headers().getFirst(HttpHeaders.COOKIE))) {
+                return Mono.delay(Duration.ofMillis(200))
+                        .thenReturn(ClientResponse.create(HttpStatus.UNAUTHORIZED).build());
+            }
+            return Mono.just(sessions(jti));
+        }, false);
+
+        Mono<SessionCache.Entry> refused = service.fetch("revoked", "EMP-0001", "WAITER").cache();
+        refused.subscribe(entry -> { }, err -> { });
+        SessionCache.Entry joined = service.fetch("valid", "EMP-0001", "WAITER").block(Duration.ofSeconds(5));
+
+        assertThat(joined.jtis().contains(jti)).isTrue();
+        assertThatThrownBy(() -> refused.block(Duration.ofSeconds(5)))
+                .isInstanceOf(WebClientResponseException.class);
+    }
+
+    @Test
+    void hedgedRefusalIsPropagatedWithoutWaitingForTheHedge() {
+        AtomicInteger calls = new AtomicInteger();
+        SessionLookupService service = service(request -> calls.incrementAndGet() == 1
+                ? Mono.just(ClientResponse.create(HttpStatus.UNAUTHORIZED).build())
+                : Mono.just(ClientResponse.create(HttpStatus.SERVICE_UNAVAILABLE).build()), true);
+
+        assertThatThrownBy(() -> service.fetch("revoked", "EMP-0001", "WAITER").block(Duration.ofSeconds(5)))
+                .isInstanceOf(WebClientResponseException.class)
+                .satisfies(ex -> assertThat(SessionLookupService.isExplicitRefusal(ex)).isTrue());
+        assertThat(calls).hasValue(1);
+    }
+
+    @Test
+    void hedgeTakesItsOwnBulkheadPermit() {
+        String jti = UUID.randomUUID().toString();
+        AtomicInteger calls = new AtomicInteger();
+        SessionLookupService service = SessionFixtures.lookup(client(request -> {
+                    calls.incrementAndGet();
+                    return Mono.delay(Duration.ofMillis(200)).thenReturn(sessions(jti));
+                }), cache)
+                .settings(settings -> {
+                    settings.getLookup().getHedge().setEnabled(true);
+                    settings.getLookup().getHedge().setMinDelay(Duration.ofMillis(10));
+                    settings.getLookup().getBulkhead().setMaxConcurrent(1);
+                })
+                .meterRegistry(meterRegistry)
+                .build();
+
+        SessionCache.Entry entry = service.fetch("token", "EMP-0001", "WAITER").block(Duration.ofSeconds(5));
+
+        assertThat(entry.jtis().contains(jti)).isTrue();
+        assertThat(calls).hasValue(1);
+        assertThat(meterRegistry.counter("gateway.session.lookup.decision", "decision", "hedge-skipped").count())
+                .isEqualTo(1);
+    }
+
+    private SessionCache.Entry lookup(HttpStatus upstreamStatus) {
+        return service(request -> Mono.just(ClientResponse.create(upstreamStatus).build()), false)
+                .fetch("token", "EMP-0001", "WAITER").block(Duration.ofSeconds(5));
+    }
+
+    private static ClientResponse sessions(String jti) {
+        return ClientResponse.create(HttpStatus.OK)
+                .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                .body("{\"employeeNumber\":\"EMP-0001\",\"appType\":\"WAITER\",\"maxSessions\":5,"
+                        + "\"sessions\":[{\"jti\":\"" + jti + "\"}]}")
+                .build();
+    }
+
+    private SessionLookupService service(ExchangeFunction exchange, boolean hedge) {
+        return SessionFixtures.lookup(client(exchange), cache)
+                .settings(settings -> settings.getLookup().getHedge().setEnabled(hedge))
+                .meterRegistry(meterRegistry)
+                .build();
+    }
+
+    private static AuthInternalClient client(ExchangeFunction exchange) {
+        WebClient webClient = WebClient.builder()
+                .exchangeFunction(exchange)
+                .build();
+        return new AuthInternalClient(webClient, "authentication-service", "accessToken");
+    }
+}
@@ -0,0 +1,163 @@
+package com.bacos.mokengeli.biloko.service;
+
+import com.bacos.mokengeli.biloko.controller.SessionPeerController;
+import com.bacos.mokengeli.biloko.model.PeerCacheMessage;
+import com.bacos.mokengeli.biloko.model.SessionKey;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.cloud.client.discovery.simple.SimpleDiscoveryClient;
+import org.springframework.cloud.client.discovery.simple.SimpleDiscoveryProperties;
+import org.springframework.cloud.client.serviceregistry.Registration;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.BooleanSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Deux instances du Gateway reliées par leur port de synchronisation, sans Spring ni Eureka.
+ */
+class SessionPeerSyncTest {
+
+    private static final String PEER_SECRET = "peer-secret-peer-secret-peer-secret-0001";
+    private static final String JWT_SECRET = "jwt-secret-jwt-secret-jwt-secret-jwt-0001";
+    private static final SessionKey KEY = SessionCache.key("EMP-0001", "WAITER");
+
+    private Gateway first;
+    private Gateway second;
+
+    @BeforeEach
+    void startGateways() throws IOException {
+        int firstPort = freePort();
+        int secondPort = freePort();
+        first = new Gateway(firstPort, secondPort);
+        second = new Gateway(secondPort, firstPort);
+    }
+
+    @AfterEach
+    void stopGateways() {
+        first.controller.stop();
+        second.controller.stop();
+    }
+
+    @Test
+    void fillOnOneGatewayWarmsThePeer() {
+        String jti = UUID.randomUUID().toString();
+        SessionCache.Entry entry = first.cache.put(KEY, List.of(jti), 5, null, System.nanoTime());
+
+        first.sync.publishFill(KEY, entry);
+
+        awaitUntil(() -> second.cache.getEntry(KEY) != null);
+        assertThat(second.cache.getEntry(KEY).jtis().contains(jti)).isTrue();
+        assertThat(second.cache.getEntry(KEY).maxSessions()).isEqualTo(5);
+    }
+
+    @Test
+    void logoutOnOneGatewayInvalidatesThePeer() {
+        String jti = UUID.randomUUID().toString();
+        first.cache.put(KEY, List.of(jti), 5, null, System.nanoTime());
+        second.cache.put(KEY, List.of(jti), 5, null, System.nanoTime());
+
+        second.sync.invalidateEverywhere(KEY);
+
+        assertThat(second.cache.getEntry(KEY)).isNull();
+        awaitUntil(() -> first.cache.getEntry(KEY) == null);
+    }
+
+    @Test
+    void peerFillDoesNotResurrectARecentlyInvalidatedKey() {
+        String jti = UUID.randomUUID().toString();
+        second.cache.invalidate(KEY);
+        SessionCache.Entry entry = first.cache.put(KEY, List.of(jti), 5, null, System.nanoTime());
+
+        first.sync.publishFill(KEY, entry);
+
+        // Le message est reçu (compteur) mais refusé par le cache
+        awaitUntil(() -> second.meterRegistry.counter("gateway.peer-sync.messages", "direction", "received").count() == 1);
+        assertThat(second.cache.getEntry(KEY)).isNull();
+    }
+
+    @Test
+    void messageWithWrongSecretIsRejected() {
+        PeerCacheMessage message = new PeerCacheMessage(PeerCacheMessage.Type.FILL, KEY.toString(),
+                List.of(UUID.randomUUID().toString()), 5, "intruder", null);
+
+        HttpStatusCode status = WebClient.create()
+                .post()
+                .uri(URI.create("http://localhost:" + second.port + SessionPeerSync.PEER_ENDPOINT))
+                .header(SessionPeerSync.SECRET_HEADER, JWT_SECRET)
+                .bodyValue(message)
+                .exchangeToMono(response -> response.releaseBody().thenReturn(response.statusCode()))
+                .block(Duration.ofSeconds(5));
+
+        assertThat(status.value()).isEqualTo(403);
+        assertThat(second.cache.getEntry(KEY)).isNull();
+    }
+
+    @Test
+    void startupFailsWithoutADedicatedSecret() {
+        assertThatThrownBy(() -> first.newSync(""))
+                .isInstanceOf(IllegalStateException.class);
+        assertThatThrownBy(() -> first.newSync(JWT_SECRET))
+                .isInstanceOf(IllegalStateException.class);
+    }
+
+    /**
+     * Instance du Gateway réduite au cache de sessions et à sa synchronisation.
+     */
+    private static final class Gateway {
+        final int port;
+        final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        final SessionCache cache = SessionFixtures.cache(meterRegistry);
+        final GatewayPeerLocator locator;
+        final SessionPeerSync sync;
+        final SessionPeerController controller;
+
+        Gateway(int port, int peerPort) {
+            this.port = port;
+            this.locator = new GatewayPeerLocator(new SimpleDiscoveryClient(new SimpleDiscoveryProperties()),
+                    new DefaultListableBeanFactory().getBeanProvider(Registration.class), "api-gateway",
+                    List.of(URI.create("http://localhost:" + peerPort)), peerPort);
+            this.sync = newSync(PEER_SECRET);
+            this.controller = new SessionPeerController(sync, new ObjectMapper(), "localhost", port);
+            controller.start();
+        }
+
+        SessionPeerSync newSync(String secret) {
+            return new SessionPeerSync(WebClient.create(), locator, cache, meterRegistry, true, secret, JWT_SECRET);
+        }
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+
+    private static void awaitUntil(BooleanSupplier condition) {
+        long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+        while (!condition.getAsBoolean()) {
+            if (System.nanoTime() > deadline) {
+                throw new AssertionError("Condition not met within 5s");
+            }
+            try {
+                Thread.sleep(20);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new AssertionError(e);
+            }
+        }
+    }
+}
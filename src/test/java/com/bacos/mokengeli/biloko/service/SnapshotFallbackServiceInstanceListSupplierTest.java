@@ -0,0 +1,152 @@
+package com.bacos.mokengeli.biloko.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.DisabledOnOs;
+import org.junit.jupiter.api.condition.OS;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.cloud.client.DefaultServiceInstance;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.discovery.simple.SimpleDiscoveryClient;
+import org.springframework.cloud.client.discovery.simple.SimpleDiscoveryProperties;
+import org.springframework.cloud.loadbalancer.core.ServiceInstanceListSupplier;
+import reactor.core.publisher.Flux;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Repli du load balancer sur le snapshot local avant le premier fetch du registre ou quand la découverte échoue.
+ */
+class SnapshotFallbackServiceInstanceListSupplierTest {
+
+    private static final String SERVICE_ID = "order-service";
+    private static final DefaultServiceInstance INSTANCE =
+            new DefaultServiceInstance("order-service-1", SERVICE_ID, "10.0.0.12", 8080, false);
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void emptyDiscoveryServesTheSnapshotBeforeTheFirstFetch() {
+        RegistrySnapshotStore store = bootedStore(Duration.ofMinutes(30));
+
+        List<ServiceInstance> instances = supplier(store, Flux.just(List.of())).get().blockFirst();
+
+        assertThat(instances).extracting(ServiceInstance::getInstanceId).containsExactly("order-service-1");
+    }
+
+    @Test
+    void failingDiscoveryServesTheSnapshot() {
+        RegistrySnapshotStore store = bootedStore(Duration.ofMinutes(30));
+
+        List<ServiceInstance> instances =
+                supplier(store, Flux.error(new IllegalStateException("Eureka unreachable"))).get().blockFirst();
+
+        assertThat(instances).extracting(ServiceInstance::getInstanceId).containsExactly("order-service-1");
+    }
+
+    @Test
+    void discoveredInstancesWinOverTheSnapshot() {
+        RegistrySnapshotStore store = bootedStore(Duration.ofMinutes(30));
+        ServiceInstance fresh = new DefaultServiceInstance("order-service-2", SERVICE_ID, "10.0.0.13", 8080, false);
+
+        List<ServiceInstance> instances = supplier(store, Flux.just(List.of(fresh))).get().blockFirst();
+
+        assertThat(instances).containsExactly(fresh);
+    }
+
+    @Test
+    void expiredSnapshotIsNotServed() throws InterruptedException {
+        capturedStore(Duration.ofMillis(1), Map.of(SERVICE_ID, List.of(INSTANCE)));
+        Thread.sleep(20);
+        RegistrySnapshotStore store = bootedStore(Duration.ofMillis(1), Map.of());
+
+        List<ServiceInstance> instances = supplier(store, Flux.just(List.of())).get().blockFirst();
+
+        assertThat(instances).isEmpty();
+    }
+
+    @Test
+    void emptyDiscoveryAfterTheFirstFetchIsNotOverridden() {
+        RegistrySnapshotStore store = capturedStore(Duration.ofMinutes(30), Map.of(SERVICE_ID, List.of(INSTANCE)));
+
+        List<ServiceInstance> instances = supplier(store, Flux.just(List.of())).get().blockFirst();
+
+        assertThat(instances).isEmpty();
+    }
+
+    @Test
+    void serviceDroppedFromTheRegistryIsForgotten() {
+        bootedStore(Duration.ofMinutes(30));
+        ServiceInstance other = new DefaultServiceInstance("user-service-1", "user-service", "10.0.0.20", 8080, false);
+        RegistrySnapshotStore store = capturedStore(Duration.ofMinutes(30), Map.of("user-service", List.of(other)));
+
+        assertThat(store.lastKnown(SERVICE_ID)).isEmpty();
+        assertThat(bootedStore(Duration.ofMinutes(30), Map.of()).lastKnown(SERVICE_ID)).isEmpty();
+    }
+
+    @Test
+    @DisabledOnOs(OS.WINDOWS)
+    void snapshotIsPrivateAndSharedFilesAreIgnored() throws IOException {
+        Path file = directory.resolve("private/registry.json");
+        store(Map.of(SERVICE_ID, List.of(INSTANCE)), file, Duration.ofMinutes(30)).capture();
+
+        assertThat(PosixFilePermissions.toString(Files.getPosixFilePermissions(file))).isEqualTo("rw-------");
+        assertThat(PosixFilePermissions.toString(Files.getPosixFilePermissions(file.getParent())))
+                .isEqualTo("rwx------");
+
+        Files.setPosixFilePermissions(file, PosixFilePermissions.fromString("rw-rw-rw-"));
+        assertThat(store(Map.of(), file, Duration.ofMinutes(30)).lastKnown(SERVICE_ID)).isEmpty();
+    }
+
+    /**
+     * Snapshot écrit par une instance précédente, relu par un Gateway qui n'a pas encore fait son premier fetch.
+     */
+    private RegistrySnapshotStore bootedStore(Duration maxAge) {
+        capturedStore(maxAge, Map.of(SERVICE_ID, List.of(INSTANCE)));
+        return bootedStore(maxAge, Map.of());
+    }
+
+    private RegistrySnapshotStore bootedStore(Duration maxAge, Map<String, List<DefaultServiceInstance>> registry) {
+        return store(registry, directory.resolve("registry.json"), maxAge);
+    }
+
+    private RegistrySnapshotStore capturedStore(Duration maxAge, Map<String, List<DefaultServiceInstance>> registry) {
+        RegistrySnapshotStore store = store(registry, directory.resolve("registry.json"), maxAge);
+        store.capture();
+        return store;
+    }
+
+    private static RegistrySnapshotStore store(Map<String, List<DefaultServiceInstance>> registry, Path file,
+                                               Duration maxAge) {
+        SimpleDiscoveryProperties properties = new SimpleDiscoveryProperties();
+        properties.setInstances(registry);
+        return new RegistrySnapshotStore(new SimpleDiscoveryClient(properties),
+                new ObjectMapper(), new SimpleMeterRegistry(), true, file, maxAge);
+    }
+
+    private static SnapshotFallbackServiceInstanceListSupplier supplier(RegistrySnapshotStore store,
+                                                                        Flux<List<ServiceInstance>> discovery) {
+        ServiceInstanceListSupplier delegate = new ServiceInstanceListSupplier() {
+            @Override
+            public String getServiceId() {
+                return SERVICE_ID;
+            }
+
+            @Override
+            public Flux<List<ServiceInstance>> get() {
+                return discovery;
+            }
+        };
+        return new SnapshotFallbackServiceInstanceListSupplier(delegate, store);
+    }
+}
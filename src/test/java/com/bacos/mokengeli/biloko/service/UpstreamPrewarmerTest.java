@@ -0,0 +1,178 @@
+package com.bacos.mokengeli.biloko.service;
+
+import com.bacos.mokengeli.biloko.config.UpstreamPoolProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.client.DefaultServiceInstance;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.discovery.DiscoveryClient;
+import org.springframework.cloud.gateway.config.GatewayProperties;
+import org.springframework.cloud.gateway.route.RouteDefinition;
+import org.springframework.cloud.loadbalancer.core.ServiceInstanceListSupplier;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.server.HttpServer;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Pré-chauffage contre une instance locale : écartée du load balancing tant que les connexions
+ * ne sont pas établies, connexions du pool fermées quand elle quitte le registre.
+ */
+class UpstreamPrewarmerTest {
+
+    private static final String SERVICE_ID = "order-service";
+    private static final int CONNECTIONS = 2;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    // Réponses du health check retenues jusqu'à l'ouverture de la barrière
+    private final Sinks.Empty<Void> gate = Sinks.empty();
+    private final AtomicInteger openConnections = new AtomicInteger();
+    private final DisposableServer server = HttpServer.create()
+            .host("127.0.0.1")
+            .port(0)
+            .doOnConnection(connection -> {
+                openConnections.incrementAndGet();
+                connection.onDispose(openConnections::decrementAndGet);
+            })
+            .handle((request, response) -> gate.asMono().then(response.sendString(Flux.just("UP")).then()))
+            .bindNow();
+    private final RegistryStub registry = new RegistryStub();
+    private final UpstreamConnectionPools pools = pools();
+    private final UpstreamPrewarmer prewarmer = new UpstreamPrewarmer(registry, pools, meterRegistry,
+            true, CONNECTIONS, "/actuator/health", Duration.ofSeconds(5), 20);
+
+    private final ServiceInstance local =
+            new DefaultServiceInstance("order-service-1", SERVICE_ID, "127.0.0.1", server.port(), false);
+    private final ServiceInstance ready =
+            new DefaultServiceInstance("order-service-2", SERVICE_ID, "10.0.0.42", 8080, false);
+
+    @AfterEach
+    void tearDown() {
+        gate.tryEmitEmpty();
+        pools.close();
+        server.disposeNow();
+    }
+
+    @Test
+    void warmingInstanceIsLeftOutOfLoadBalancing() {
+        registry.register(local);
+        WarmingServiceInstanceListSupplier supplier = supplier(List.of(local, ready));
+
+        prewarmer.refresh();
+
+        assertThat(prewarmer.isWarming(local)).isTrue();
+        assertThat(supplier.get().blockFirst()).containsExactly(ready);
+
+        gate.tryEmitEmpty();
+        await(() -> !prewarmer.isWarming(local));
+        assertThat(supplier.get().blockFirst()).containsExactly(local, ready);
+    }
+
+    @Test
+    void listIsKeptWhenEveryInstanceIsWarming() {
+        registry.register(local);
+        prewarmer.refresh();
+
+        assertThat(supplier(List.of(local)).get().blockFirst()).containsExactly(local);
+    }
+
+    @Test
+    void deregisteredInstanceConnectionsAreClosed() {
+        registry.register(local);
+        prewarmer.refresh();
+        // Une connexion par requête de pré-chauffage, toutes ouvertes avant la première réponse
+        await(() -> openConnections.get() == CONNECTIONS);
+        gate.tryEmitEmpty();
+        await(() -> !prewarmer.isWarming(local));
+        assertThat(openConnections).hasValue(CONNECTIONS);
+
+        registry.deregister(local);
+        prewarmer.refresh();
+
+        await(() -> openConnections.get() == 0);
+        assertThat(prewarmer.coldRequestTimer(local.getUri())).isNull();
+    }
+
+    private WarmingServiceInstanceListSupplier supplier(List<ServiceInstance> instances) {
+        return new WarmingServiceInstanceListSupplier(new StaticSupplier(instances), prewarmer);
+    }
+
+    private UpstreamConnectionPools pools() {
+        RouteDefinition route = new RouteDefinition();
+        route.setId("orders");
+        route.setUri(URI.create("lb://" + SERVICE_ID));
+        GatewayProperties gatewayProperties = new GatewayProperties();
+        gatewayProperties.setRoutes(List.of(route));
+        return new UpstreamConnectionPools(new UpstreamPoolProperties(), gatewayProperties, meterRegistry);
+    }
+
+    private static void await(BooleanSupplier condition) {
+        long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+        while (!condition.getAsBoolean()) {
+            assertThat(System.nanoTime()).as("condition not met within 5 s").isLessThan(deadline);
+            try {
+                Thread.sleep(10);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+
+    /**
+     * Registre Eureka simulé, modifiable entre deux rafraîchissements.
+     */
+    private static final class RegistryStub implements DiscoveryClient {
+        private final Map<String, List<ServiceInstance>> instances = new ConcurrentHashMap<>();
+
+        void register(ServiceInstance instance) {
+            instances.merge(instance.getServiceId(), List.of(instance), (a, b) ->
+                    Stream.concat(a.stream(), b.stream()).toList());
+        }
+
+        void deregister(ServiceInstance instance) {
+            instances.computeIfPresent(instance.getServiceId(), (id, list) ->
+                    list.stream().filter(candidate -> !candidate.equals(instance)).toList());
+        }
+
+        @Override
+        public String description() {
+            return "registry stub";
+        }
+
+        @Override
+        public List<ServiceInstance> getInstances(String serviceId) {
+            return instances.getOrDefault(serviceId, List.of());
+        }
+
+        @Override
+        public List<String> getServices() {
+            return List.copyOf(instances.keySet());
+        }
+    }
+
+    private record StaticSupplier(List<ServiceInstance> instances) implements ServiceInstanceListSupplier {
+
+        @Override
+        public String getServiceId() {
+            return SERVICE_ID;
+        }
+
+        @Override
+        public Flux<List<ServiceInstance>> get() {
+            return Flux.just(instances);
+        }
+    }
+}